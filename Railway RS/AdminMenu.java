@@ -72,7 +72,7 @@ public class AdminMenu extends JFrame {
         mainPanel.add(headerPanel, BorderLayout.NORTH);
 
         // Button panel
-        JPanel buttonPanel = new JPanel(new GridLayout(3, 2, 20, 20));
+        JPanel buttonPanel = new JPanel(new GridLayout(4, 2, 20, 20));
         buttonPanel.setBorder(new EmptyBorder(30, 30, 30, 30));
         buttonPanel.setOpaque(false);
 
@@ -82,6 +82,7 @@ public class AdminMenu extends JFrame {
         addAdminButton(buttonPanel, "Delete Train", "icons/delete_train.png", e -> showDeleteTrainDialog());
         addAdminButton(buttonPanel, "View Bookings", "icons/view_bookings.png", e -> showAllBookings());
         addAdminButton(buttonPanel, "Generate Report", "icons/report.png", e -> generateReport());
+        addAdminButton(buttonPanel, "Metrics", "icons/metrics.png", e -> showMetrics());
         addAdminButton(buttonPanel, "Logout", "icons/logout.png", e -> confirmLogout());
 
         mainPanel.add(buttonPanel, BorderLayout.CENTER);
@@ -126,9 +127,22 @@ public class AdminMenu extends JFrame {
         String filename = "report_" + 
             LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + 
             ".txt";
-        
-        DatabaseManager.getInstance().generateReport(filename);
-        
+
+        BackgroundTask.run(this, "Generating report...", true,
+            progress -> {
+                DatabaseManager.getInstance().generateReport(filename,
+                    percent -> progress.update("Generating report... " + percent + "%", percent));
+                return filename;
+            },
+            this::offerToOpenReport,
+            ex -> {
+                if (!(ex instanceof java.util.concurrent.CancellationException)) {
+                    showErrorDialog(this, "Error generating report: " + ex.getMessage());
+                }
+            });
+    }
+
+    private void offerToOpenReport(String filename) {
         int choice = JOptionPane.showOptionDialog(this,
             "Report generated successfully!\n" +
             "File: " + filename + "\n\n" +
@@ -174,6 +188,7 @@ public class AdminMenu extends JFrame {
         JTextField seatsField = createFormFieldWithPlaceholder("e.g., 300");
         JTextField acSeatsField = createFormFieldWithPlaceholder("e.g., 100");
         JTextField fareField = createFormFieldWithPlaceholder("e.g., 500.00");
+        JTextField stopsField = createFormFieldWithPlaceholder("e.g., Pune:150,Satara:260");
     
         addFormRow(formPanel, "Train Number*:", numberField);
         addFormRow(formPanel, "Train Name*:", nameField);
@@ -184,6 +199,7 @@ public class AdminMenu extends JFrame {
         addFormRow(formPanel, "Total Seats*:", seatsField);
         addFormRow(formPanel, "AC Seats*:", acSeatsField);
         addFormRow(formPanel, "Base Fare (₹)*:", fareField);
+        addFormRow(formPanel, "Stops (Station:minutes):", stopsField);
     
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 0));
         buttonPanel.setOpaque(false);
@@ -236,16 +252,24 @@ public class AdminMenu extends JFrame {
                     fare,
                     acSeats
                 );
-    
-                if (DatabaseManager.getInstance().addTrain(train)) {
-                    JOptionPane.showMessageDialog(dialog, 
-                        "Train added successfully!", 
-                        "Success", 
-                        JOptionPane.INFORMATION_MESSAGE);
-                    dialog.dispose();
-                } else {
-                    throw new Exception("Failed to add train. It may already exist.");
+                if (!stopsField.getText().equals("e.g., Pune:150,Satara:260")) {
+                    train.setIntermediateStops(Train.parseStops(stopsField.getText()));
                 }
+    
+                BackgroundTask.run(dialog, "Saving train...", false,
+                    progress -> DatabaseManager.getInstance().addTrain(train),
+                    added -> {
+                        if (added) {
+                            JOptionPane.showMessageDialog(dialog, 
+                                "Train added successfully!", 
+                                "Success", 
+                                JOptionPane.INFORMATION_MESSAGE);
+                            dialog.dispose();
+                        } else {
+                            showErrorDialog(dialog, "Failed to add train. It may already exist.");
+                        }
+                    },
+                    ex -> showErrorDialog(dialog, "Error: " + ex.getMessage()));
             } catch (DateTimeParseException ex) {
                 showErrorDialog(dialog, "Invalid date/time format. Please use yyyy-MM-dd HH:mm");
             } catch (NumberFormatException ex) {
@@ -380,6 +404,7 @@ public class AdminMenu extends JFrame {
                 JTextField seatsField = createStyledTextField(String.valueOf(train.getTotalSeats()));
                 JTextField acSeatsField = createStyledTextField(String.valueOf(train.getAcSeats()));
                 JTextField fareField = createStyledTextField(String.valueOf(train.getBaseFare()));
+                JTextField stopsField = createStyledTextField(Train.formatStops(train.getIntermediateStops()));
 
                 addFormRow(formPanel, "Train Number:", new JLabel(train.getTrainNumber()));
                 addFormRow(formPanel, "Train Name:", nameField);
@@ -390,6 +415,7 @@ public class AdminMenu extends JFrame {
                 addFormRow(formPanel, "Total Seats:", seatsField);
                 addFormRow(formPanel, "AC Seats:", acSeatsField);
                 addFormRow(formPanel, "Base Fare (₹):", fareField);
+                addFormRow(formPanel, "Stops (Station:minutes):", stopsField);
 
                 JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
                 JButton updateButton = createActionButton("Update", new Color(0, 102, 51));
@@ -409,21 +435,27 @@ public class AdminMenu extends JFrame {
                             throw new IllegalArgumentException("AC seats cannot exceed total seats");
                         }
 
-                        train.setTrainName(nameField.getText());
-                        train.setSource(sourceField.getText());
-                        train.setDestination(destField.getText());
-                        train.setDepartureTime(departure);
-                        train.setArrivalTime(arrival);
-                        train.setTotalSeats(seats);
-                        train.setAcSeats(acSeats);
-                        train.setBaseFare(Double.parseDouble(fareField.getText()));
-
-                        DatabaseManager.getInstance().addTrain(train);
-                        JOptionPane.showMessageDialog(dialog, 
-                            "Train updated successfully!", 
-                            "Success", 
-                            JOptionPane.INFORMATION_MESSAGE);
-                        dialog.dispose();
+                        double fare = Double.parseDouble(fareField.getText());
+                        // Validated here as a whole; the stored train is only
+                        // changed by updateTrain, all at once
+                        Train edited = new Train(train.getTrainNumber(), nameField.getText(),
+                            sourceField.getText(), destField.getText(), departure, arrival, seats, fare, acSeats);
+                        edited.setIntermediateStops(Train.parseStops(stopsField.getText()));
+
+                        BackgroundTask.run(dialog, "Saving train...", false,
+                            progress -> DatabaseManager.getInstance().updateTrain(edited),
+                            saved -> {
+                                if (saved) {
+                                    JOptionPane.showMessageDialog(dialog, 
+                                        "Train updated successfully!", 
+                                        "Success", 
+                                        JOptionPane.INFORMATION_MESSAGE);
+                                    dialog.dispose();
+                                } else {
+                                    showErrorDialog(dialog, "Train was updated but could not be saved");
+                                }
+                            },
+                            ex -> showErrorDialog(dialog, ex.getMessage()));
                     } catch (Exception ex) {
                         JOptionPane.showMessageDialog(dialog, 
                             ex.getMessage(), 
@@ -457,9 +489,7 @@ public class AdminMenu extends JFrame {
         if (trainNumber != null && !trainNumber.trim().isEmpty()) {
             Train train = DatabaseManager.getInstance().getTrain(trainNumber);
             if (train != null) {
-                long ticketCount = DatabaseManager.getInstance().getAllTickets().stream()
-                    .filter(t -> t.getTrain().getTrainNumber().equals(trainNumber))
-                    .count();
+                long ticketCount = BookingService.getInstance().countTrainTickets(trainNumber);
 
                 if (ticketCount > 0) {
                     int confirm = JOptionPane.showConfirmDialog(this,
@@ -478,11 +508,16 @@ public class AdminMenu extends JFrame {
                     JOptionPane.YES_NO_OPTION);
                 
                 if (finalConfirm == JOptionPane.YES_OPTION) {
-                    DatabaseManager.getInstance().deleteTrain(trainNumber);
-                    JOptionPane.showMessageDialog(this, 
-                        "Train deleted successfully!", 
-                        "Success", 
-                        JOptionPane.INFORMATION_MESSAGE);
+                    BackgroundTask.run(this, "Deleting train...", false,
+                        progress -> {
+                            DatabaseManager.getInstance().deleteTrain(trainNumber);
+                            return trainNumber;
+                        },
+                        deleted -> JOptionPane.showMessageDialog(this, 
+                            "Train deleted successfully!", 
+                            "Success", 
+                            JOptionPane.INFORMATION_MESSAGE),
+                        ex -> showErrorDialog(this, "Error deleting train: " + ex.getMessage()));
                 }
             } else {
                 JOptionPane.showMessageDialog(this,
@@ -493,55 +528,255 @@ public class AdminMenu extends JFrame {
         }
     }
 
+    // Bookings table over every ticket in the current read view. Loading,
+    // filtering and sorting run on a SwingWorker so the dialog opens at once
+    // at any data size, and JTable only asks the model for the rows in view.
+    // The table stays on its snapshot until Reload takes a newer one.
     private void showAllBookings() {
         JDialog dialog = new JDialog(this, "All Bookings", true);
-        dialog.setSize(700, 500);
+        dialog.setSize(1000, 600);
         dialog.setLocationRelativeTo(this);
-        
-        // Create main panel with padding
-        JPanel mainPanel = new JPanel(new BorderLayout());
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
         mainPanel.setBackground(Color.WHITE);
-    
-        // Create text area for displaying bookings
-        JTextArea textArea = new JTextArea();
-        textArea.setEditable(false);
-        textArea.setFont(new Font("Monospaced", Font.PLAIN, 14));
-        textArea.setMargin(new Insets(10, 10, 10, 10));
-        
-        // Load and format the bookings data
-        List<Ticket> tickets = DatabaseManager.getInstance().getAllTickets();
-        if (tickets.isEmpty()) {
-            textArea.setText("No bookings found.");
-        } else {
-            StringBuilder sb = new StringBuilder();
-            for (Ticket ticket : tickets) {
-                sb.append("PNR: ").append(ticket.getPnr()).append("\n");
-                sb.append("Passenger: ").append(ticket.getPassengerName()).append("\n");
-                sb.append("Train: ").append(ticket.getTrain().getTrainName())
-                  .append(" (").append(ticket.getTrain().getTrainNumber()).append(")\n");
-                sb.append("Route: ").append(ticket.getTrain().getSource())
-                  .append(" to ").append(ticket.getTrain().getDestination()).append("\n");
-                sb.append("Date: ").append(ticket.getFormattedJourneyDate()).append("\n");
-                sb.append("Class: ").append(ticket.getSeatType()).append(", Seats: ")
-                  .append(ticket.getNumberOfSeats()).append("\n");
-                sb.append("Status: ").append(ticket.getStatus()).append("\n");
-                sb.append("Fare: ₹").append(String.format("%.2f", ticket.getTotalFare())).append("\n");
-                sb.append("----------------------------------------\n");
+
+        BookingTableModel model = new BookingTableModel();
+        JTable table = new JTable(model);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        table.setRowHeight(24);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getTableHeader().setToolTipText("Click a column to sort, click again to reverse");
+
+        JLabel statusLabel = new JLabel("Loading bookings...");
+        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        BookingsView view = new BookingsView(model, statusLabel);
+
+        // Filter bar; typing restarts a short delay so each keystroke does not start a scan
+        JTextField filterField = createStyledTextField();
+        filterField.setToolTipText("PNR, passenger, train number or name, or status");
+        javax.swing.Timer filterDelay = new javax.swing.Timer(250, e -> {
+            view.query = filterField.getText();
+            view.refresh();
+        });
+        filterDelay.setRepeats(false);
+        filterField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { filterDelay.restart(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { filterDelay.restart(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { filterDelay.restart(); }
+        });
+        JButton reloadButton = createActionButton("Reload", PRIMARY_COLOR);
+        reloadButton.addActionListener(e -> view.reload());
+
+        JPanel filterPanel = new JPanel(new BorderLayout(10, 0));
+        filterPanel.setOpaque(false);
+        JLabel filterLabel = new JLabel("Filter:");
+        filterLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        filterPanel.add(filterLabel, BorderLayout.WEST);
+        filterPanel.add(filterField, BorderLayout.CENTER);
+        filterPanel.add(reloadButton, BorderLayout.EAST);
+
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (column < 0) return;
+                view.ascending = column != view.sortColumn || !view.ascending;
+                view.sortColumn = column;
+                view.refresh();
+            }
+        });
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0) {
+                    Ticket ticket = DatabaseManager.getInstance().getTicket(model.getTicketAt(row).getPnr());
+                    if (ticket == null) return;
+                    JTextArea printout = new JTextArea(ticket.generateTicketPrintout());
+                    printout.setEditable(false);
+                    printout.setFont(new Font("Monospaced", Font.PLAIN, 13));
+                    JOptionPane.showMessageDialog(dialog, new JScrollPane(printout), "Ticket Details",
+                        JOptionPane.PLAIN_MESSAGE);
+                }
             }
-            textArea.setText(sb.toString());
+        });
+
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                filterDelay.stop();
+                view.cancel();
+            }
+        });
+
+        mainPanel.add(filterPanel, BorderLayout.NORTH);
+        mainPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        mainPanel.add(statusLabel, BorderLayout.SOUTH);
+        dialog.add(mainPanel);
+        view.refresh();
+        dialog.setVisible(true);
+    }
+
+    // State behind the bookings table. Each refresh supersedes the previous
+    // one: the running worker is interrupted and its result discarded.
+    private static class BookingsView {
+        private final BookingTableModel model;
+        private final JLabel statusLabel;
+        private volatile ReadView snapshot;
+        private volatile List<ReadView.TicketRecord> allTickets;
+        private SwingWorker<List<ReadView.TicketRecord>, Void> worker;
+        String query = "";
+        int sortColumn = 4;  // journey date
+        boolean ascending = true;
+
+        BookingsView(BookingTableModel model, JLabel statusLabel) {
+            this.model = model;
+            this.statusLabel = statusLabel;
         }
-    
-        // Add to scroll pane
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setBorder(BorderFactory.createEmptyBorder());
-        
-        // Add to dialog
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
+
+        void reload() {
+            allTickets = null;
+            refresh();
+        }
+
+        void cancel() {
+            if (worker != null) {
+                worker.cancel(true);
+            }
+        }
+
+        void refresh() {
+            cancel();
+            String filter = query;
+            int column = sortColumn;
+            boolean up = ascending;
+            statusLabel.setText(allTickets == null ? "Loading bookings..." : "Updating...");
+            worker = new SwingWorker<List<ReadView.TicketRecord>, Void>() {
+                private int total;
+
+                @Override
+                protected List<ReadView.TicketRecord> doInBackground() throws Exception {
+                    List<ReadView.TicketRecord> all = allTickets;
+                    if (all == null) {
+                        snapshot = BookingService.getInstance().getReadView();
+                        all = snapshot.getTickets();
+                        allTickets = all;
+                    }
+                    total = all.size();
+                    List<ReadView.TicketRecord> rows = BookingTableModel.filter(all, filter);
+                    Comparator<ReadView.TicketRecord> order = BookingTableModel.comparatorFor(column);
+                    rows.sort(up ? order : order.reversed());
+                    return rows;
+                }
+
+                @Override
+                protected void done() {
+                    if (isCancelled()) return;
+                    try {
+                        List<ReadView.TicketRecord> rows = get();
+                        model.setRows(rows);
+                        statusLabel.setText(total == 0 ? "No bookings found." : String.format(
+                            "Showing %,d of %,d bookings, sorted by %s %s (snapshot %d)", rows.size(), total,
+                            model.getColumnName(column), up ? "▲" : "▼", snapshot.getEpoch()));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (java.util.concurrent.ExecutionException e) {
+                        statusLabel.setText("Error loading bookings: " + e.getCause().getMessage());
+                    }
+                }
+            };
+            worker.execute();
+        }
+    }
+
+    // Live view of the engine's latency timers and counters, refreshed every
+    // two seconds while open. Non-modal so it can be watched during bookings.
+    private void showMetrics() {
+        JDialog dialog = new JDialog(this, "Engine Metrics", false);
+        dialog.setSize(900, 420);
+        dialog.setLocationRelativeTo(this);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        mainPanel.setBackground(Color.WHITE);
+
+        String[] columns = { "Metric", "Count", "Mean (ms)", "p50 (ms)", "p99 (ms)", "p99.9 (ms)", "Max (ms)" };
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(model);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        table.setRowHeight(24);
+        table.getColumnModel().getColumn(0).setPreferredWidth(280);
+        Runnable refresh = () -> {
+            model.setRowCount(0);
+            for (Metrics.Metric metric : Metrics.getAll()) {
+                if (metric instanceof Metrics.Counter) {
+                    model.addRow(new Object[] { metric.getName(), ((Metrics.Counter) metric).get(), "", "", "", "", "" });
+                } else {
+                    LatencyHistogram histogram = ((Metrics.Timer) metric).getHistogram();
+                    model.addRow(new Object[] { metric.getName(), histogram.getCount(),
+                        millis(histogram.getMean()), millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                        millis(histogram.getMax()) });
+                }
+            }
+        };
+        refresh.run();
+        mainPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton refreshButton = createActionButton("Refresh", PRIMARY_COLOR);
+        JButton resetButton = createActionButton("Reset", new Color(153, 0, 0));
+        JButton exportButton = createActionButton("Export", new Color(0, 102, 51));
+        refreshButton.addActionListener(e -> refresh.run());
+        resetButton.addActionListener(e -> {
+            Metrics.resetAll();
+            refresh.run();
+        });
+        exportButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Export metrics (Prometheus text format)");
+            chooser.setSelectedFile(new File("railway_metrics.prom"));
+            if (chooser.showSaveDialog(dialog) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    Metrics.exportPrometheus(chooser.getSelectedFile());
+                    JOptionPane.showMessageDialog(dialog, "Metrics exported to " + chooser.getSelectedFile());
+                } catch (IOException ex) {
+                    showErrorDialog(dialog, "Error exporting metrics: " + ex.getMessage());
+                }
+            }
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttons.setOpaque(false);
+        buttons.add(refreshButton);
+        buttons.add(resetButton);
+        buttons.add(exportButton);
+        mainPanel.add(buttons, BorderLayout.SOUTH);
+
+        javax.swing.Timer timer = new javax.swing.Timer(2000, e -> refresh.run());
+        timer.start();
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+            }
+        });
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         dialog.add(mainPanel);
         dialog.setVisible(true);
     }
 
+    private static String millis(double nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
     private JTextField createStyledTextField() {
         JTextField field = new JTextField();
         field.setFont(new Font("Segoe UI", Font.PLAIN, 14));
@@ -0,0 +1,161 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+// Runs storage work for the Swing screens on a SwingWorker and hands the
+// result back on the EDT. While it runs the owner window ignores input, so
+// a slow save cannot be submitted twice, but it keeps repainting. If the
+// work takes longer than a moment a progress dialog appears; for
+// cancellable work its Cancel button interrupts the worker, which the work
+// observes through Progress.isCancelled or by being interrupted.
+//
+//   BackgroundTask.run(dialog, "Booking ticket...", false,
+//       progress -> service.book(request),
+//       ticket -> showTicketDetails(ticket, "Booking Successful"),
+//       error -> showErrorMessage(error.getMessage()));
+public final class BackgroundTask<T> extends SwingWorker<T, BackgroundTask.Update> {
+    // Progress dialogs are only shown for work slower than this, to avoid flicker
+    private static final int DIALOG_DELAY_MILLIS = 200;
+
+    public interface Work<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    // Handed to the work so it can report progress and notice cancellation
+    public interface Progress {
+        // percent is 0..100, or negative while the amount of work is unknown
+        void update(String message, int percent);
+
+        boolean isCancelled();
+    }
+
+    static final class Update {
+        final String message;
+        final int percent;
+
+        Update(String message, int percent) {
+            this.message = message;
+            this.percent = percent;
+        }
+    }
+
+    private final Window owner;
+    private final Work<T> work;
+    private final Consumer<T> onSuccess;
+    private final Consumer<Exception> onFailure;
+    private final JDialog progressDialog;
+    private final JLabel messageLabel;
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final Timer showTimer;
+
+    private BackgroundTask(Window owner, String message, boolean cancellable, Work<T> work,
+                           Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        this.owner = owner;
+        this.work = work;
+        this.onSuccess = onSuccess;
+        this.onFailure = onFailure;
+
+        progressDialog = new JDialog(owner, "Please wait", Dialog.ModalityType.APPLICATION_MODAL);
+        progressDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(new EmptyBorder(15, 20, 15, 20));
+        messageLabel = new JLabel(message);
+        messageLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(320, 18));
+        panel.add(messageLabel, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        if (cancellable) {
+            JButton cancelButton = new JButton("Cancel");
+            cancelButton.addActionListener(e -> {
+                cancelButton.setEnabled(false);
+                messageLabel.setText("Cancelling...");
+                cancel(true);
+            });
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+            buttons.add(cancelButton);
+            panel.add(buttons, BorderLayout.SOUTH);
+        }
+        progressDialog.add(panel);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(owner);
+
+        showTimer = new Timer(DIALOG_DELAY_MILLIS, e -> {
+            if (!isDone()) {
+                progressDialog.setVisible(true);  // blocks in a nested event loop until done() disposes it
+            }
+        });
+        showTimer.setRepeats(false);
+    }
+
+    // Starts the work; must be called on the EDT. onFailure receives the
+    // work's exception, or a CancellationException if the user cancelled.
+    public static <T> BackgroundTask<T> run(Component parent, String message, boolean cancellable, Work<T> work,
+                                            Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        Window owner = parent instanceof Window ? (Window) parent : SwingUtilities.getWindowAncestor(parent);
+        BackgroundTask<T> task = new BackgroundTask<>(owner, message, cancellable, work, onSuccess, onFailure);
+        if (owner != null) {
+            owner.setEnabled(false);
+        }
+        task.showTimer.start();
+        task.execute();
+        return task;
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        return work.run(new Progress() {
+            @Override
+            public void update(String message, int percent) {
+                publish(new Update(message, percent));
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return BackgroundTask.this.isCancelled() || Thread.currentThread().isInterrupted();
+            }
+        });
+    }
+
+    @Override
+    protected void process(List<Update> updates) {
+        Update latest = updates.get(updates.size() - 1);
+        if (isCancelled()) return;
+        if (latest.message != null) {
+            messageLabel.setText(latest.message);
+        }
+        progressBar.setIndeterminate(latest.percent < 0);
+        if (latest.percent >= 0) {
+            progressBar.setValue(Math.min(100, latest.percent));
+        }
+    }
+
+    @Override
+    protected void done() {
+        showTimer.stop();
+        progressDialog.dispose();
+        if (owner != null) {
+            owner.setEnabled(true);
+            owner.toFront();
+        }
+        T result;
+        try {
+            result = get();
+        } catch (CancellationException e) {
+            onFailure.accept(e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            onFailure.accept(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+            return;
+        }
+        onSuccess.accept(result);
+    }
+}
@@ -0,0 +1,13 @@
+// Why a BookingService call was refused
+public enum BookingError {
+    INVALID_REQUEST,
+    TRAIN_NOT_FOUND,
+    SEATS_UNAVAILABLE,
+    TICKET_NOT_FOUND,
+    NOT_AUTHORIZED,
+    NOT_CANCELLABLE,
+    PERSISTENCE_FAILED,
+    HOLD_EXPIRED,
+    TOO_MANY_HOLDS,
+    WAITLIST_FULL
+}
@@ -0,0 +1,20 @@
+// Typed failure from BookingService; the message is fit to show a user
+public class BookingException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final BookingError error;
+
+    public BookingException(BookingError error, String message) {
+        super(message);
+        this.error = error;
+    }
+
+    public BookingException(BookingError error, String message, Throwable cause) {
+        super(message, cause);
+        this.error = error;
+    }
+
+    public BookingError getError() {
+        return error;
+    }
+}
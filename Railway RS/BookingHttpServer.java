@@ -0,0 +1,484 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+// Local HTTP/JSON front end over BookingService, listening on the loopback
+// interface only: callers are not authenticated and name their own userId.
+//
+//   GET    /api/trains?from=&to=                    train search, matching any stops in order
+//   GET    /api/trains/{number}/availability?date=[&from=&to=]  seats left on a date
+//   GET    /api/quote?train=&date=&seatType=&seats=[&from=&to=] fare for a prospective booking
+//   GET    /api/journeys?from=&to=&date=[&time=HH:mm]  journeys with changes, see JourneyPlanner
+//   POST   /api/bookings                            book (JSON body, see handleBookings())
+//   DELETE /api/bookings/{pnr}?userId=              cancel
+//   GET    /api/pnr/{pnr}                           PNR status
+//   POST   /api/payments/{pnr}                      signed gateway result for a PENDING booking
+//   GET    /api/stats                               request throughput
+//   GET    /metrics                                 engine metrics, Prometheus text format
+//
+// Each request runs on its own virtual thread when the JVM has them and on a
+// cached pool otherwise. Idle keep-alive connections are parked in the
+// server's selector and hold no thread either way.
+// Usage: java BookingHttpServer [port]
+public class BookingHttpServer {
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BookingService service;
+    // Shared with the payment gateway to sign its callbacks; null disables them
+    private final byte[] paymentSecret;
+
+    private final long startedNanos = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder bookings = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+    // Requests per second over the last minute, one slot per second tagged
+    // with its epoch second as [second : 32 bits][count : 32 bits]
+    private final AtomicLongArray perSecond = new AtomicLongArray(RATE_WINDOW_SECONDS);
+
+    public BookingHttpServer(int port, BookingService service) throws IOException {
+        // The JDK server closes idle keep-alive connections beyond this cap (200 by default)
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "50000");
+        }
+        this.service = service;
+        String secret = System.getProperty("railway.payment.secret");
+        this.paymentSecret = secret != null && !secret.isEmpty() ? secret.getBytes(StandardCharsets.UTF_8) : null;
+        // Local only: the API does not authenticate its callers
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/trains", counted(this::handleTrains));
+        server.createContext("/api/quote", counted(this::handleQuote));
+        server.createContext("/api/journeys", counted(this::handleJourneys));
+        server.createContext("/api/bookings", counted(this::handleBookings));
+        server.createContext("/api/pnr", counted(this::handlePnrStatus));
+        server.createContext("/api/payments", counted(this::handlePayment));
+        server.createContext("/api/stats", this::handleStats);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("railway.http.port", 8080);
+        BookingHttpServer httpServer = new BookingHttpServer(port, BookingService.getInstance());
+        httpServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(httpServer::stop));
+        Log.info("Booking API listening on {}:{}", InetAddress.getLoopbackAddress().getHostAddress(), port);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private static ExecutorService newRequestExecutor() {
+        if (!VirtualThreads.isAvailable()) {
+            Log.info("Virtual threads unavailable, serving requests from a cached thread pool");
+        }
+        return VirtualThreads.newPerTaskExecutor();
+    }
+
+    private void handleTrains(HttpExchange exchange) throws IOException, BookingException {
+        requireMethod(exchange, "GET");
+        String[] path = pathAfter(exchange, "/api/trains");
+        Map<String, String> query = queryParameters(exchange);
+        if (path.length == 0) {
+            Json json = new Json().beginObject().beginArray("trains");
+            for (Train train : service.searchTrains(query.get("from"), query.get("to"))) {
+                writeTrain(json.beginObject(), train).endObject();
+            }
+            send(exchange, 200, json.endArray().endObject().toString());
+        } else if (path.length == 2 && path[1].equals("availability")) {
+            BookingService.Availability availability = service.getAvailability(path[0], parseDate(query.get("date")),
+                query.get("from"), query.get("to"));
+            send(exchange, 200, new Json().beginObject()
+                .field("trainNumber", availability.trainNumber)
+                .field("journeyDate", availability.journeyDate.toString())
+                .field("acSeats", availability.acSeats)
+                .field("nonAcSeats", availability.nonAcSeats)
+                .field("totalSeats", availability.getTotal())
+                .endObject().toString());
+        } else {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Unknown path " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void handleQuote(HttpExchange exchange) throws IOException, BookingException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = queryParameters(exchange);
+        FareQuote quote = service.quote(query.get("train"), parseDate(query.get("date")),
+            query.get("seatType"), parseInt(query.get("seats"), "seats"), query.get("from"), query.get("to"));
+        send(exchange, 200, new Json().beginObject()
+            .field("trainNumber", quote.getTrainNumber())
+            .field("seatType", quote.getSeatType())
+            .field("seats", quote.getNumberOfSeats())
+            .field("bookingClass", quote.getBookingClass())
+            .field("baseFare", quote.getBaseFare())
+            .field("tax", quote.getTax())
+            .field("totalFare", quote.getTotalFare())
+            .endObject().toString());
+    }
+
+    // The fastest journey and the one with the fewest changes; either is
+    // left out when nothing gets there within the search window
+    private void handleJourneys(HttpExchange exchange) throws IOException, BookingException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = queryParameters(exchange);
+        LocalTime time;
+        try {
+            time = query.get("time") != null ? LocalTime.parse(query.get("time")) : LocalTime.MIDNIGHT;
+        } catch (DateTimeParseException e) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Times must be HH:mm");
+        }
+        JourneyPlanner.Plan plan = service.planJourney(query.get("from"), query.get("to"),
+            parseDate(query.get("date")), time);
+        Json json = new Json().beginObject();
+        if (plan.earliestArrival != null) {
+            writeJourney(json.beginObject("earliestArrival"), plan.earliestArrival).endObject();
+        }
+        if (plan.fewestTransfers != null) {
+            writeJourney(json.beginObject("fewestTransfers"), plan.fewestTransfers).endObject();
+        }
+        send(exchange, 200, json.endObject().toString());
+    }
+
+    // POST body: {"userId", "trainNumber", "journeyDate": "yyyy-MM-dd", "seatType": "AC"|"Non-AC",
+    //             "seats", "passengerName", "phone", "email", "paymentMethod"}, and optionally
+    // "from" and "to" stations for part of the route, or "waitlist": "true" to
+    // join the waitlist when the class is full
+    private void handleBookings(HttpExchange exchange) throws IOException, BookingException {
+        String[] path = pathAfter(exchange, "/api/bookings");
+        String method = exchange.getRequestMethod();
+        if (path.length == 0 && method.equals("POST")) {
+            Map<String, String> body = readJsonBody(exchange);
+            BookingRequest request = new BookingRequest(body.get("userId"), body.get("trainNumber"),
+                parseDate(body.get("journeyDate")), body.get("seatType"), parseInt(body.get("seats"), "seats"),
+                body.get("passengerName"), body.get("phone"), body.get("email"), body.get("paymentMethod"),
+                body.get("from"), body.get("to"));
+            Ticket ticket;
+            try {
+                ticket = service.book(request);
+            } catch (BookingException e) {
+                if (e.getError() != BookingError.SEATS_UNAVAILABLE || !"true".equals(body.get("waitlist"))) {
+                    throw e;
+                }
+                ticket = service.joinWaitlist(request);
+            }
+            bookings.increment();
+            send(exchange, 201, writeTicket(new Json().beginObject(), ticket).endObject().toString());
+        } else if (path.length == 1 && method.equals("DELETE")) {
+            String userId = queryParameters(exchange).get("userId");
+            if (userId == null || userId.isEmpty()) {
+                throw new BookingException(BookingError.INVALID_REQUEST, "userId is required");
+            }
+            Ticket ticket = service.cancel(userId, path[0]);
+            cancellations.increment();
+            send(exchange, 200, writeTicket(new Json().beginObject(), ticket).endObject().toString());
+        } else {
+            throw new BookingException(BookingError.INVALID_REQUEST,
+                "Unsupported " + method + " " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    // Public PNR enquiry: journey and status only, no passenger contact details
+    private void handlePnrStatus(HttpExchange exchange) throws IOException, BookingException {
+        requireMethod(exchange, "GET");
+        String[] path = pathAfter(exchange, "/api/pnr");
+        if (path.length != 1) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Expected /api/pnr/{pnr}");
+        }
+        Ticket ticket = service.getTicket(null, path[0]);
+        Json json = new Json().beginObject()
+            .field("pnr", ticket.getPnr())
+            .field("status", ticket.getStatus())
+            .field("trainNumber", ticket.getTrain().getTrainNumber())
+            .field("journeyDate", ticket.getJourneyDate().toLocalDate().toString())
+            .field("seatType", ticket.getSeatType())
+            .field("seats", ticket.getNumberOfSeats())
+            .field("coach", ticket.getCoachNumber())
+            .field("berths", ticket.getSeatNumbersAsString());
+        String waitlist = service.getWaitlistStatus(ticket);
+        if (waitlist != null) {
+            json.field("waitlist", waitlist);
+        }
+        send(exchange, 200, json.endObject().toString());
+    }
+
+    // Payment gateway callback. POST body: {"result": "APPROVED"|"DECLINED"},
+    // with header X-Payment-Signature: the hex HMAC-SHA256 of "pnr|result"
+    // under the secret shared with the gateway (-Drailway.payment.secret).
+    // Without a configured secret every callback is refused. Accepted now,
+    // applied by the next pending-payment sweep.
+    private void handlePayment(HttpExchange exchange) throws IOException, BookingException {
+        requireMethod(exchange, "POST");
+        String[] path = pathAfter(exchange, "/api/payments");
+        if (path.length != 1) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Expected /api/payments/{pnr}");
+        }
+        String result = readJsonBody(exchange).get("result");
+        if (!"APPROVED".equals(result) && !"DECLINED".equals(result)) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "result must be APPROVED or DECLINED");
+        }
+        if (paymentSecret == null) {
+            throw new BookingException(BookingError.NOT_AUTHORIZED, "Payment callbacks are not configured");
+        }
+        String signature = exchange.getRequestHeaders().getFirst("X-Payment-Signature");
+        if (signature == null || !MessageDigest.isEqual(sign(path[0] + "|" + result).getBytes(StandardCharsets.US_ASCII),
+                signature.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII))) {
+            throw new BookingException(BookingError.NOT_AUTHORIZED, "Bad or missing payment signature");
+        }
+        service.settlePayment(path[0], result.equals("APPROVED"));
+        send(exchange, 202, new Json().beginObject()
+            .field("pnr", path[0])
+            .field("result", result)
+            .endObject().toString());
+    }
+
+    // Hex HMAC-SHA256 of message under the payment gateway's secret
+    private String sign(String message) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(paymentSecret, "HmacSHA256"));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : mac.doFinal(message.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is unavailable", e);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        double uptimeSeconds = (System.nanoTime() - startedNanos) / 1e9;
+        long total = requests.sum();
+        send(exchange, 200, new Json().beginObject()
+            .field("uptimeSeconds", (long) uptimeSeconds)
+            .field("requests", total)
+            .field("errors", errors.sum())
+            .field("inFlight", inFlight.sum())
+            .field("bookings", bookings.sum())
+            .field("cancellations", cancellations.sum())
+            .field("averageRequestsPerSecond", uptimeSeconds > 0 ? total / uptimeSeconds : 0)
+            .field("lastMinuteRequestsPerSecond", recentRate())
+            .endObject().toString());
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        byte[] bytes = Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private interface ApiHandler {
+        void handle(HttpExchange exchange) throws IOException, BookingException;
+    }
+
+    // Wraps a handler with request counting and maps failures to status codes
+    private HttpHandler counted(ApiHandler handler) {
+        return exchange -> {
+            inFlight.increment();
+            try {
+                handler.handle(exchange);
+            } catch (BookingException e) {
+                errors.increment();
+                send(exchange, statusFor(e.getError()), Json.error(e.getError().name(), e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                errors.increment();
+                send(exchange, 400, Json.error(BookingError.INVALID_REQUEST.name(), e.getMessage()));
+            } catch (RuntimeException e) {
+                errors.increment();
+                Log.error("Error handling {}", exchange.getRequestURI(), e);
+                send(exchange, 500, Json.error("INTERNAL_ERROR", "Internal server error"));
+            } finally {
+                inFlight.decrement();
+                requests.increment();
+                recordSecond();
+                exchange.close();
+            }
+        };
+    }
+
+    private static int statusFor(BookingError error) {
+        switch (error) {
+            case TRAIN_NOT_FOUND:
+            case TICKET_NOT_FOUND: return 404;
+            case NOT_AUTHORIZED: return 403;
+            case SEATS_UNAVAILABLE:
+            case WAITLIST_FULL:
+            case NOT_CANCELLABLE: return 409;
+            case PERSISTENCE_FAILED: return 503;
+            default: return 400;
+        }
+    }
+
+    private void recordSecond() {
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % RATE_WINDOW_SECONDS);
+        while (true) {
+            long current = perSecond.get(index);
+            long count = (current >>> 32) == second ? (current & 0xFFFFFFFFL) : 0;
+            if (perSecond.compareAndSet(index, current, (second << 32) | (count + 1))) {
+                return;
+            }
+        }
+    }
+
+    // Average over the last full minute, excluding the second in progress
+    private double recentRate() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            long slot = perSecond.get(i);
+            long second = slot >>> 32;
+            if (second < now && second >= now - RATE_WINDOW_SECONDS) {
+                total += slot & 0xFFFFFFFFL;
+            }
+        }
+        return total / (double) RATE_WINDOW_SECONDS;
+    }
+
+    private static Json writeTrain(Json json, Train train) {
+        return json
+            .field("trainNumber", train.getTrainNumber())
+            .field("trainName", train.getTrainName())
+            .field("source", train.getSource())
+            .field("destination", train.getDestination())
+            .field("stops", Train.formatStops(train.getIntermediateStops()))
+            .field("departure", train.getDepartureTime().toLocalTime().toString())
+            .field("arrival", train.getArrivalTime().toLocalTime().toString())
+            .field("totalSeats", train.getTotalSeats())
+            .field("acSeats", train.getAcSeats())
+            .field("baseFare", train.getBaseFare())
+            .field("acFare", train.getAcFare());
+    }
+
+    private static Json writeJourney(Json json, JourneyPlanner.Journey journey) {
+        json.field("departure", journey.getDeparture().toString())
+            .field("arrival", journey.getArrival().toString())
+            .field("transfers", journey.getTransfers())
+            .beginArray("legs");
+        for (JourneyPlanner.Leg leg : journey.getLegs()) {
+            json.beginObject()
+                .field("trainNumber", leg.getTrain().getTrainNumber())
+                .field("from", leg.getFromStation())
+                .field("to", leg.getToStation())
+                .field("departure", leg.getDeparture().toString())
+                .field("arrival", leg.getArrival().toString())
+                .field("journeyDate", leg.getJourneyDate().toString())
+                .endObject();
+        }
+        return json.endArray();
+    }
+
+    private static Json writeTicket(Json json, Ticket ticket) {
+        return json
+            .field("pnr", ticket.getPnr())
+            .field("status", ticket.getStatus())
+            .field("userId", ticket.getUserId())
+            .field("trainNumber", ticket.getTrain().getTrainNumber())
+            .field("journeyDate", ticket.getJourneyDate().toLocalDate().toString())
+            .field("from", ticket.getFromStation())
+            .field("to", ticket.getToStation())
+            .field("seatType", ticket.getSeatType())
+            .field("seats", ticket.getNumberOfSeats())
+            .field("coach", ticket.getCoachNumber())
+            .field("berths", ticket.getSeatNumbersAsString())
+            .field("passengerName", ticket.getPassengerName())
+            .field("paymentMethod", ticket.getPaymentMethod())
+            .field("totalFare", ticket.getTotalFare())
+            // False if the change stands but its journal write failed; clients must not retry it
+            .field("saved", ticket.isSaved());
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) throws BookingException {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new BookingException(BookingError.INVALID_REQUEST,
+                "Unsupported " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private static String[] pathAfter(HttpExchange exchange, String prefix) {
+        String rest = exchange.getRequestURI().getPath().substring(prefix.length());
+        while (rest.startsWith("/")) rest = rest.substring(1);
+        while (rest.endsWith("/")) rest = rest.substring(0, rest.length() - 1);
+        return rest.isEmpty() ? new String[0] : rest.split("/");
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                                   URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static Map<String, String> readJsonBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static LocalDate parseDate(String value) throws BookingException {
+        try {
+            return value != null ? LocalDate.parse(value) : null;
+        } catch (DateTimeParseException e) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Dates must be yyyy-MM-dd");
+        }
+    }
+
+    private static int parseInt(String value, String name) throws BookingException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BookingException(BookingError.INVALID_REQUEST, name + " must be a whole number");
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log of booking mutations. Each booking, cancellation
+// and status change is one line, so a mutation costs O(1) of I/O regardless of
+// how many tickets are stored. The journal is split into numbered segments; a
+// snapshot rolls to a new segment, and startup replays only the segments from
+// the one the newest snapshot was taken at.
+//
+// Records are handed to a single writer thread which group-commits everything
+// queued by concurrent callers with one write and one FileChannel.force.
+//
+// Each line is "crc type|payload": the CRC-32 of "type|payload" as eight hex
+// digits, then a space. Replay applies only newline-terminated lines whose
+// checksum matches.
+public class BookingJournal {
+    public static final String BOOK = "B";
+    public static final String STATUS = "S";
+    public static final String SEATS = "T";
+    public static final String TRAIN = "R";
+    public static final String DELETE_TRAIN = "D";
+    public static final String USER = "U";
+
+    public enum Durability {
+        PER_OP,      // every record is written and forced on its own
+        BATCHED,     // records arriving within the batch window share one force
+        OS_BUFFERED  // written to the OS page cache, never forced
+    }
+
+    private static final int MAX_BATCH_RECORDS = 4096;
+    private static final String SEGMENT_PREFIX = "bookings-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final File directory;
+    private volatile long currentSegment;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Object ioLock = new Object();
+    private volatile Durability durability;
+    private volatile long batchWindowMillis;
+    private volatile boolean running = true;
+    private FileChannel channel;
+    // Length to cut the current segment back to before the next append,
+    // after a failed write that could not be removed at once; -1 if none
+    private long intactLength = -1;
+    private Thread writerThread;
+    private int recordCount;
+
+    public BookingJournal(String directory, Durability durability, long batchWindowMillis) {
+        this.directory = new File(directory);
+        this.durability = durability;
+        this.batchWindowMillis = batchWindowMillis;
+        List<Long> segments = listSegments();
+        this.currentSegment = Math.max(1, segments.isEmpty() ? 0 : segments.get(segments.size() - 1));
+    }
+
+    private static final class PendingRecord {
+        final byte[] bytes;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        PendingRecord(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    // Queues the records as one unit and returns a future that completes once
+    // they are durable according to the current durability mode.
+    public CompletableFuture<Void> append(String type, String payload) {
+        return appendAll(List.<String[]>of(new String[] { type, payload }));
+    }
+
+    public CompletableFuture<Void> appendAll(List<String[]> records) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (String[] record : records) {
+            byte[] line = (record[0] + '|' + record[1]).getBytes(StandardCharsets.UTF_8);
+            bytes.writeBytes(checksum(line, 0, line.length).getBytes(StandardCharsets.US_ASCII));
+            bytes.write(' ');
+            bytes.writeBytes(line);
+            bytes.write('\n');
+        }
+        PendingRecord pending = new PendingRecord(bytes.toByteArray());
+        synchronized (this) {
+            if (!running) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            ensureWriterStarted();
+            recordCount += records.size();
+        }
+        queue.add(pending);
+        return pending.durable;
+    }
+
+    // Blocks the caller until its records are durable, unwrapping write failures.
+    public static void await(CompletableFuture<Void> commit) throws IOException {
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void ensureWriterStarted() {
+        if (writerThread == null) {
+            writerThread = new Thread(this::runWriter, "booking-journal-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    private void runWriter() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                Durability mode = durability;
+                if (mode == Durability.BATCHED) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+                    while (batch.size() < MAX_BATCH_RECORDS) {
+                        long remaining = deadline - System.nanoTime();
+                        PendingRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) break;
+                        batch.add(next);
+                    }
+                } else if (mode == Durability.OS_BUFFERED) {
+                    queue.drainTo(batch, MAX_BATCH_RECORDS - 1);
+                }
+
+                commitBatch(batch, mode);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<PendingRecord> batch, Durability mode) {
+        long started = System.nanoTime();
+        RailwayEvents.JournalFlush event = new RailwayEvents.JournalFlush();
+        event.begin();
+        int size = 0;
+        try {
+            synchronized (ioLock) {
+                FileChannel out = openChannel();
+                for (PendingRecord record : batch) {
+                    size += record.bytes.length;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+                for (PendingRecord record : batch) {
+                    buffer.put(record.bytes);
+                }
+                buffer.flip();
+                long length = out.size();
+                try {
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    if (mode != Durability.OS_BUFFERED) {
+                        out.force(false);
+                    }
+                } catch (IOException e) {
+                    cutOff(out, length);
+                    throw e;
+                }
+                Metrics.JOURNAL_BYTES.add(size);
+            }
+            Metrics.JOURNAL_FLUSH.recordSince(started);
+            commitFlushEvent(event, batch.size(), size, mode, true);
+            for (PendingRecord record : batch) {
+                record.durable.complete(null);
+            }
+        } catch (IOException e) {
+            commitFlushEvent(event, batch.size(), size, mode, false);
+            for (PendingRecord record : batch) {
+                record.durable.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void commitFlushEvent(RailwayEvents.JournalFlush event, int records, long bytes,
+                                         Durability mode, boolean succeeded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.records = records;
+            event.bytesWritten = bytes;
+            event.durability = mode.name();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    // Opens the current segment for appending, first cutting off a failed
+    // batch that cutOff could not remove; if that fails again, nothing is
+    // appended and the caller's batch fails too.
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            FileChannel opened = FileChannel.open(segmentFile(currentSegment).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (intactLength >= 0) {
+                try {
+                    opened.truncate(intactLength);
+                    opened.force(false);
+                } catch (IOException e) {
+                    opened.close();
+                    throw e;
+                }
+                intactLength = -1;
+            }
+            channel = opened;
+        }
+        return channel;
+    }
+
+    // Removes whatever part of a failed batch reached the segment, so the
+    // next batch starts on a fresh line instead of being glued onto a torn
+    // one. If the segment cannot be cut back now, it is closed and
+    // openChannel retries before anything else is appended.
+    private void cutOff(FileChannel out, long length) {
+        try {
+            out.truncate(length);
+        } catch (IOException e) {
+            Log.error("Could not cut a failed journal write off {}", segmentFile(currentSegment).getName(), e);
+            intactLength = length;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // already failing
+            }
+            channel = null;
+        }
+    }
+
+    // Replays every intact record of the segments numbered fromSegment and up,
+    // in order. A last line with no newline was torn by a crash mid-write: it
+    // is dropped and cut off the file, so later appends start on a fresh
+    // line. Lines failing their checksum are skipped with a warning.
+    public synchronized int replay(long fromSegment, Consumer<String[]> consumer) throws IOException {
+        int replayed = 0;
+        for (long segment : listSegments()) {
+            if (segment < fromSegment) continue;
+            File file = segmentFile(segment);
+            long intact = 0;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+                int b;
+                while ((b = in.read()) >= 0) {
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    intact += line.size() + 1;
+                    String[] record = parseRecord(line.toByteArray());
+                    line.reset();
+                    if (record == null) continue;
+                    consumer.accept(record);
+                    replayed++;
+                }
+            }
+            if (intact < file.length()) {
+                Log.warn("Dropping {} bytes of torn record at the end of {}", file.length() - intact, file.getName());
+                try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    out.truncate(intact);
+                    out.force(true);
+                }
+            }
+        }
+        recordCount = replayed;
+        return replayed;
+    }
+
+    // Splits a line into type and payload, or null if it is blank, has no
+    // checksum or fails it
+    private static String[] parseRecord(byte[] line) {
+        if (line.length == 0) return null;
+        if (line.length < 10 || line[8] != ' '
+                || !new String(line, 0, 8, StandardCharsets.US_ASCII).equals(checksum(line, 9, line.length - 9))) {
+            Log.warn("Skipping journal record with a missing or bad checksum: {}",
+                new String(line, StandardCharsets.UTF_8));
+            return null;
+        }
+        String text = new String(line, 9, line.length - 9, StandardCharsets.UTF_8);
+        int separator = text.indexOf('|');
+        if (separator < 0) return null;
+        return new String[] { text.substring(0, separator), text.substring(separator + 1) };
+    }
+
+    private static String checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        String hex = Long.toHexString(crc.getValue());
+        return "00000000".substring(hex.length()) + hex;
+    }
+
+    // Starts a new segment and returns its number. Everything appended before
+    // the call lands in older segments; the caller must make sure nothing is
+    // appended concurrently.
+    public long rollSegment() throws IOException {
+        sync();
+        synchronized (ioLock) {
+            if (channel == null && intactLength >= 0) {
+                // Repair the old segment before leaving it
+                openChannel();
+            }
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+            currentSegment++;
+            // Create the file right away so a restart continues from this number
+            openChannel();
+        }
+        synchronized (this) {
+            recordCount = 0;
+        }
+        return currentSegment;
+    }
+
+    // Compaction: drops segments already folded into a snapshot
+    public void deleteSegmentsBefore(long segment) {
+        for (long existing : listSegments()) {
+            if (existing < segment) {
+                segmentFile(existing).delete();
+            }
+        }
+    }
+
+    private File segmentFile(long segment) {
+        return new File(directory, String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() {
+        List<Long> segments = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    // Waits until everything queued so far has been written out.
+    public void sync() throws IOException {
+        await(appendAll(List.of()));
+    }
+
+    // The segment appends go to. Only rollSegment changes it, and its caller
+    // keeps appends out while it does.
+    public long getCurrentSegment() {
+        return currentSegment;
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(Durability durability, long batchWindowMillis) {
+        this.durability = durability;
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    // Drains the queue, forces whatever is buffered and stops the writer thread.
+    public void close() throws IOException {
+        Thread writer;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            writer = writerThread;
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (ioLock) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
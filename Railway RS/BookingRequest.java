@@ -0,0 +1,52 @@
+import java.time.LocalDate;
+
+// Everything needed to book seats on one train for one journey date. The
+// stations are null for the train's whole run.
+public class BookingRequest {
+    private final String userId;
+    private final String trainNumber;
+    private final LocalDate journeyDate;
+    private final String seatType;
+    private final int numberOfSeats;
+    private final String passengerName;
+    private final String phoneNumber;
+    private final String email;
+    private final String paymentMethod;
+    private final String fromStation;
+    private final String toStation;
+
+    public BookingRequest(String userId, String trainNumber, LocalDate journeyDate, String seatType,
+                          int numberOfSeats, String passengerName, String phoneNumber, String email,
+                          String paymentMethod) {
+        this(userId, trainNumber, journeyDate, seatType, numberOfSeats, passengerName, phoneNumber, email,
+             paymentMethod, null, null);
+    }
+
+    public BookingRequest(String userId, String trainNumber, LocalDate journeyDate, String seatType,
+                          int numberOfSeats, String passengerName, String phoneNumber, String email,
+                          String paymentMethod, String fromStation, String toStation) {
+        this.userId = userId;
+        this.trainNumber = trainNumber;
+        this.journeyDate = journeyDate;
+        this.seatType = seatType;
+        this.numberOfSeats = numberOfSeats;
+        this.passengerName = passengerName;
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.paymentMethod = paymentMethod;
+        this.fromStation = fromStation;
+        this.toStation = toStation;
+    }
+
+    public String getUserId() { return userId; }
+    public String getTrainNumber() { return trainNumber; }
+    public LocalDate getJourneyDate() { return journeyDate; }
+    public String getSeatType() { return seatType; }
+    public int getNumberOfSeats() { return numberOfSeats; }
+    public String getPassengerName() { return passengerName; }
+    public String getPhoneNumber() { return phoneNumber; }
+    public String getEmail() { return email; }
+    public String getPaymentMethod() { return paymentMethod; }
+    public String getFromStation() { return fromStation; }
+    public String getToStation() { return toStation; }
+}
@@ -0,0 +1,445 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Swing-free entry point for booking, cancelling, pricing and looking up
+// tickets. Every refusal is a BookingException carrying a BookingError, so
+// the GUI, load generators and servers all drive the engine the same way.
+public class BookingService {
+    private static BookingService instance;
+
+    private final DatabaseManager database;
+
+    private BookingService(DatabaseManager database) {
+        this.database = database;
+    }
+
+    public static synchronized BookingService getInstance() {
+        if (instance == null) {
+            instance = new BookingService(DatabaseManager.getInstance());
+        }
+        return instance;
+    }
+
+    // Seats left in each class of one train on one journey date
+    public static class Availability {
+        public final String trainNumber;
+        public final LocalDate journeyDate;
+        public final int acSeats;
+        public final int nonAcSeats;
+
+        Availability(String trainNumber, LocalDate journeyDate, int acSeats, int nonAcSeats) {
+            this.trainNumber = trainNumber;
+            this.journeyDate = journeyDate;
+            this.acSeats = acSeats;
+            this.nonAcSeats = nonAcSeats;
+        }
+
+        public int getTotal() {
+            return acSeats + nonAcSeats;
+        }
+    }
+
+    // Reserves seats, allocates berths and stores the ticket. Credit card
+    // bookings come back PENDING, everything else CONFIRMED. A booking whose
+    // journal write failed is still made, with Ticket.isSaved() false, so
+    // callers must not retry it.
+    public Ticket book(BookingRequest request) throws BookingException {
+        long started = System.nanoTime();
+        boolean booked = false;
+        try {
+            Ticket ticket = placeBooking(request);
+            booked = true;
+            return ticket;
+        } finally {
+            Metrics.BOOKING.recordSince(started);
+            (booked ? Metrics.BOOKINGS : Metrics.BOOKING_FAILURES).increment();
+        }
+    }
+
+    // Sets seats aside for a request while the buyer pays. They go back on
+    // sale if the hold is released or expires; book(hold, request) turns it
+    // into a ticket.
+    public SeatHold hold(BookingRequest request) throws BookingException {
+        validate(request);
+        Train train = findTrain(request.getTrainNumber());
+        if (resolveLeg(train, request.getFromStation(), request.getToStation()) != null) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Seats can only be held for the whole run");
+        }
+        return SeatHoldManager.getInstance().hold(request.getUserId(), train, request.getJourneyDate(),
+            request.getSeatType(), request.getNumberOfSeats());
+    }
+
+    // Books the seats of an active hold. Refused with HOLD_EXPIRED once the
+    // hold has lapsed or been released.
+    public Ticket book(SeatHold hold, BookingRequest request) throws BookingException {
+        long started = System.nanoTime();
+        boolean booked = false;
+        try {
+            Ticket ticket = placeHeldBooking(hold, request);
+            booked = true;
+            return ticket;
+        } finally {
+            Metrics.BOOKING.recordSince(started);
+            (booked ? Metrics.BOOKINGS : Metrics.BOOKING_FAILURES).increment();
+        }
+    }
+
+    // Returns a hold's seats at once; does nothing if it has already ended
+    public void releaseHold(SeatHold hold) {
+        SeatHoldManager.getInstance().release(hold);
+    }
+
+    private Ticket placeBooking(BookingRequest request) throws BookingException {
+        validateForBooking(request);
+        Train train = findTrain(request.getTrainNumber());
+        String[] leg = resolveLeg(train, request.getFromStation(), request.getToStation());
+        if (leg != null) {
+            if (!train.reserveRoute(request.getJourneyDate(), request.getSeatType(), leg[0], leg[1],
+                    request.getNumberOfSeats())) {
+                throw new BookingException(BookingError.SEATS_UNAVAILABLE,
+                    "Not enough " + request.getSeatType() + " seats available from " + leg[0] + " to " + leg[1]);
+            }
+            return issueTicket(train, request, leg);
+        }
+        if (!train.bookSeats(request.getJourneyDate(), request.getNumberOfSeats(), request.getSeatType())) {
+            throw new BookingException(BookingError.SEATS_UNAVAILABLE,
+                "Not enough " + request.getSeatType() + " seats available");
+        }
+        return issueTicket(train, request, null);
+    }
+
+    private Ticket placeHeldBooking(SeatHold hold, BookingRequest request) throws BookingException {
+        validateForBooking(request);
+        if (!hold.getUserId().equals(request.getUserId())) {
+            throw new BookingException(BookingError.NOT_AUTHORIZED, "This seat hold belongs to another user");
+        }
+        if (!hold.getTrain().getTrainNumber().equals(request.getTrainNumber().trim())
+                || !hold.getJourneyDate().equals(request.getJourneyDate())
+                || !hold.getSeatType().equals(request.getSeatType())
+                || hold.getNumberOfSeats() != request.getNumberOfSeats()
+                || resolveLeg(hold.getTrain(), request.getFromStation(), request.getToStation()) != null) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Booking does not match the seats held");
+        }
+        if (!SeatHoldManager.getInstance().claim(hold)) {
+            throw new BookingException(BookingError.HOLD_EXPIRED,
+                "Your seat hold has expired and the seats were released; please book again");
+        }
+        return issueTicket(hold.getTrain(), request, null);
+    }
+
+    // Allocates berths and stores the ticket for seats already reserved on
+    // the train, giving the seats back if that fails. leg is the from and to
+    // station of a part-route booking, null for the whole run.
+    private Ticket issueTicket(Train train, BookingRequest request, String[] leg) throws BookingException {
+        LocalDate date = request.getJourneyDate();
+        int seats = request.getNumberOfSeats();
+        String seatType = request.getSeatType();
+        Ticket ticket;
+        try {
+            ticket = new Ticket(request.getUserId(), train, seats, seatType,
+                request.getPassengerName().trim(), request.getPhoneNumber().trim(),
+                request.getEmail() != null ? request.getEmail().trim() : "",
+                departureOn(train, date), leg != null ? leg[0] : null, leg != null ? leg[1] : null);
+        } catch (RuntimeException e) {
+            returnSeats(train, date, seatType, seats, leg);
+            throw new BookingException(BookingError.SEATS_UNAVAILABLE, e.getMessage(), e);
+        }
+        ticket.setPaymentDetails(request.getPaymentMethod(), "TXN" + System.currentTimeMillis());
+
+        try {
+            database.addTicket(ticket);
+        } catch (IllegalStateException e) {
+            // Never stored, so hand the berths and seats back
+            if (leg != null) {
+                train.freeRouteSeats(date, seatType, leg[0], leg[1], ticket.getCoachNumber(), ticket.getSeatNumbers());
+            } else {
+                train.freeSeats(date, seatType, ticket.getCoachNumber(), ticket.getSeatNumbers());
+            }
+            returnSeats(train, date, seatType, seats, leg);
+            throw new BookingException(BookingError.PERSISTENCE_FAILED, e.getMessage(), e);
+        }
+        // Booked even if the journal write failed; see Ticket.isSaved()
+        return ticket;
+    }
+
+    private static void returnSeats(Train train, LocalDate date, String seatType, int seats, String[] leg) {
+        int wholeRun = leg != null ? train.releaseRoute(date, seatType, leg[0], leg[1], seats) : seats;
+        if (wholeRun > 0) {
+            train.cancelSeats(date, wholeRun, seatType);
+        }
+    }
+
+    // The from and to station of a part-route request as the train names
+    // them, or null if the request is for the whole run. A blank station
+    // stands for that end of the route.
+    private static String[] resolveLeg(Train train, String from, String to) throws BookingException {
+        boolean noFrom = isBlank(from);
+        boolean noTo = isBlank(to);
+        if ((noFrom && noTo) || train.isWholeRun(noFrom ? null : from, noTo ? null : to)) {
+            return null;
+        }
+        List<Train.Stop> route = train.getRoute();
+        int fromIndex = noFrom ? 0 : train.stopIndex(from);
+        int toIndex = noTo ? route.size() - 1 : train.stopIndex(to);
+        if (fromIndex < 0 || toIndex < 0 || fromIndex >= toIndex) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Train " + train.getTrainNumber()
+                + " does not run from " + (noFrom ? train.getSource() : from.trim())
+                + " to " + (noTo ? train.getDestination() : to.trim()));
+        }
+        return new String[] { route.get(fromIndex).getStation(), route.get(toIndex).getStation() };
+    }
+
+    // Puts a booking for a full class on its waitlist. The fare is charged
+    // now; the ticket holds no berths until cancellations free enough seats,
+    // and is then confirmed in its turn. If seats have come free meanwhile and
+    // nobody is waiting, it is confirmed at once.
+    public Ticket joinWaitlist(BookingRequest request) throws BookingException {
+        validateForBooking(request);
+        Train train = findTrain(request.getTrainNumber());
+        if (resolveLeg(train, request.getFromStation(), request.getToStation()) != null) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Only whole-run bookings can be waitlisted");
+        }
+        int capacity = "AC".equals(request.getSeatType())
+            ? train.getAcSeats() : train.getTotalSeats() - train.getAcSeats();
+        if (request.getNumberOfSeats() > capacity) {
+            throw new BookingException(BookingError.INVALID_REQUEST,
+                "This train has only " + capacity + " " + request.getSeatType() + " seats");
+        }
+        Ticket ticket = Ticket.waitlisted(request.getUserId(), train, request.getNumberOfSeats(),
+            request.getSeatType(), request.getPassengerName().trim(), request.getPhoneNumber().trim(),
+            request.getEmail() != null ? request.getEmail().trim() : "",
+            departureOn(train, request.getJourneyDate()), request.getPaymentMethod(),
+            "TXN" + System.currentTimeMillis());
+        int position;
+        try {
+            position = database.joinWaitlist(ticket);
+        } catch (IllegalStateException e) {
+            throw new BookingException(BookingError.PERSISTENCE_FAILED, e.getMessage(), e);
+        }
+        if (position < 0) {
+            throw new BookingException(BookingError.WAITLIST_FULL,
+                "The waitlist for " + request.getSeatType() + " on this date is full");
+        }
+        return ticket;
+    }
+
+    // "RAC 3" or "WL 12" for a waitlisted ticket, null for any other
+    public String getWaitlistStatus(Ticket ticket) {
+        int position = database.getWaitlistPosition(ticket.getPnr());
+        return position > 0 ? Waitlist.label(position) : null;
+    }
+
+    // Cancels a ticket. A null userId skips the ownership check (admin use).
+    // Like a booking, a cancellation stands even if its journal write fails.
+    public Ticket cancel(String userId, String pnr) throws BookingException {
+        long started = System.nanoTime();
+        try {
+            Ticket ticket = cancelTicket(userId, pnr);
+            Metrics.CANCELLATIONS.increment();
+            return ticket;
+        } finally {
+            Metrics.CANCELLATION.recordSince(started);
+        }
+    }
+
+    private Ticket cancelTicket(String userId, String pnr) throws BookingException {
+        Ticket ticket = getTicket(userId, pnr);
+        try {
+            return database.cancelTicket(ticket.getPnr());
+        } catch (IllegalStateException e) {
+            throw new BookingException(BookingError.NOT_CANCELLABLE, "Cannot cancel ticket: " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new BookingException(BookingError.TICKET_NOT_FOUND, e.getMessage(), e);
+        }
+    }
+
+    // Records the payment gateway's result for a PENDING booking. The ticket
+    // is confirmed or cancelled by the next pending-payment sweep.
+    public void settlePayment(String pnr, boolean approved) throws BookingException {
+        Ticket ticket = getTicket(null, pnr);
+        if (!"PENDING".equalsIgnoreCase(ticket.getStatus())) {
+            throw new BookingException(BookingError.INVALID_REQUEST,
+                "Ticket " + ticket.getPnr() + " is not awaiting payment");
+        }
+        database.getPendingPaymentSweeper().paymentSettled(ticket.getPnr(), approved);
+    }
+
+    // Prices a booking without reserving anything
+    public FareQuote quote(String trainNumber, LocalDate journeyDate, String seatType, int numberOfSeats)
+            throws BookingException {
+        return quote(trainNumber, journeyDate, seatType, numberOfSeats, null, null);
+    }
+
+    // As above for a leg between two stations; blank stations mean the ends of the route
+    public FareQuote quote(String trainNumber, LocalDate journeyDate, String seatType, int numberOfSeats,
+                           String fromStation, String toStation) throws BookingException {
+        validate(new BookingRequest("quote", trainNumber, journeyDate, seatType, numberOfSeats,
+            null, null, null, null));
+        Train train = findTrain(trainNumber);
+        String[] leg = resolveLeg(train, fromStation, toStation);
+        return Ticket.quote(train, numberOfSeats, seatType, departureOn(train, journeyDate),
+            leg != null ? leg[0] : null, leg != null ? leg[1] : null);
+    }
+
+    // Looks up a ticket. A null userId skips the ownership check (admin use).
+    public Ticket getTicket(String userId, String pnr) throws BookingException {
+        if (pnr == null || pnr.trim().isEmpty()) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Please enter a valid PNR number");
+        }
+        Ticket ticket = database.getTicket(pnr.trim());
+        if (ticket == null) {
+            throw new BookingException(BookingError.TICKET_NOT_FOUND, "Ticket with PNR " + pnr.trim() + " not found");
+        }
+        if (userId != null && !ticket.getUserId().equals(userId)) {
+            throw new BookingException(BookingError.NOT_AUTHORIZED, "You can only access your own tickets");
+        }
+        return ticket;
+    }
+
+    public List<Ticket> getUserTickets(String userId) {
+        return database.getUserTickets(userId);
+    }
+
+    public List<Ticket> getAllTickets() {
+        return database.getAllTickets();
+    }
+
+    // Consistent point-in-time view for long reads; see ReadView
+    public ReadView getReadView() {
+        return database.getReadView();
+    }
+
+    public int countTrainTickets(String trainNumber) {
+        return database.countTrainTickets(trainNumber);
+    }
+
+    public Availability getAvailability(String trainNumber, LocalDate journeyDate) throws BookingException {
+        if (journeyDate == null) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Journey date is required");
+        }
+        Train train = findTrain(trainNumber);
+        return new Availability(train.getTrainNumber(), journeyDate,
+            train.getAvailableAcSeats(journeyDate), train.getAvailableNonAcSeats(journeyDate));
+    }
+
+    // Seats free in each class on every segment between two stations
+    public Availability getAvailability(String trainNumber, LocalDate journeyDate, String fromStation,
+                                        String toStation) throws BookingException {
+        if (journeyDate == null) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Journey date is required");
+        }
+        Train train = findTrain(trainNumber);
+        String[] leg = resolveLeg(train, fromStation, toStation);
+        if (leg == null) {
+            return getAvailability(trainNumber, journeyDate);
+        }
+        return new Availability(train.getTrainNumber(), journeyDate,
+            train.getAvailableSeats(journeyDate, "AC", leg[0], leg[1]),
+            train.getAvailableSeats(journeyDate, "Non-AC", leg[0], leg[1]));
+    }
+
+    // Trains calling at both stations, in that order; a blank station
+    // matches the start or end of any route
+    public List<Train> searchTrains(String source, String destination) {
+        List<Train> matches = new ArrayList<>();
+        for (Train train : database.getAllTrains()) {
+            int from = isBlank(source) ? 0 : train.stopIndex(source);
+            int to = isBlank(destination) ? train.getIntermediateStops().size() + 1 : train.stopIndex(destination);
+            if (from >= 0 && to > from) {
+                matches.add(train);
+            }
+        }
+        return matches;
+    }
+
+    // Journeys between two stations leaving on a date no earlier than a
+    // time, changing trains where needed; see JourneyPlanner. Each leg can
+    // be booked as a part-route ticket for its journey date.
+    public JourneyPlanner.Plan planJourney(String from, String to, LocalDate date, LocalTime earliestDeparture)
+            throws BookingException {
+        if (isBlank(from) || isBlank(to)) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "From and to stations are required");
+        }
+        if (date == null || !SeatInventory.isWithinHorizon(date)) {
+            throw new BookingException(BookingError.INVALID_REQUEST,
+                "Journey date must be within the next " + SeatInventory.HORIZON_DAYS + " days");
+        }
+        try {
+            return database.getJourneyPlanner().plan(from, to, date,
+                earliestDeparture != null ? earliestDeparture : LocalTime.MIDNIGHT);
+        } catch (IllegalArgumentException e) {
+            throw new BookingException(BookingError.INVALID_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    public List<Train> getAllTrains() {
+        return database.getAllTrains();
+    }
+
+    public Train findTrain(String trainNumber) throws BookingException {
+        Train train = trainNumber != null ? database.getTrain(trainNumber.trim()) : null;
+        if (train == null) {
+            throw new BookingException(BookingError.TRAIN_NOT_FOUND, "Train " + trainNumber + " not found");
+        }
+        return train;
+    }
+
+    private void validateForBooking(BookingRequest request) throws BookingException {
+        validate(request);
+        if (request.getPassengerName() == null || request.getPassengerName().trim().isEmpty()
+                || request.getPhoneNumber() == null || request.getPhoneNumber().trim().isEmpty()) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Name and phone number are required");
+        }
+        if (request.getPaymentMethod() == null || request.getPaymentMethod().trim().isEmpty()) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Payment method is required");
+        }
+        if (!isPlainText(request.getPassengerName()) || !isPlainText(request.getPhoneNumber())
+                || (request.getEmail() != null && !isPlainText(request.getEmail()))
+                || !isPlainText(request.getPaymentMethod())) {
+            throw new BookingException(BookingError.INVALID_REQUEST,
+                "Passenger details cannot contain '|' or control characters");
+        }
+    }
+
+    private void validate(BookingRequest request) throws BookingException {
+        if (request.getUserId() == null || request.getUserId().trim().isEmpty()) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "User is required");
+        }
+        if (!isPlainText(request.getUserId())) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "User cannot contain '|' or control characters");
+        }
+        if (request.getNumberOfSeats() <= 0) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Number of seats must be positive");
+        }
+        if (!"AC".equals(request.getSeatType()) && !"Non-AC".equals(request.getSeatType())) {
+            throw new BookingException(BookingError.INVALID_REQUEST, "Seat type must be AC or Non-AC");
+        }
+        if (request.getJourneyDate() == null || !SeatInventory.isWithinHorizon(request.getJourneyDate())) {
+            throw new BookingException(BookingError.INVALID_REQUEST,
+                "Journey date must be within the next " + SeatInventory.HORIZON_DAYS + " days");
+        }
+    }
+
+    // Ticket fields are journaled as '|'-separated lines, so they must not
+    // contain the separator or a line break
+    private static boolean isPlainText(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '|' || Character.isISOControl(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(String station) {
+        return station == null || station.trim().isEmpty();
+    }
+
+    private static LocalDateTime departureOn(Train train, LocalDate date) {
+        return date.atTime(train.getDepartureTime().toLocalTime());
+    }
+}
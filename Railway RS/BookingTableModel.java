@@ -0,0 +1,127 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Table model over a list of ticket records from a ReadView. Cell values are
+// read from the record only when JTable asks for them, i.e. for the rows
+// currently in the viewport, so a view of half a million bookings costs one
+// reference per row. Records are immutable, so the table shows one
+// consistent point in time while bookings carry on. Filtering and sorting
+// produce a new list (see filter and comparatorFor) that callers compute
+// off the EDT and then hand to setRows.
+public class BookingTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {
+        "PNR", "Passenger", "Train", "Route", "Journey Date", "Class", "Seats", "Status", "Fare (₹)"
+    };
+
+    private List<ReadView.TicketRecord> rows = Collections.emptyList();
+
+    // Must be called on the EDT
+    public void setRows(List<ReadView.TicketRecord> rows) {
+        this.rows = rows;
+        fireTableDataChanged();
+    }
+
+    public ReadView.TicketRecord getTicketAt(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case 6: return Integer.class;
+            case 8: return Double.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        ReadView.TicketRecord ticket = rows.get(row);
+        switch (column) {
+            case 0: return ticket.getPnr();
+            case 1: return ticket.getPassengerName();
+            case 2: return ticket.getTrain().getTrainNumber() + " " + ticket.getTrain().getTrainName();
+            case 3: return ticket.getTrain().getSource() + " → " + ticket.getTrain().getDestination();
+            case 4: return ticket.getFormattedJourneyDate();
+            case 5: return ticket.getSeatType();
+            case 6: return ticket.getNumberOfSeats();
+            case 7: return ticket.getStatus();
+            case 8: return Math.round(ticket.getTotalFare() * 100) / 100.0;
+            default: return null;
+        }
+    }
+
+    // Sort order for a column, comparing the underlying values rather than
+    // their display strings
+    public static Comparator<ReadView.TicketRecord> comparatorFor(int column) {
+        switch (column) {
+            case 0: return Comparator.comparing(ReadView.TicketRecord::getPnr);
+            case 1: return Comparator.comparing(ReadView.TicketRecord::getPassengerName, String.CASE_INSENSITIVE_ORDER);
+            case 2: return Comparator.comparing((ReadView.TicketRecord t) -> t.getTrain().getTrainNumber());
+            case 3: return Comparator.comparing((ReadView.TicketRecord t) -> t.getTrain().getSource())
+                        .thenComparing(t -> t.getTrain().getDestination());
+            case 4: return Comparator.comparing(ReadView.TicketRecord::getJourneyDate);
+            case 5: return Comparator.comparing(ReadView.TicketRecord::getSeatType);
+            case 6: return Comparator.comparingInt(ReadView.TicketRecord::getNumberOfSeats);
+            case 7: return Comparator.comparing(ReadView.TicketRecord::getStatus);
+            case 8: return Comparator.comparingDouble(ReadView.TicketRecord::getTotalFare);
+            default: throw new IllegalArgumentException("No column " + column);
+        }
+    }
+
+    // Tickets whose PNR, passenger, train number, train name or status
+    // contain the query, ignoring case. Checks for interruption so a
+    // superseded filter stops early.
+    public static List<ReadView.TicketRecord> filter(List<ReadView.TicketRecord> tickets, String query) throws InterruptedException {
+        String needle = query == null ? "" : query.trim();
+        if (needle.isEmpty()) {
+            return new ArrayList<>(tickets);
+        }
+        List<ReadView.TicketRecord> matches = new ArrayList<>();
+        for (int i = 0; i < tickets.size(); i++) {
+            if ((i & 0x3FFF) == 0 && Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            ReadView.TicketRecord ticket = tickets.get(i);
+            if (contains(ticket.getPnr(), needle) || contains(ticket.getPassengerName(), needle)
+                    || contains(ticket.getTrain().getTrainNumber(), needle)
+                    || contains(ticket.getTrain().getTrainName(), needle)
+                    || contains(ticket.getStatus(), needle)) {
+                matches.add(ticket);
+            }
+        }
+        return matches;
+    }
+
+    // Case-insensitive substring test that does not allocate
+    private static boolean contains(String text, String needle) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0, last = text.length() - needle.length(); i <= last; i++) {
+            if (text.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,17 +1,28 @@
 import java.io.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-
-import javax.swing.JOptionPane;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class DatabaseManager {
-    private static final String DATA_DIR = "data";
+    // Overridable so load tests can run against a scratch copy of the data
+    private static final String DATA_DIR = System.getProperty("railway.data.dir", "data");
     private static final String TRAINS_FILE = DATA_DIR + File.separator + "trains.txt";
     private static final String TICKETS_FILE = DATA_DIR + File.separator + "tickets.txt";
     private static final String USERS_FILE = DATA_DIR + File.separator + "users.txt";
     private static final String ADMIN_FILE = DATA_DIR + File.separator + "admin.txt";
+    private static final int CHECKPOINT_THRESHOLD = 100_000;
+    private static final int LOCK_STRIPES = 64;
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
     private static volatile DatabaseManager instance;
@@ -19,12 +30,51 @@ public class DatabaseManager {
     private final Map<String, Ticket> tickets;
     private final Map<String, String> users;
     private final Map<String, String> admins;
+    private final TicketIndex ticketIndex;
+    private final ReportAggregates reportAggregates = new ReportAggregates();
+    private final Waitlist waitlist = new Waitlist();
+    // Mutations are serialized per train stripe; credentials have their own lock
+    private final LockStripes trainLocks = new LockStripes(LOCK_STRIPES);
+    // Latest published read view partition of each train stripe; replaced,
+    // never modified, and only by the holder of the stripe's lock
+    private final AtomicReferenceArray<ReadView.Partition> viewPartitions =
+        new AtomicReferenceArray<>(emptyPartitions(trainLocks.size()));
+    private final ReentrantLock credentialLock = new ReentrantLock();
+    private final BookingJournal journal;
+    private final SnapshotStore snapshotStore;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    private final PendingPaymentSweeper pendingPayments;
+    // Rebuilt whenever a train is added, changed or deleted
+    private final JourneyPlanner journeyPlanner = new JourneyPlanner(
+        Integer.getInteger("railway.planner.minConnectionMinutes", 30),
+        Integer.getInteger("railway.planner.maxTransfers", 3),
+        Integer.getInteger("railway.planner.searchDays", 2));
 
     private DatabaseManager() {
         this.trains = new ConcurrentHashMap<>();
         this.tickets = new ConcurrentHashMap<>();
         this.users = new ConcurrentHashMap<>();
         this.admins = new ConcurrentHashMap<>();
+        this.ticketIndex = new TicketIndex();
+        this.journal = new BookingJournal(DATA_DIR,
+            BookingJournal.Durability.valueOf(System.getProperty("railway.journal.durability", "BATCHED")),
+            Long.getLong("railway.journal.batchMillis", 2L));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                Log.error("Error closing journal", e);
+            }
+        }, "booking-journal-shutdown"));
+        this.snapshotStore = new SnapshotStore(DATA_DIR);
+        this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pendingPayments = new PendingPaymentSweeper(this,
+            TimeUnit.MINUTES.toMillis(Long.getLong("railway.payment.timeoutMinutes", 15L)));
         initializeData();
     }
 
@@ -39,182 +89,322 @@ public class DatabaseManager {
         return instance;
     }
 
-    public synchronized boolean cancelTicket(String pnr) {
-        // Input validation
+    // Cancels a ticket and returns its seats to the journey date. Throws
+    // IllegalArgumentException for an unknown PNR and IllegalStateException
+    // if the ticket cannot be cancelled. If the journal write fails the
+    // cancellation still stands and the ticket is marked unsaved.
+    public Ticket cancelTicket(String pnr) {
         if (pnr == null || pnr.trim().isEmpty()) {
-            JOptionPane.showMessageDialog(null, 
-                "Please enter a valid PNR number",
-                "Invalid Input", 
-                JOptionPane.ERROR_MESSAGE);
-            return false;
+            throw new IllegalArgumentException("Please enter a valid PNR number");
         }
         pnr = pnr.trim();
-    
-        // Get the ticket
         Ticket ticket = tickets.get(pnr);
         if (ticket == null) {
-            JOptionPane.showMessageDialog(null, 
-                "Ticket with PNR " + pnr + " not found",
-                "Ticket Not Found", 
-                JOptionPane.ERROR_MESSAGE);
-            return false;
+            throw new IllegalArgumentException("Ticket with PNR " + pnr + " not found");
         }
-    
+
+        RailwayEvents.Cancellation event = new RailwayEvents.Cancellation();
+        event.begin();
+        CompletableFuture<Void> commit;
+        long segment;
+        List<Ticket> changed;
+        Train train = ticket.getTrain();
+        ReentrantLock lock = lockTrain(train.getTrainNumber());
         try {
-            // Cancel the ticket (this updates the status)
-            ticket.cancelTicket();
-            
-            // Return seats to train availability
-            Train train = ticket.getTrain();
-            if (train != null) {
-                if ("AC".equalsIgnoreCase(ticket.getSeatType())) {
-                    train.setAvailableAcSeats(train.getAvailableAcSeats() + ticket.getNumberOfSeats());
-                } else {
-                    train.setAvailableNonAcSeats(train.getAvailableNonAcSeats() + ticket.getNumberOfSeats());
-                }
+            List<Ticket> promoted = cancelLocked(ticket);
+            List<String[]> records = new ArrayList<>(promoted.size() + 2);
+            records.add(statusRecord(ticket));
+            for (Ticket confirmed : promoted) {
+                records.add(bookRecord(confirmed));
             }
-    
-            // Force save changes to both files
-            boolean ticketsSaved = forceSaveTickets();
-            boolean trainsSaved = forceSaveTrains();
-            
-            if (!ticketsSaved || !trainsSaved) {
-                throw new IOException("Failed to save changes to files");
-            }
-            
-            JOptionPane.showMessageDialog(null,
-                "Ticket " + pnr + " has been cancelled successfully.\n" +
-                "Seats have been returned to availability.",
-                "Cancellation Successful",
-                JOptionPane.INFORMATION_MESSAGE);
-            return true;
-        } catch (IllegalStateException e) {
-            JOptionPane.showMessageDialog(null,
-                "Cannot cancel ticket: " + e.getMessage(),
-                "Cancellation Failed",
-                JOptionPane.ERROR_MESSAGE);
-            return false;
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null,
-                "Error saving cancellation: " + e.getMessage(),
-                "File Error",
-                JOptionPane.ERROR_MESSAGE);
-            return false;
+            records.add(seatsRecord(train, ticket.getJourneyDate().toLocalDate()));
+            commit = journal.appendAll(records);
+            segment = journal.getCurrentSegment();
+            changed = new ArrayList<>(promoted);
+            changed.add(ticket);
+        } finally {
+            lock.unlock();
+        }
+        // A ticket cancelled while awaiting payment needs no payment deadline
+        pendingPayments.resolved(pnr);
+
+        // Wait for the group commit outside the lock
+        awaitJournal(commit, segment, changed);
+        event.end();
+        if (event.shouldCommit()) {
+            event.pnr = pnr;
+            event.trainNumber = train.getTrainNumber();
+            event.seats = ticket.getNumberOfSeats();
+            event.commit();
         }
+        checkpointIfNeeded();
+        return ticket;
     }
-    
-    // Add these new methods to DatabaseManager
-    private synchronized boolean forceSaveTickets() throws IOException {
-        File file = new File(TICKETS_FILE);
-        File tempFile = new File(TICKETS_FILE + ".tmp");
-        
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFile))) {
-            for (Ticket ticket : tickets.values()) {
-                writer.println(String.join("|",
-                    ticket.getPnr(),
-                    ticket.getUserId(),
-                    ticket.getTrain().getTrainNumber(),
-                    String.valueOf(ticket.getNumberOfSeats()),
-                    ticket.getSeatType(),
-                    ticket.getPassengerName(),
-                    ticket.getPhoneNumber(),
-                    ticket.getEmail(),
-                    ticket.getJourneyDate().format(DATE_TIME_FORMATTER),
-                    ticket.getBookingDateTime().format(DATE_TIME_FORMATTER),
-                    ticket.getStatus(),
-                    ticket.getPaymentMethod(),
-                    ticket.getPaymentId(),
-                    ticket.getTransactionReference() != null ? ticket.getTransactionReference() : "",
-                    String.valueOf(ticket.getBaseFare()),
-                    String.valueOf(ticket.getTax()),
-                    String.valueOf(ticket.getTotalFare())
-                ));
-            }
+
+    // Cancels a ticket in memory and offers any seats it frees to the
+    // waitlist. The caller holds its train's lock and journals the ticket
+    // along with the waitlisted tickets this confirmed, which it returns.
+    private List<Ticket> cancelLocked(Ticket ticket) {
+        // Cancel the ticket (this updates the status and frees its berths)
+        boolean held = ticket.holdsSeats();
+        boolean waiting = ticket.isWaitlisted();
+        ticket.cancelTicket();
+        // Every cancellation counts, as it does when rebuilt after a restart
+        if (held) {
+            reportAggregates.ticketReleased(ticket, true);
+        } else {
+            reportAggregates.ticketCancelled(ticket);
         }
-        
-        // Atomic file replacement
-        if (file.exists()) {
-            file.delete();
+        publish(ticket.getTrain().getTrainNumber(), view -> view.withTicket(ticket));
+
+        Train train = ticket.getTrain();
+        LocalDate journeyDate = ticket.getJourneyDate().toLocalDate();
+        int freed = held ? ticket.getNumberOfSeats() : 0;
+        if (held && ticket.isPartOfRoute()) {
+            // A leg frees whole-run seats only as far as the busiest segment's load falls
+            freed = train.releaseRoute(journeyDate, ticket.getSeatType(), ticket.getFromStation(),
+                ticket.getToStation(), ticket.getNumberOfSeats());
         }
-        return tempFile.renameTo(file);
+        if (waiting) {
+            WaitlistQueue queue = waitlist.get(train.getTrainNumber(), journeyDate, ticket.getSeatType());
+            if (queue != null) {
+                queue.remove(ticket.getPnr());
+            }
+        }
+        // Seats go to the journey date's waitlist first, then back on sale.
+        // A waitlisted ticket frees none, but its leaving may let the next
+        // one in line use seats already kept for the queue.
+        return serveWaitlist(train, journeyDate, ticket.getSeatType(), freed);
     }
-    
-    private synchronized boolean forceSaveTrains() throws IOException {
-        File file = new File(TRAINS_FILE);
-        File tempFile = new File(TRAINS_FILE + ".tmp");
-        
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFile))) {
-            for (Train train : trains.values()) {
-                writer.println(String.format("%s|%s|%s|%s|%s|%s|%d|%.2f|%d|%d|%d",
-                    train.getTrainNumber(),
-                    train.getTrainName(),
-                    train.getSource(),
-                    train.getDestination(),
-                    train.getDepartureTime().format(DATE_TIME_FORMATTER),
-                    train.getArrivalTime().format(DATE_TIME_FORMATTER),
-                    train.getTotalSeats(),
-                    train.getBaseFare(),
-                    train.getAvailableAcSeats(),
-                    train.getAvailableNonAcSeats(),
-                    train.getAcSeats()));
+
+    // Offers seats freed on a train, date and class to its waitlist before
+    // they can go back on sale, confirming waiting tickets in order for as
+    // long as the one at the head fits. Seats the head cannot use yet are
+    // kept for the queue and are released once nobody is waiting. The
+    // caller holds the train's lock. Returns the tickets confirmed.
+    private List<Ticket> serveWaitlist(Train train, LocalDate journeyDate, String seatType, int freed) {
+        WaitlistQueue queue = waitlist.get(train.getTrainNumber(), journeyDate, seatType);
+        if (queue == null) {
+            if (freed > 0) {
+                train.cancelSeats(journeyDate, freed, seatType);
             }
+            return Collections.emptyList();
         }
-        
-        // Atomic file replacement
-        if (file.exists()) {
-            file.delete();
+        int reserved = queue.getReservedSeats();
+        int available = reserved + freed;
+        List<Ticket> promoted = new ArrayList<>();
+        String pnr;
+        while ((pnr = queue.peek()) != null) {
+            Ticket next = tickets.get(pnr);
+            if (next == null || !next.isWaitlisted()) {
+                // No longer waiting, e.g. its status was replayed from the journal
+                queue.remove(pnr);
+                continue;
+            }
+            if (next.getNumberOfSeats() > available) {
+                break;
+            }
+            SeatAllocator.Assignment assignment =
+                train.allocateSeats(journeyDate, seatType, next.getNumberOfSeats());
+            if (assignment == null) {
+                Log.warn("No free berths for waitlisted ticket {} on {}", pnr, journeyDate);
+                break;
+            }
+            queue.remove(pnr);
+            next.confirmFromWaitlist(assignment);
+            reportAggregates.ticketBooked(next);
+            publish(next.getTrain().getTrainNumber(), view -> view.withTicket(next));
+            available -= next.getNumberOfSeats();
+            promoted.add(next);
+        }
+
+        // Confirmed tickets take the freed seats first, then the kept ones.
+        // Seats move between booked and kept without ever becoming
+        // available, so a concurrent booking cannot slip in ahead of the queue.
+        int taken = reserved + freed - available;
+        int fromFreed = Math.min(freed, taken);
+        int fromReserved = taken - fromFreed;
+        int unusedFreed = freed - fromFreed;
+        boolean ac = "AC".equalsIgnoreCase(seatType);
+        if (fromReserved > 0) {
+            train.confirmKeptSeats(journeyDate, ac ? fromReserved : 0, ac ? 0 : fromReserved);
+        }
+        if (queue.isEmpty()) {
+            // Nobody left waiting: everything goes back on sale
+            if (unusedFreed > 0) {
+                train.cancelSeats(journeyDate, unusedFreed, seatType);
+            }
+            int unusedReserved = reserved - fromReserved;
+            if (unusedReserved > 0) {
+                train.releaseKeptSeats(journeyDate, ac ? unusedReserved : 0, ac ? 0 : unusedReserved);
+            }
+            queue.setReservedSeats(0);
+            waitlist.removeIfIdle(train.getTrainNumber(), journeyDate, seatType);
+        } else {
+            if (unusedFreed > 0) {
+                train.keepReleasedSeats(journeyDate, ac ? unusedFreed : 0, ac ? 0 : unusedFreed);
+            }
+            queue.setReservedSeats(available);
         }
-        return tempFile.renameTo(file);
+        Metrics.WAITLIST_PROMOTIONS.add(promoted.size());
+        return promoted;
     }
 
-public void verifyTicketStatus(String pnr) {
-    Ticket ticket = tickets.get(pnr);
-    if (ticket == null) {
-        System.out.println("Ticket " + pnr + " not found in memory");
-    } else {
-        System.out.println("Ticket " + pnr + " status: " + ticket.getStatus());
+    // Takes a train's booking lock, timing how long the caller waited for it.
+    // Only contended acquisitions are reported to Flight Recorder.
+    private ReentrantLock lockTrain(String trainNumber) {
+        ReentrantLock lock = trainLocks.lockFor(trainNumber);
+        long started = System.nanoTime();
+        if (!lock.tryLock()) {
+            RailwayEvents.TrainLockWait event = new RailwayEvents.TrainLockWait();
+            event.begin();
+            lock.lock();
+            event.end();
+            if (event.shouldCommit()) {
+                event.trainNumber = trainNumber;
+                event.commit();
+            }
+        }
+        Metrics.LOCK_WAIT.recordSince(started);
+        return lock;
     }
-    
-    // Check file directly
-    try (BufferedReader reader = new BufferedReader(new FileReader(TICKETS_FILE))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.startsWith(pnr + "|")) {
-                System.out.println("Ticket in file: " + line);
-                break;
+
+    // Waits for a mutation's journal records. A failed write does not undo
+    // the mutation: other threads may already have seen or built on it, and
+    // part of it may have reached the disk. Reporting it as failed would
+    // invite a retry that books twice, so the tickets it changed are marked
+    // unsaved instead until a snapshot covers them. Returns false then.
+    private boolean awaitJournal(CompletableFuture<Void> commit, long segment, Collection<Ticket> changed) {
+        try {
+            BookingJournal.await(commit);
+            return true;
+        } catch (IOException e) {
+            Log.error("Journal write failed; {} changed tickets are unsaved: {}", changed.size(), e.getMessage());
+            for (Ticket ticket : changed) {
+                ticket.markUnsaved(segment);
             }
+            return false;
         }
-    } catch (IOException e) {
-        System.err.println("Error reading tickets file: " + e.getMessage());
-    }
-}
-
-public void verifyTrainSeats(String trainNumber) {
-    Train train = trains.get(trainNumber);
-    if (train == null) {
-        System.out.println("Train " + trainNumber + " not found");
-        return;
-    }
-    
-    System.out.println("Train " + trainNumber + " seat status:");
-    System.out.println("AC Seats - Total: " + train.getAcSeats() + 
-                      ", Available: " + train.getAvailableAcSeats());
-    System.out.println("Non-AC Seats - Total: " + (train.getTotalSeats() - train.getAcSeats()) + 
-                      ", Available: " + train.getAvailableNonAcSeats());
-    
-    // Check file directly
-    try (BufferedReader reader = new BufferedReader(new FileReader(TRAINS_FILE))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.startsWith(trainNumber + "|")) {
-                System.out.println("Train in file: " + line);
-                break;
+    }
+
+    // Asks the background writer for a snapshot once the journal tail grows
+    // past the threshold, keeping replay time bounded between periodic runs.
+    private void checkpointIfNeeded() {
+        if (journal.getRecordCount() >= CHECKPOINT_THRESHOLD && snapshotPending.compareAndSet(false, true)) {
+            snapshotExecutor.execute(this::writeSnapshot);
+        }
+    }
+
+    // Rolls the journal to a new segment, writes a binary snapshot tagged with
+    // that segment and then compacts away everything older. Only the roll and
+    // the shallow copy happen under the locks; the snapshot itself is written
+    // while bookings continue. Tickets mutated after the copy may reach the
+    // snapshot in their newer state, which is safe because every journal record
+    // carries absolute values and is replayed again from the new segment.
+    public void writeSnapshot() {
+        RailwayEvents.SnapshotWrite event = new RailwayEvents.SnapshotWrite();
+        event.begin();
+        try {
+            long segment;
+            List<Train> trainCopy;
+            Map<String, long[]> inventoryCopy = new HashMap<>();
+            Map<String, long[]> keptCopy = new HashMap<>();
+            List<Ticket> ticketCopy;
+            Map<String, String> userCopy;
+            // Every mutation holds one of these while it enqueues its records,
+            // so holding all of them cleanly separates the old segment from the new
+            trainLocks.lockAll();
+            credentialLock.lock();
+            try {
+                segment = journal.rollSegment();
+                trainCopy = new ArrayList<>(trains.values());
+                // Seat holds and kept seats only change under these locks, so export them here
+                for (Train train : trainCopy) {
+                    inventoryCopy.put(train.getTrainNumber(), train.getInventory().exportSlots());
+                    keptCopy.put(train.getTrainNumber(), train.getInventory().exportKept());
+                }
+                ticketCopy = new ArrayList<>(tickets.values());
+                userCopy = new HashMap<>(users);
+            } finally {
+                credentialLock.unlock();
+                trainLocks.unlockAll();
+            }
+            event.journalSegment = segment;
+            event.trains = trainCopy.size();
+            event.tickets = ticketCopy.size();
+            event.bytesWritten = snapshotStore.write(segment, trainCopy, inventoryCopy, keptCopy, ticketCopy, userCopy);
+            for (Ticket ticket : ticketCopy) {
+                ticket.markSaved(segment);
             }
+            journal.deleteSegmentsBefore(segment);
+            snapshotStore.deleteOlderThan(segment);
+            event.succeeded = true;
+        } catch (IOException e) {
+            Log.error("Error writing snapshot", e);
+        } finally {
+            event.commit();
+            snapshotPending.set(false);
+        }
+    }
+
+    // Held seats are recorded as free; holds are not restored after a restart.
+    // Seats kept for the waitlist are recorded as taken and counted in the
+    // last two fields, so loadData can hand them back to their queues.
+    private String[] seatsRecord(Train train, LocalDate journeyDate) {
+        SeatInventory inventory = train.getInventory();
+        return new String[] { BookingJournal.SEATS, train.getTrainNumber() + "|" + journeyDate + "|" +
+            inventory.getDurableAc(journeyDate) + "|" + inventory.getDurableNonAc(journeyDate) + "|" +
+            inventory.getKeptAc(journeyDate) + "|" + inventory.getKeptNonAc(journeyDate) };
+    }
+
+    // Seat holds. These change availability under the train lock, like the
+    // journal and snapshot code that reads it, so persisted counts always
+    // see a hold together with the seats it took.
+    public boolean holdSeats(Train train, LocalDate journeyDate, int acCount, int nonAcCount) {
+        ReentrantLock lock = lockTrain(train.getTrainNumber());
+        try {
+            return train.holdSeats(journeyDate, acCount, nonAcCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void releaseHeldSeats(Train train, LocalDate journeyDate, int acCount, int nonAcCount) {
+        ReentrantLock lock = lockTrain(train.getTrainNumber());
+        try {
+            train.releaseHeldSeats(journeyDate, acCount, nonAcCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void confirmHeldSeats(Train train, LocalDate journeyDate, int acCount, int nonAcCount) {
+        ReentrantLock lock = lockTrain(train.getTrainNumber());
+        try {
+            train.confirmHeldSeats(journeyDate, acCount, nonAcCount);
+        } finally {
+            lock.unlock();
         }
-    } catch (IOException e) {
-        System.err.println("Error reading trains file: " + e.getMessage());
     }
-}
+
+    private String[] bookRecord(Ticket ticket) {
+        return new String[] { BookingJournal.BOOK, formatTicket(ticket) };
+    }
+
+    private String[] statusRecord(Ticket ticket) {
+        return new String[] { BookingJournal.STATUS, ticket.getPnr() + "|" + ticket.getStatus() };
+    }
+
+    public BookingJournal.Durability getJournalDurability() {
+        return journal.getDurability();
+    }
+
+    // Lets operators trade commit latency for throughput, e.g. switching to
+    // BATCHED with a wider window during tatkal rush hours.
+    public void setJournalDurability(BookingJournal.Durability durability, long batchWindowMillis) {
+        journal.setDurability(durability, batchWindowMillis);
+    }
+
     private void initializeData() {
         // Create data directory if it doesn't exist
         new File(DATA_DIR).mkdirs();
@@ -223,24 +413,99 @@ public void verifyTrainSeats(String trainNumber) {
             admins.put("admin", "admin123");
             saveAdmins();
         }
+        pendingPayments.start(Long.getLong("railway.payment.sweepSeconds", 5L));
+        long interval = Long.getLong("railway.snapshot.intervalSeconds", 300L);
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            if (journal.getRecordCount() > 0 && snapshotPending.compareAndSet(false, true)) {
+                writeSnapshot();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
     }
 
     // Train operations
-    public synchronized boolean addTrain(Train train) {
+    public boolean addTrain(Train train) {
         if (train == null || train.getTrainNumber() == null) {
             throw new IllegalArgumentException("Invalid train data");
         }
-        trains.put(train.getTrainNumber(), train);
-        saveTrains();
-        return true;
+        CompletableFuture<Void> commit;
+        ReentrantLock lock = lockTrain(train.getTrainNumber());
+        try {
+            trains.put(train.getTrainNumber(), train);
+            List<Ticket> trainTickets = getTrainTickets(train.getTrainNumber());
+            publish(train.getTrainNumber(), view -> view.withTrain(train, trainTickets));
+            commit = journal.append(BookingJournal.TRAIN, formatTrain(train));
+        } finally {
+            lock.unlock();
+        }
+        journeyPlanner.rebuild(trains.values());
+        try {
+            BookingJournal.await(commit);
+            checkpointIfNeeded();
+            return true;
+        } catch (IOException e) {
+            Log.error("Error saving train {}: {}", train.getTrainNumber(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Copies an edited train's details onto the stored train with the same
+    // number, so tickets keep pointing at the same Train. details is built
+    // by the caller, which validates each field on its own; every edit is
+    // then applied and journaled together under the train's lock, so
+    // bookings, snapshots and readers never see part of it. Returns false
+    // if the edit could not be saved.
+    public boolean updateTrain(Train details) {
+        if (details == null || details.getTrainNumber() == null) {
+            throw new IllegalArgumentException("Invalid train data");
+        }
+        String trainNumber = details.getTrainNumber();
+        CompletableFuture<Void> commit;
+        ReentrantLock lock = lockTrain(trainNumber);
+        try {
+            Train train = trains.get(trainNumber);
+            if (train == null) {
+                throw new IllegalArgumentException("Train " + trainNumber + " not found");
+            }
+            // The one check that depends on bookings; made before any detail changes
+            train.checkStopsCanChange(details.getIntermediateStops());
+            applyTrainDetails(train, details);
+            List<Ticket> trainTickets = getTrainTickets(trainNumber);
+            publish(train.getTrainNumber(), view -> view.withTrain(train, trainTickets));
+            commit = journal.append(BookingJournal.TRAIN, formatTrain(train));
+        } finally {
+            lock.unlock();
+        }
+        journeyPlanner.rebuild(trains.values());
+        try {
+            BookingJournal.await(commit);
+            checkpointIfNeeded();
+            return true;
+        } catch (IOException e) {
+            Log.error("Error saving train {}: {}", trainNumber, e.getMessage());
+            return false;
+        }
     }
 
-    public synchronized void deleteTrain(String trainNumber) {
+    public void deleteTrain(String trainNumber) {
         if (trainNumber == null || trainNumber.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid train number");
         }
-        trains.remove(trainNumber);
-        saveTrains();
+        CompletableFuture<Void> commit;
+        ReentrantLock lock = lockTrain(trainNumber);
+        try {
+            trains.remove(trainNumber);
+            publish(trainNumber, view -> view.withoutTrain(trainNumber));
+            commit = journal.append(BookingJournal.DELETE_TRAIN, trainNumber);
+        } finally {
+            lock.unlock();
+        }
+        journeyPlanner.rebuild(trains.values());
+        try {
+            BookingJournal.await(commit);
+            checkpointIfNeeded();
+        } catch (IOException e) {
+            Log.error("Error saving deletion of train {}: {}", trainNumber, e.getMessage());
+        }
     }
 
     public Train getTrain(String trainNumber) {
@@ -252,29 +517,248 @@ public void verifyTrainSeats(String trainNumber) {
     }
 
     // Ticket operations
-    public synchronized void addTicket(Ticket ticket) {
+    // Stores a new booking whose seats are already reserved on its train.
+    // Throws IllegalStateException if the PNR is already taken. If the
+    // journal write fails the booking still stands and is marked unsaved.
+    public void addTicket(Ticket ticket) {
+        RailwayEvents.Booking event = new RailwayEvents.Booking();
+        event.begin();
+        CompletableFuture<Void> commit;
+        long segment;
+        ReentrantLock lock = lockTrain(ticket.getTrain().getTrainNumber());
         try {
-            // Verify passenger name is preserved
-            System.out.println("Saving ticket for: " + ticket.getPassengerName());
-            
-            tickets.put(ticket.getPnr(), ticket);
-            
-            // Debug output before saving
-            System.out.println("Ticket data to save:");
-            System.out.println("PNR: " + ticket.getPnr());
-            System.out.println("Name: " + ticket.getPassengerName());
-            System.out.println("Train: " + ticket.getTrain().getTrainNumber());
-            // ... other important fields
-            
-            saveTickets(); // Save to file
-        } catch (Exception e) {
-            System.err.println("Error adding ticket: " + e.getMessage());
-            e.printStackTrace();
+            // Never let a new booking overwrite an existing one
+            if (tickets.putIfAbsent(ticket.getPnr(), ticket) != null) {
+                throw new IllegalStateException("PNR " + ticket.getPnr() + " is already in use");
+            }
+            ticketIndex.add(ticket);
+            if (ticket.holdsSeats()) {
+                reportAggregates.ticketBooked(ticket);
+            }
+            publish(ticket.getTrain().getTrainNumber(), view -> view.withTicket(ticket));
+            if ("PENDING".equalsIgnoreCase(ticket.getStatus())) {
+                pendingPayments.track(ticket);
+            }
+            commit = journal.appendAll(List.of(bookRecord(ticket),
+                seatsRecord(ticket.getTrain(), ticket.getJourneyDate().toLocalDate())));
+            segment = journal.getCurrentSegment();
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(commit, segment, List.of(ticket));
+        event.end();
+        if (event.shouldCommit()) {
+            event.pnr = ticket.getPnr();
+            event.trainNumber = ticket.getTrain().getTrainNumber();
+            event.journeyDate = ticket.getJourneyDate().toLocalDate().toString();
+            event.seatType = ticket.getSeatType();
+            event.seats = ticket.getNumberOfSeats();
+            event.commit();
+        }
+        checkpointIfNeeded();
+    }
+
+    // Puts a ticket for a full class at the back of its train, date and
+    // class's waitlist and returns its position. If nobody is waiting and
+    // seats have come free since the caller found the class full, the ticket
+    // is confirmed at once instead and 0 is returned. Returns -1, storing
+    // nothing, if the waitlist is full. Throws IllegalStateException if the
+    // PNR is already taken. A failed journal write marks the ticket unsaved.
+    public int joinWaitlist(Ticket ticket) {
+        Train train = ticket.getTrain();
+        LocalDate journeyDate = ticket.getJourneyDate().toLocalDate();
+        String seatType = ticket.getSeatType();
+        int seats = ticket.getNumberOfSeats();
+        int position = 0;
+        CompletableFuture<Void> commit;
+        long segment;
+        ReentrantLock lock = lockTrain(train.getTrainNumber());
+        try {
+            WaitlistQueue queue = waitlist.getOrCreate(train.getTrainNumber(), journeyDate, seatType);
+            if (queue.size() >= Waitlist.MAX_PER_CLASS) {
+                return -1;
+            }
+            if (tickets.putIfAbsent(ticket.getPnr(), ticket) != null) {
+                waitlist.removeIfIdle(train.getTrainNumber(), journeyDate, seatType);
+                throw new IllegalStateException("PNR " + ticket.getPnr() + " is already in use");
+            }
+            ticketIndex.add(ticket);
+            SeatAllocator.Assignment assignment = null;
+            if (queue.isEmpty() && train.bookSeats(journeyDate, seats, seatType)) {
+                assignment = train.allocateSeats(journeyDate, seatType, seats);
+                if (assignment == null) {
+                    train.cancelSeats(journeyDate, seats, seatType);
+                }
+            }
+            if (assignment != null) {
+                ticket.confirmFromWaitlist(assignment);
+                reportAggregates.ticketBooked(ticket);
+                waitlist.removeIfIdle(train.getTrainNumber(), journeyDate, seatType);
+            } else {
+                ticket.setBookingDateTime(queue.nextJoinTime());
+                position = queue.add(ticket.getPnr());
+                Metrics.WAITLIST_JOINS.increment();
+            }
+            publish(ticket.getTrain().getTrainNumber(), view -> view.withTicket(ticket));
+            commit = journal.appendAll(List.of(bookRecord(ticket), seatsRecord(train, journeyDate)));
+            segment = journal.getCurrentSegment();
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(commit, segment, List.of(ticket));
+        checkpointIfNeeded();
+        return position;
+    }
+
+    // 1-based place of a waitlisted ticket in its queue, 0 if it is not waiting
+    public int getWaitlistPosition(String pnr) {
+        Ticket ticket = tickets.get(pnr);
+        if (ticket == null || !ticket.isWaitlisted()) {
+            return 0;
+        }
+        ReentrantLock lock = lockTrain(ticket.getTrain().getTrainNumber());
+        try {
+            WaitlistQueue queue = waitlist.get(ticket.getTrain().getTrainNumber(),
+                ticket.getJourneyDate().toLocalDate(), ticket.getSeatType());
+            return queue != null ? queue.positionOf(pnr) : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaitlistLength(Train train, LocalDate journeyDate, String seatType) {
+        ReentrantLock lock = lockTrain(train.getTrainNumber());
+        try {
+            WaitlistQueue queue = waitlist.get(train.getTrainNumber(), journeyDate, seatType);
+            return queue != null ? queue.size() : 0;
+        } finally {
+            lock.unlock();
         }
     }
 
     public Ticket getTicket(String pnr) {
-        return tickets.get(pnr);
+        long started = System.nanoTime();
+        Ticket ticket = tickets.get(pnr);
+        Metrics.INDEX_LOOKUP.recordSince(started);
+        return ticket;
+    }
+
+    // View of all trains and tickets for long-running readers; see ReadView.
+    // Taking it is one volatile read per stripe; nothing the reader does
+    // with it blocks or is blocked by bookings.
+    public ReadView getReadView() {
+        return new ReadView(currentPartitions(), trainLocks::indexFor);
+    }
+
+    private ReadView.Partition[] currentPartitions() {
+        ReadView.Partition[] partitions = new ReadView.Partition[viewPartitions.length()];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = viewPartitions.get(i);
+        }
+        return partitions;
+    }
+
+    // Publishes a change to the read view partition of a train whose lock
+    // the caller holds. No other thread can replace that partition
+    // meanwhile, so a plain write suffices.
+    private void publish(String trainNumber, UnaryOperator<ReadView.Partition> change) {
+        int stripe = trainLocks.indexFor(trainNumber);
+        viewPartitions.set(stripe, change.apply(viewPartitions.get(stripe)));
+    }
+
+    private static ReadView.Partition[] emptyPartitions(int stripes) {
+        ReadView.Partition[] partitions = new ReadView.Partition[stripes];
+        Arrays.fill(partitions, ReadView.Partition.EMPTY);
+        return partitions;
+    }
+
+    // Rebuilds the read view from the live maps under all train locks
+    private void publishFullView() {
+        trainLocks.lockAll();
+        try {
+            ReadView.Partition[] partitions = ReadView.partition(currentPartitions(), trains.values(),
+                tickets.values(), trainLocks::indexFor);
+            for (int i = 0; i < partitions.length; i++) {
+                viewPartitions.set(i, partitions[i]);
+            }
+        } finally {
+            trainLocks.unlockAll();
+        }
+    }
+
+    // Settles a batch of PENDING tickets: CONFIRMED ones keep their seats,
+    // CANCELLED ones give them back. All affected trains are locked together
+    // and every change goes to the journal in a single append. Tickets that
+    // are no longer PENDING are skipped. Returns the tickets changed. A failed
+    // journal write leaves them changed and marks them unsaved.
+    public List<Ticket> resolvePendingPayments(Map<String, String> outcomes) {
+        List<Ticket> pending = new ArrayList<>();
+        Set<String> trainNumbers = new HashSet<>();
+        for (String pnr : outcomes.keySet()) {
+            Ticket ticket = tickets.get(pnr);
+            if (ticket != null && "PENDING".equalsIgnoreCase(ticket.getStatus())) {
+                pending.add(ticket);
+                trainNumbers.add(ticket.getTrain().getTrainNumber());
+            }
+        }
+        List<Ticket> resolved = new ArrayList<>();
+        if (pending.isEmpty()) {
+            return resolved;
+        }
+        CompletableFuture<Void> commit;
+        long segment;
+        List<Ticket> changed = new ArrayList<>();
+        List<ReentrantLock> locks = trainLocks.lockAllFor(trainNumbers);
+        try {
+            List<String[]> records = new ArrayList<>();
+            Map<Train, Set<LocalDate>> releasedDates = new LinkedHashMap<>();
+            for (Ticket ticket : pending) {
+                // Re-check under the lock: the user may have cancelled meanwhile
+                if (!"PENDING".equalsIgnoreCase(ticket.getStatus())) {
+                    continue;
+                }
+                List<Ticket> promoted = Collections.emptyList();
+                if ("CONFIRMED".equals(outcomes.get(ticket.getPnr()))) {
+                    // Its seats and berths were taken at booking; only the status changes
+                    ticket.setStatus("CONFIRMED");
+                    publish(ticket.getTrain().getTrainNumber(), view -> view.withTicket(ticket));
+                } else {
+                    promoted = cancelLocked(ticket);
+                    releasedDates.computeIfAbsent(ticket.getTrain(), t -> new HashSet<>())
+                        .add(ticket.getJourneyDate().toLocalDate());
+                }
+                records.add(statusRecord(ticket));
+                for (Ticket confirmed : promoted) {
+                    records.add(bookRecord(confirmed));
+                }
+                resolved.add(ticket);
+                changed.add(ticket);
+                changed.addAll(promoted);
+            }
+            // One absolute seat count per train and date, after all the releases
+            for (Map.Entry<Train, Set<LocalDate>> entry : releasedDates.entrySet()) {
+                for (LocalDate journeyDate : entry.getValue()) {
+                    records.add(seatsRecord(entry.getKey(), journeyDate));
+                }
+            }
+            commit = records.isEmpty() ? null : journal.appendAll(records);
+            segment = journal.getCurrentSegment();
+        } finally {
+            trainLocks.unlock(locks);
+        }
+        if (commit != null) {
+            awaitJournal(commit, segment, changed);
+            checkpointIfNeeded();
+        }
+        return resolved;
+    }
+
+    public PendingPaymentSweeper getPendingPaymentSweeper() {
+        return pendingPayments;
+    }
+
+    public JourneyPlanner getJourneyPlanner() {
+        return journeyPlanner;
     }
 
     public List<Ticket> getAllTickets() {
@@ -282,31 +766,78 @@ public void verifyTrainSeats(String trainNumber) {
         if (tickets.isEmpty()) {
             try {
                 Map<String, Ticket> loadedTickets = loadTickets();
-                tickets.putAll(loadedTickets);
+                for (Ticket ticket : loadedTickets.values()) {
+                    putTicket(ticket);
+                }
+                reportAggregates.rebuild(tickets.values());
+                publishFullView();
             } catch (IOException e) {
-                System.err.println("Error reloading tickets: " + e.getMessage());
+                Log.error("Error reloading tickets", e);
             }
         }
         return new ArrayList<>(tickets.values());
     }
 
+    // Index lookups, proportional to the size of the result
     public List<Ticket> getUserTickets(String userId) {
-        List<Ticket> userTickets = new ArrayList<>();
-        for (Ticket ticket : getAllTickets()) {
-            if (ticket.getUserId().equals(userId)) {
-                userTickets.add(ticket);
+        long started = System.nanoTime();
+        return resolve(ticketIndex.getByUser(userId), started);
+    }
+
+    public List<Ticket> getTrainTickets(String trainNumber) {
+        long started = System.nanoTime();
+        return resolve(ticketIndex.getByTrain(trainNumber), started);
+    }
+
+    public List<Ticket> getTicketsForJourneyDate(LocalDate journeyDate) {
+        long started = System.nanoTime();
+        return resolve(ticketIndex.getByJourneyDate(journeyDate), started);
+    }
+
+    public int countTrainTickets(String trainNumber) {
+        return ticketIndex.getByTrain(trainNumber).size();
+    }
+
+    private List<Ticket> resolve(Set<String> pnrs, long started) {
+        List<Ticket> result = new ArrayList<>(pnrs.size());
+        for (String pnr : pnrs) {
+            Ticket ticket = tickets.get(pnr);
+            if (ticket != null) {
+                result.add(ticket);
             }
         }
-        return userTickets;
+        Metrics.INDEX_LOOKUP.recordSince(started);
+        return result;
+    }
+
+    // Every insert into the tickets map goes through here to keep the indexes in step
+    private void putTicket(Ticket ticket) {
+        Ticket previous = tickets.put(ticket.getPnr(), ticket);
+        if (previous != null) {
+            ticketIndex.remove(previous);
+        }
+        ticketIndex.add(ticket);
     }
 
     // User operations
-    public synchronized void addUser(String username, String password) {
+    public void addUser(String username, String password) {
         if (username == null || password == null || username.trim().isEmpty() || password.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid username or password");
         }
-        users.put(username, password);
-        saveUsers();
+        CompletableFuture<Void> commit;
+        credentialLock.lock();
+        try {
+            users.put(username, password);
+            commit = journal.append(BookingJournal.USER, username + "|" + password);
+        } finally {
+            credentialLock.unlock();
+        }
+        try {
+            BookingJournal.await(commit);
+            checkpointIfNeeded();
+        } catch (IOException e) {
+            Log.error("Error saving user {}: {}", username, e.getMessage());
+        }
     }
 
     public boolean validateUser(String username, String password) {
@@ -323,22 +854,110 @@ public void verifyTrainSeats(String trainNumber) {
 
     // File operations
     private synchronized void loadData() {
+        RailwayEvents.DataLoad event = new RailwayEvents.DataLoad();
+        event.begin();
         try {
-            System.out.println("Loading data from files...");
-            System.out.println("Trains file: " + new File(TRAINS_FILE).getAbsolutePath());
-            System.out.println("Tickets file: " + new File(TICKETS_FILE).getAbsolutePath());
-            
-            trains.putAll(loadTrains());
-            System.out.println("Loaded " + trains.size() + " trains");
-            
-            tickets.putAll(loadTickets());
-            System.out.println("Loaded " + tickets.size() + " tickets");
-            
-            users.putAll(loadCredentials(USERS_FILE));
+            long started = System.nanoTime();
+            long fromSegment = 0;
+            SnapshotStore.Snapshot snapshot = snapshotStore.loadLatest();
+            if (snapshot != null) {
+                trains.putAll(snapshot.trains);
+                tickets.putAll(snapshot.tickets);
+                snapshot.tickets.values().forEach(ticketIndex::add);
+                users.putAll(snapshot.users);
+                fromSegment = snapshot.journalSegment;
+                Log.info("Loaded snapshot at journal segment {}: {} trains, {} tickets",
+                    fromSegment, trains.size(), tickets.size());
+            } else {
+                // No snapshot yet: import the text files and replay the whole journal
+                Log.info("Loading data from {} and {}",
+                    new File(TRAINS_FILE).getAbsolutePath(), new File(TICKETS_FILE).getAbsolutePath());
+                
+                trains.putAll(loadTrains());
+                Log.info("Loaded {} trains", trains.size());
+                
+                loadTickets().values().forEach(this::putTicket);
+                Log.info("Loaded {} tickets", tickets.size());
+
+                users.putAll(loadCredentials(USERS_FILE));
+            }
             admins.putAll(loadCredentials(ADMIN_FILE));
+
+            int replayed = journal.replay(fromSegment, this::applyJournalRecord);
+            Log.info("Replayed {} journal records in {} ms", replayed, (System.nanoTime() - started) / 1_000_000);
+            event.fromSnapshot = snapshot != null;
+            event.journalRecords = replayed;
+            event.trains = trains.size();
+            event.tickets = tickets.size();
+
+            // Resume PNR numbering past everything already issued
+            PnrGenerator pnrGenerator = Ticket.getPnrGenerator();
+            tickets.keySet().forEach(pnrGenerator::recover);
+            reportAggregates.rebuild(tickets.values());
+            publishFullView();
+            journeyPlanner.rebuild(trains.values());
+            // The one full pass: payment sweeps later only look at tickets that
+            // are due, and waitlists and part-route loads are kept up to date
+            // as tickets change
+            List<Ticket> waiting = new ArrayList<>();
+            LocalDate today = LocalDate.now();
+            for (Ticket ticket : tickets.values()) {
+                if (ticket.isPartOfRoute() && ticket.holdsSeats()) {
+                    restoreRoute(ticket);
+                }
+                if ("PENDING".equalsIgnoreCase(ticket.getStatus())) {
+                    pendingPayments.track(ticket);
+                } else if (ticket.isWaitlisted() && !ticket.getJourneyDate().toLocalDate().isBefore(today)) {
+                    waiting.add(ticket);
+                }
+            }
+            waiting.sort(Comparator.comparing(Ticket::getBookingDateTime).thenComparing(Ticket::getPnr));
+            for (Ticket ticket : waiting) {
+                waitlist.getOrCreate(ticket.getTrain().getTrainNumber(), ticket.getJourneyDate().toLocalDate(),
+                    ticket.getSeatType()).restore(ticket.getPnr(), ticket.getBookingDateTime());
+            }
+            restoreKeptSeats(waiting);
         } catch (Exception e) {
-            System.err.println("Error loading data: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error loading data", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    // Hands seats kept for a waitlist before the restart back to its queue,
+    // or puts them back on sale if nobody is waiting any more
+    private void restoreKeptSeats(List<Ticket> waiting) {
+        Set<String> claimed = new HashSet<>();
+        for (Ticket ticket : waiting) {
+            Train train = ticket.getTrain();
+            LocalDate journeyDate = ticket.getJourneyDate().toLocalDate();
+            boolean ac = "AC".equalsIgnoreCase(ticket.getSeatType());
+            if (claimed.add(train.getTrainNumber() + "|" + journeyDate + "|" + ac)) {
+                SeatInventory inventory = train.getInventory();
+                waitlist.get(train.getTrainNumber(), journeyDate, ticket.getSeatType()).setReservedSeats(
+                    ac ? inventory.getKeptAc(journeyDate) : inventory.getKeptNonAc(journeyDate));
+            }
+        }
+        for (Train train : trains.values()) {
+            SeatInventory inventory = train.getInventory();
+            for (LocalDate journeyDate : inventory.getKeptDates()) {
+                String key = train.getTrainNumber() + "|" + journeyDate + "|";
+                int ac = claimed.contains(key + true) ? 0 : inventory.getKeptAc(journeyDate);
+                int nonAc = claimed.contains(key + false) ? 0 : inventory.getKeptNonAc(journeyDate);
+                if (ac > 0 || nonAc > 0) {
+                    train.releaseKeptSeats(journeyDate, ac, nonAc);
+                }
+            }
+        }
+    }
+
+    private void restoreRoute(Ticket ticket) {
+        try {
+            ticket.getTrain().restoreRoute(ticket.getJourneyDate().toLocalDate(), ticket.getSeatType(),
+                ticket.getFromStation(), ticket.getToStation(), ticket.getNumberOfSeats(),
+                ticket.getCoachNumber(), ticket.getSeatNumbers());
+        } catch (IllegalArgumentException e) {
+            Log.warn("Ticket {}: {}", ticket.getPnr(), e.getMessage());
         }
     }
 
@@ -346,7 +965,7 @@ public void verifyTrainSeats(String trainNumber) {
         Map<String, Train> trainMap = new HashMap<>();
         File file = new File(TRAINS_FILE);
         if (!file.exists()) {
-            System.out.println("Trains file not found, will be created on first save");
+            Log.info("Trains file not found, will be created on first save");
             return trainMap;
         }
 
@@ -354,26 +973,12 @@ public void verifyTrainSeats(String trainNumber) {
             String line;
             while ((line = reader.readLine()) != null) {
                 try {
-                    String[] parts = line.split("\\|");
-                    if (parts.length >= 9) {
-                        Train train = new Train(
-                            parts[0], parts[1], parts[2], parts[3],
-                            LocalDateTime.parse(parts[4], DATE_TIME_FORMATTER),
-                            LocalDateTime.parse(parts[5], DATE_TIME_FORMATTER),
-                            Integer.parseInt(parts[6]),
-                            Double.parseDouble(parts[7]),
-                            Integer.parseInt(parts[8])
-                        );
-                        
-                        if (parts.length >= 11) {
-                            train.setAvailableAcSeats(Integer.parseInt(parts[9]));
-                            train.setAvailableNonAcSeats(Integer.parseInt(parts[10]));
-                        }
+                    Train train = parseTrain(line.split("\\|"));
+                    if (train != null) {
                         trainMap.put(train.getTrainNumber(), train);
                     }
                 } catch (Exception e) {
-                    System.err.println("Error parsing train: " + line);
-                    e.printStackTrace();
+                    Log.error("Error parsing train: {}", line, e);
                 }
             }
         }
@@ -384,7 +989,7 @@ public void verifyTrainSeats(String trainNumber) {
         Map<String, Ticket> ticketMap = new HashMap<>();
         File file = new File(TICKETS_FILE);
         if (!file.exists()) {
-            System.out.println("Tickets file not found, will be created on first save");
+            Log.info("Tickets file not found, will be created on first save");
             return ticketMap;
         }
 
@@ -399,56 +1004,18 @@ public void verifyTrainSeats(String trainNumber) {
 
                     String[] parts = line.split("\\|");
                     if (parts.length < 14) {
-                        System.err.println("Invalid ticket format at line " + lineNumber + ", expected 14+ fields, got " + parts.length);
+                        Log.warn("Invalid ticket format at line {}, expected 14+ fields, got {}", lineNumber, parts.length);
                         continue;
                     }
 
-                    // Parse required fields
-                    String pnr = parts[0];
-                    String userId = parts[1];
-                    String trainNumber = parts[2];
-                    int numberOfSeats = Integer.parseInt(parts[3]);
-                    String seatType = parts[4];
-                    String passengerName = parts[5];
-                    String phoneNumber = parts[6];
-                    String email = parts[7];
-                    LocalDateTime journeyDate = LocalDateTime.parse(parts[8], DATE_TIME_FORMATTER);
-                    LocalDateTime bookingDate = LocalDateTime.parse(parts[9], DATE_TIME_FORMATTER);
-                    String status = parts[10];
-                    String paymentMethod = parts[11];
-                    String paymentId = parts[12];
-                    String transactionRef = parts[13];
-
-                    // Get referenced train
-                    Train train = trains.get(trainNumber);
-                    if (train == null) {
-                        System.err.println("Train not found for ticket at line " + lineNumber + ": " + trainNumber);
+                    Ticket ticket = parseTicket(parts);
+                    if (ticket == null) {
+                        Log.warn("Train not found for ticket at line {}: {}", lineNumber, parts[2]);
                         continue;
                     }
-
-                    // Create ticket
-                    Ticket ticket = new Ticket(
-                        userId, train, numberOfSeats, seatType,
-                        passengerName, phoneNumber, email, journeyDate
-                    );
-                    ticket.setPnr(pnr);
-                    ticket.setBookingDateTime(bookingDate);
-                    ticket.setStatus(status);
-                    ticket.setPaymentMethod(paymentMethod);
-                    ticket.setPaymentId(paymentId);
-                    ticket.setTransactionReference(transactionRef);
-
-                    // Parse fare information if available
-                    if (parts.length >= 17) {
-                        ticket.setBaseFare(Double.parseDouble(parts[14]));
-                        ticket.setTax(Double.parseDouble(parts[15]));
-                        ticket.setTotalFare(Double.parseDouble(parts[16]));
-                    }
-
-                    ticketMap.put(pnr, ticket);
+                    ticketMap.put(ticket.getPnr(), ticket);
                 } catch (Exception e) {
-                    System.err.println("Error parsing ticket at line " + lineNumber + ": " + line);
-                    e.printStackTrace();
+                    Log.error("Error parsing ticket at line {}: {}", lineNumber, line, e);
                 }
             }
         }
@@ -472,59 +1039,194 @@ public void verifyTrainSeats(String trainNumber) {
         return credMap;
     }
 
-    private void saveTrains() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(TRAINS_FILE))) {
-            for (Train train : trains.values()) {
-                writer.println(String.format("%s|%s|%s|%s|%s|%s|%d|%.2f|%d|%d|%d",
-                    train.getTrainNumber(),
-                    train.getTrainName(),
-                    train.getSource(),
-                    train.getDestination(),
-                    train.getDepartureTime().format(DATE_TIME_FORMATTER),
-                    train.getArrivalTime().format(DATE_TIME_FORMATTER),
-                    train.getTotalSeats(),
-                    train.getBaseFare(),
-                    train.getAvailableAcSeats(),
-                    train.getAvailableNonAcSeats(),
-                    train.getAcSeats()));
+    // Journal replay. Records carry absolute values, so replaying a record
+    // that is already reflected in the snapshot is harmless.
+    private void applyJournalRecord(String[] record) {
+        try {
+            String[] parts = record[1].split("\\|");
+            switch (record[0]) {
+                case BookingJournal.BOOK:
+                    Ticket ticket = parseTicket(parts);
+                    if (ticket != null) {
+                        putTicket(ticket);
+                    }
+                    break;
+                case BookingJournal.STATUS:
+                    Ticket existing = tickets.get(parts[0]);
+                    if (existing != null) {
+                        existing.setStatus(parts[1]);
+                    }
+                    break;
+                case BookingJournal.SEATS:
+                    Train train = trains.get(parts[0]);
+                    if (train != null) {
+                        LocalDate journeyDate = LocalDate.parse(parts[1]);
+                        train.setAvailableSeats(journeyDate, Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                        train.setKeptSeats(journeyDate, Integer.parseInt(parts[4]), Integer.parseInt(parts[5]));
+                    }
+                    break;
+                case BookingJournal.TRAIN:
+                    Train parsed = parseTrain(parts);
+                    Train current = parsed != null ? trains.get(parsed.getTrainNumber()) : null;
+                    if (current == null) {
+                        if (parsed != null) trains.put(parsed.getTrainNumber(), parsed);
+                    } else {
+                        // Update in place so loaded tickets keep pointing at the same train
+                        applyTrainDetails(current, parsed);
+                    }
+                    break;
+                case BookingJournal.DELETE_TRAIN:
+                    trains.remove(parts[0]);
+                    break;
+                case BookingJournal.USER:
+                    users.put(parts[0], parts[1]);
+                    break;
+                default:
+                    Log.warn("Unknown journal record type: {}", record[0]);
             }
-        } catch (IOException e) {
-            System.err.println("Error saving trains: " + e.getMessage());
-            e.printStackTrace();
+        } catch (Exception e) {
+            Log.warn("Skipping unreadable journal record: {}|{}", record[0], record[1]);
         }
     }
 
-    private void saveTickets() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(TICKETS_FILE))) {
-            for (Ticket ticket : tickets.values()) {
-                writer.println(String.join("|",
-                    ticket.getPnr(),
-                    ticket.getUserId(),
-                    ticket.getTrain().getTrainNumber(),
-                    String.valueOf(ticket.getNumberOfSeats()),
-                    ticket.getSeatType(),
-                    ticket.getPassengerName(),
-                    ticket.getPhoneNumber(),
-                    ticket.getEmail(),
-                    ticket.getJourneyDate().format(DATE_TIME_FORMATTER),
-                    ticket.getBookingDateTime().format(DATE_TIME_FORMATTER),
-                    ticket.getStatus(),
-                    ticket.getPaymentMethod(),
-                    ticket.getPaymentId(),
-                    ticket.getTransactionReference() != null ? ticket.getTransactionReference() : "",
-                    String.valueOf(ticket.getBaseFare()),
-                    String.valueOf(ticket.getTax()),
-                    String.valueOf(ticket.getTotalFare())
-                ));
+    private void applyTrainDetails(Train target, Train source) {
+        target.setTrainName(source.getTrainName());
+        target.setSource(source.getSource());
+        target.setDestination(source.getDestination());
+        // Order the updates so each setter's validation sees a consistent schedule
+        if (source.getDepartureTime().isAfter(target.getArrivalTime())) {
+            target.setArrivalTime(source.getArrivalTime());
+            target.setDepartureTime(source.getDepartureTime());
+        } else {
+            target.setDepartureTime(source.getDepartureTime());
+            target.setArrivalTime(source.getArrivalTime());
+        }
+        if (source.getTotalSeats() >= target.getAcSeats()) {
+            target.setTotalSeats(source.getTotalSeats());
+            target.setAcSeats(source.getAcSeats());
+        } else {
+            target.setAcSeats(source.getAcSeats());
+            target.setTotalSeats(source.getTotalSeats());
+        }
+        // Per-date availability comes from SEATS records, not the train line
+        target.setBaseFare(source.getBaseFare());
+        target.setIntermediateStops(source.getIntermediateStops());
+    }
+
+    private String formatTrain(Train train) {
+        // Field order matches parseTrain: total seats, fare, AC seats, availability, then stops
+        return String.format("%s|%s|%s|%s|%s|%s|%d|%.2f|%d|%d|%d|%s",
+            train.getTrainNumber(),
+            train.getTrainName(),
+            train.getSource(),
+            train.getDestination(),
+            train.getDepartureTime().format(DATE_TIME_FORMATTER),
+            train.getArrivalTime().format(DATE_TIME_FORMATTER),
+            train.getTotalSeats(),
+            train.getBaseFare(),
+            train.getAcSeats(),
+            train.getAvailableAcSeats(),
+            train.getAvailableNonAcSeats(),
+            Train.formatStops(train.getIntermediateStops()));
+    }
+
+    private Train parseTrain(String[] parts) {
+        if (parts.length < 9) {
+            return null;
+        }
+        Train train = new Train(
+            parts[0], parts[1], parts[2], parts[3],
+            LocalDateTime.parse(parts[4], DATE_TIME_FORMATTER),
+            LocalDateTime.parse(parts[5], DATE_TIME_FORMATTER),
+            Integer.parseInt(parts[6]),
+            Double.parseDouble(parts[7]),
+            Integer.parseInt(parts[8])
+        );
+        
+        if (parts.length >= 11) {
+            train.setAvailableAcSeats(Integer.parseInt(parts[9]));
+            train.setAvailableNonAcSeats(Integer.parseInt(parts[10]));
+        }
+        if (parts.length >= 12) {
+            try {
+                train.setIntermediateStops(Train.parseStops(parts[11]));
+            } catch (IllegalArgumentException e) {
+                Log.warn("Train {}: ignoring stops: {}", parts[0], e.getMessage());
             }
-        } catch (IOException e) {
-            System.err.println("Error saving tickets: " + e.getMessage());
-            e.printStackTrace();
         }
+        return train;
     }
 
-    private void saveUsers() {
-        saveCredentials(users, USERS_FILE);
+    private String formatTicket(Ticket ticket) {
+        String line = String.join("|",
+            ticket.getPnr(),
+            ticket.getUserId(),
+            ticket.getTrain().getTrainNumber(),
+            String.valueOf(ticket.getNumberOfSeats()),
+            ticket.getSeatType(),
+            ticket.getPassengerName(),
+            ticket.getPhoneNumber(),
+            ticket.getEmail(),
+            ticket.getJourneyDate().format(DATE_TIME_FORMATTER),
+            ticket.getBookingDateTime().format(DATE_TIME_FORMATTER),
+            ticket.getStatus(),
+            ticket.getPaymentMethod(),
+            ticket.getPaymentId(),
+            ticket.getTransactionReference() != null ? ticket.getTransactionReference() : "",
+            String.valueOf(ticket.getBaseFare()),
+            String.valueOf(ticket.getTax()),
+            String.valueOf(ticket.getTotalFare()),
+            ticket.getCoachNumber(),
+            String.join(",", ticket.getSeatNumbers())
+        );
+        // Part-route tickets add their stations; whole-run lines are unchanged
+        return ticket.isPartOfRoute() ? line + "|" + ticket.getFromStation() + "|" + ticket.getToStation() : line;
+    }
+
+    // Returns null when the referenced train no longer exists
+    private Ticket parseTicket(String[] parts) {
+        // Parse required fields
+        String pnr = parts[0];
+        String userId = parts[1];
+        String trainNumber = parts[2];
+        int numberOfSeats = Integer.parseInt(parts[3]);
+        String seatType = parts[4];
+        String passengerName = parts[5];
+        String phoneNumber = parts[6];
+        String email = parts[7];
+        LocalDateTime journeyDate = LocalDateTime.parse(parts[8], DATE_TIME_FORMATTER);
+        LocalDateTime bookingDate = LocalDateTime.parse(parts[9], DATE_TIME_FORMATTER);
+        String status = parts[10];
+        String paymentMethod = parts[11];
+        String paymentId = parts[12];
+        String transactionRef = parts.length > 13 ? parts[13] : "";
+
+        // Get referenced train
+        Train train = trains.get(trainNumber);
+        if (train == null) {
+            return null;
+        }
+
+        double baseFare = 0, tax = 0, totalFare = 0;
+        // Parse fare information if available
+        if (parts.length >= 17) {
+            baseFare = Double.parseDouble(parts[14]);
+            tax = Double.parseDouble(parts[15]);
+            totalFare = Double.parseDouble(parts[16]);
+        }
+        // Coach and berths, absent from lines written before berths were allocated
+        String coachNumber = null;
+        List<String> seatNumbers = null;
+        if (parts.length >= 19) {
+            coachNumber = parts[17];
+            seatNumbers = parts[18].isEmpty() ? Collections.emptyList() : Arrays.asList(parts[18].split(","));
+        }
+        String fromStation = parts.length >= 21 ? parts[19] : null;
+        String toStation = parts.length >= 21 ? parts[20] : null;
+        return Ticket.restore(pnr, userId, train, numberOfSeats, seatType,
+            passengerName, phoneNumber, email, journeyDate, bookingDate, status,
+            paymentMethod, paymentId, transactionRef, baseFare, tax, totalFare,
+            coachNumber, seatNumbers, fromStation, toStation);
     }
 
     private void saveAdmins() {
@@ -537,26 +1239,96 @@ public void verifyTrainSeats(String trainNumber) {
                 writer.println(entry.getKey() + ":" + entry.getValue());
             }
         } catch (IOException e) {
-            System.err.println("Error saving credentials: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error saving credentials", e);
         }
     }
 
-    public synchronized void generateReport(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+    public ReportAggregates getReportAggregates() {
+        return reportAggregates;
+    }
+
+    // Revenue and occupancy report built from the running aggregates, so it
+    // costs O(trains x dates) rather than a ticket scan and takes no booking
+    // locks. The totals are read live while bookings continue, so they are
+    // approximate: a booking made during the run may show in one section and
+    // not another. Train names and capacities come from the current read
+    // view. Reports percent complete to progress and, if the calling thread
+    // is interrupted, deletes the partial file and throws
+    // InterruptedIOException.
+    public void generateReport(String filename, IntConsumer progress) throws IOException {
+        File file = new File(filename);
+        ReadView view = getReadView();
+        ReportAggregates.Totals overall = reportAggregates.overall(view::getTrain);
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
             writer.println("Railway Booking System Report");
-            writer.println("Generated at: " + LocalDateTime.now());
-            writer.println("\nTrains:");
-            for (Train train : trains.values()) {
-                writer.println(train.getTrainNumber() + " - " + train.getTrainName());
+            writer.println("Generated at: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            writer.println();
+            writer.println("Summary");
+            writer.printf("  Trains:         %,d%n", view.getTrainCount());
+            writer.printf("  Active tickets: %,d (%,d seats)%n", overall.getTickets(), overall.getSeatsSold());
+            writer.printf("  Cancellations:  %,d%n", overall.getCancellations());
+            writer.printf("  Revenue:        Rs %,.2f (tax Rs %,.2f)%n", overall.getRevenue(), overall.getTax());
+            writer.printf("  Occupancy:      %.1f%% of seats on dates with bookings%n", overall.getOccupancyPercent());
+
+            writer.println();
+            writer.println("By Train");
+            writeReportHeader(writer, "Train");
+            for (Map.Entry<String, ReportAggregates.Totals> row : reportAggregates.byTrain(view::getTrain).entrySet()) {
+                ReadView.TrainRecord train = view.getTrain(row.getKey());
+                String label = row.getKey() + (train != null ? " " + train.getTrainName() : " (deleted)");
+                writeReportRow(writer, label, row.getValue());
             }
-            writer.println("\nTickets:");
-            for (Ticket ticket : tickets.values()) {
-                writer.println(ticket.getPnr() + " - " + ticket.getPassengerName());
+            checkReportCancelled();
+            progress.accept(25);
+
+            writer.println();
+            writer.println("By Journey Date");
+            writeReportHeader(writer, "Date");
+            for (Map.Entry<LocalDate, ReportAggregates.Totals> row : reportAggregates.byJourneyDate(view::getTrain).entrySet()) {
+                writeReportRow(writer, row.getKey().toString(), row.getValue());
+            }
+            checkReportCancelled();
+            progress.accept(50);
+
+            writer.println();
+            writer.println("By Seat Class");
+            writeReportHeader(writer, "Class");
+            for (Map.Entry<String, ReportAggregates.Totals> row : reportAggregates.bySeatClass(view::getTrain).entrySet()) {
+                writeReportRow(writer, row.getKey(), row.getValue());
+            }
+            checkReportCancelled();
+            progress.accept(75);
+
+            writer.println();
+            writer.println("By Payment Method");
+            writeReportHeader(writer, "Payment Method");
+            for (Map.Entry<String, ReportAggregates.Totals> row : reportAggregates.byPaymentMethod(view::getTrain).entrySet()) {
+                writeReportRow(writer, row.getKey(), row.getValue());
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error writing " + filename);
             }
         } catch (IOException e) {
-            System.err.println("Error generating report: " + e.getMessage());
-            e.printStackTrace();
+            file.delete();
+            throw e;
+        }
+        progress.accept(100);
+    }
+
+    private static void writeReportHeader(PrintWriter writer, String label) {
+        writer.printf("  %-32s %10s %10s %10s %16s %14s %10s%n",
+            label, "Tickets", "Seats", "Cancelled", "Revenue (Rs)", "Tax (Rs)", "Occupancy");
+    }
+
+    private static void writeReportRow(PrintWriter writer, String label, ReportAggregates.Totals totals) {
+        writer.printf("  %-32s %,10d %,10d %,10d %,16.2f %,14.2f %9.1f%%%n", label, totals.getTickets(),
+            totals.getSeatsSold(), totals.getCancellations(), totals.getRevenue(), totals.getTax(),
+            totals.getOccupancyPercent());
+    }
+
+    private static void checkReportCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Report cancelled");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,388 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Throughput, tail latency and allocation of the engine's hot paths, run
+// against a synthetic dataset of the requested size. Plain Java so it runs
+// from the compiled classes without any build tooling:
+//
+//   java -Xmx8g EngineBenchmark --benchmarks=book,cancel,fare,journal,snapshot-save,snapshot-load
+//        --tickets=1000,100000,1000000 --threads=1,4,16 --warmup=2 --seconds=5
+//        [--csv=results.csv] [--baseline=previous.csv]
+//
+// Each thread times every operation into a LatencyHistogram and reads its own
+// allocated bytes from the JVM, so results show ops/s, p50/p99/p999 and
+// bytes allocated per operation. Snapshot benchmarks are single-threaded.
+// Pass --baseline with an earlier --csv file to print the change per row.
+public class EngineBenchmark {
+    private static final String[] SEAT_TYPES = { "AC", "Non-AC" };
+    private static final int TICKETS_KEPT_PER_THREAD = 32;
+
+    private final List<Train> trains = new ArrayList<>();
+    private final List<Ticket> tickets = new ArrayList<>();
+    private final Map<String, String> users = new HashMap<>();
+    private final File workDirectory;
+
+    private EngineBenchmark(int ticketCount, File workDirectory) {
+        this.workDirectory = workDirectory;
+        int trainCount = Math.max(8, ticketCount / 5000);
+        LocalDateTime departure = LocalDate.now().atTime(6, 0);
+        for (int i = 0; i < trainCount; i++) {
+            Train train = new Train("B" + i, "Bench " + i, "Station" + (i % 50), "Station" + ((i + 7) % 50),
+                departure.plusMinutes(i % 600), departure.plusMinutes(i % 600 + 480), 1392, 500, 240);
+            trains.add(train);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        PnrGenerator pnrs = Ticket.getPnrGenerator();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < ticketCount; i++) {
+            Train train = trains.get(random.nextInt(trainCount));
+            String userId = "user" + random.nextInt(Math.max(1, ticketCount / 10));
+            LocalDateTime journey = now.plusDays(1 + random.nextInt(SeatInventory.HORIZON_DAYS - 2));
+            tickets.add(Ticket.restore(pnrs.nextPnr(), userId, train, 2, SEAT_TYPES[i & 1],
+                "Passenger " + i, "98" + (10000000 + i), "p" + i + "@example.com", journey, now,
+                (i % 10 == 0) ? "CANCELLED" : "CONFIRMED", "UPI", "PAY-" + i, "TXN" + i,
+                1000, 180, 1180, "-", Collections.emptyList()));
+            users.putIfAbsent(userId, "secret");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<String> benchmarks = list(options.getOrDefault("benchmarks",
+            "book,cancel,fare,journal,snapshot-save,snapshot-load"));
+        List<String> sizes = list(options.getOrDefault("tickets", "1000,100000"));
+        List<String> threadCounts = list(options.getOrDefault("threads", "1," + Runtime.getRuntime().availableProcessors()));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        int measureSeconds = Integer.parseInt(options.getOrDefault("seconds", "5"));
+        Map<String, String[]> baseline = options.containsKey("baseline")
+            ? readCsv(new File(options.get("baseline"))) : Collections.emptyMap();
+
+        List<String[]> results = new ArrayList<>();
+        PrintStream console = System.out;
+        console.printf("%-14s %10s %7s %14s %10s %10s %10s %10s %12s%n",
+            "benchmark", "tickets", "threads", "ops/s", "p50 us", "p99 us", "p999 us", "max us", "alloc B/op");
+
+        for (String size : sizes) {
+            File work = Files.createTempDirectory("railway-bench").toFile();
+            EngineBenchmark bench = new EngineBenchmark(Integer.parseInt(size), work);
+            try {
+                for (String benchmark : benchmarks) {
+                    boolean singleThreaded = benchmark.startsWith("snapshot");
+                    for (String threads : singleThreaded ? List.of("1") : threadCounts) {
+                        Operation operation = bench.operation(benchmark);
+                        // Engine code still logs to stdout on some paths; keep it out of the timings
+                        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                        Result result;
+                        try {
+                            run(operation, Integer.parseInt(threads), warmupSeconds);
+                            result = run(operation, Integer.parseInt(threads), measureSeconds);
+                        } finally {
+                            System.setOut(console);
+                            operation.close();
+                        }
+                        String[] row = result.toRow(benchmark, size, threads);
+                        results.add(row);
+                        console.printf("%-14s %10s %7s %14s %10s %10s %10s %10s %12s%s%n",
+                            (Object[]) concat(row, compare(row, baseline.get(key(row)))));
+                    }
+                }
+            } finally {
+                deleteRecursively(work);
+            }
+        }
+
+        if (options.containsKey("csv")) {
+            try (PrintWriter out = new PrintWriter(new FileWriter(options.get("csv")))) {
+                out.println("benchmark,tickets,threads,opsPerSec,p50Us,p99Us,p999Us,maxUs,allocBytesPerOp");
+                for (String[] row : results) {
+                    out.println(String.join(",", row));
+                }
+            }
+            console.println("Results written to " + options.get("csv"));
+        }
+        System.exit(0);
+    }
+
+    // One benchmarked call; state is per thread so threads only meet inside the engine
+    private interface Operation extends Closeable {
+        ThreadState newThreadState();
+
+        default void close() throws IOException {
+        }
+    }
+
+    private interface ThreadState {
+        // Runs untimed setup, then the timed call, and returns its duration in ns
+        long runOnce();
+    }
+
+    private Operation operation(String benchmark) throws IOException {
+        switch (benchmark) {
+            case "book":
+                return () -> new BookingState(true);
+            case "cancel":
+                return () -> new BookingState(false);
+            case "fare":
+                return () -> () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Train train = trains.get(random.nextInt(trains.size()));
+                    LocalDateTime journey = LocalDateTime.now().plusDays(1 + random.nextInt(60));
+                    long started = System.nanoTime();
+                    Ticket.quote(train, 1 + random.nextInt(4), SEAT_TYPES[random.nextInt(2)], journey);
+                    return System.nanoTime() - started;
+                };
+            case "journal":
+                return journalOperation();
+            case "snapshot-save":
+                return () -> () -> {
+                    long started = System.nanoTime();
+                    try {
+                        new SnapshotStore(workDirectory.getPath()).write(1, trains, Collections.emptyMap(), Collections.emptyMap(), tickets, users);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return System.nanoTime() - started;
+                };
+            case "snapshot-load":
+                SnapshotStore store = new SnapshotStore(workDirectory.getPath());
+                store.write(1, trains, Collections.emptyMap(), Collections.emptyMap(), tickets, users);
+                return () -> () -> {
+                    long started = System.nanoTime();
+                    if (store.loadLatest() == null) {
+                        throw new IllegalStateException("Snapshot did not load");
+                    }
+                    return System.nanoTime() - started;
+                };
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+        }
+    }
+
+    private Operation journalOperation() throws IOException {
+        File directory = Files.createTempDirectory(workDirectory.toPath(), "journal").toFile();
+        BookingJournal journal = new BookingJournal(directory.getPath(),
+            BookingJournal.Durability.BATCHED, 2);
+        String payload = String.join("|", "PNR0000000000000", "user1", "B1", "2", "AC", "Passenger Name",
+            "9810000000", "passenger@example.com", "2026-01-01T06:00", "2025-12-01T10:00:00",
+            "CONFIRMED", "UPI", "PAY-1", "TXN1", "1000.0", "180.0", "1180.0", "A1", "01,02");
+        return new Operation() {
+            public ThreadState newThreadState() {
+                return () -> {
+                    long started = System.nanoTime();
+                    try {
+                        BookingJournal.await(journal.append(BookingJournal.BOOK, payload));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return System.nanoTime() - started;
+                };
+            }
+
+            public void close() throws IOException {
+                journal.close();
+            }
+        };
+    }
+
+    // Books and cancels through Train and Ticket exactly as DatabaseManager does,
+    // minus the journal. Only one side is timed; the other keeps inventory steady.
+    private class BookingState implements ThreadState {
+        private final boolean timeBooking;
+        private final ArrayDeque<Ticket> held = new ArrayDeque<>();
+
+        BookingState(boolean timeBooking) {
+            this.timeBooking = timeBooking;
+        }
+
+        public long runOnce() {
+            if (timeBooking) {
+                if (held.size() >= TICKETS_KEPT_PER_THREAD) {
+                    cancel(held.poll());
+                }
+                long started = System.nanoTime();
+                Ticket ticket = book();
+                long elapsed = System.nanoTime() - started;
+                if (ticket != null) held.add(ticket);
+                return elapsed;
+            }
+            while (held.size() < TICKETS_KEPT_PER_THREAD) {
+                Ticket ticket = book();
+                if (ticket == null) break;
+                held.add(ticket);
+            }
+            Ticket ticket = held.poll();
+            long started = System.nanoTime();
+            if (ticket != null) cancel(ticket);
+            return System.nanoTime() - started;
+        }
+
+        private Ticket book() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Train train = trains.get(random.nextInt(trains.size()));
+            LocalDate date = LocalDate.now().plusDays(1 + random.nextInt(SeatInventory.HORIZON_DAYS - 2));
+            String seatType = SEAT_TYPES[random.nextInt(2)];
+            int seats = 1 + random.nextInt(4);
+            if (!train.bookSeats(date, seats, seatType)) {
+                return null;
+            }
+            Ticket ticket = new Ticket("bench", train, seats, seatType, "Passenger", "9810000000",
+                "passenger@example.com", date.atTime(train.getDepartureTime().toLocalTime()));
+            ticket.setPaymentDetails("UPI", "TXN");
+            return ticket;
+        }
+
+        private void cancel(Ticket ticket) {
+            ticket.cancelTicket();
+            ticket.getTrain().cancelSeats(ticket.getJourneyDate().toLocalDate(),
+                ticket.getNumberOfSeats(), ticket.getSeatType());
+        }
+    }
+
+    private static class Result {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long operations;
+        long allocatedBytes;
+        long elapsedNanos;
+
+        String[] toRow(String benchmark, String tickets, String threads) {
+            double opsPerSecond = operations * 1e9 / Math.max(1, elapsedNanos);
+            return new String[] { benchmark, tickets, threads,
+                String.format("%.0f", opsPerSecond),
+                micros(latency.getValueAtPercentile(50)),
+                micros(latency.getValueAtPercentile(99)),
+                micros(latency.getValueAtPercentile(99.9)),
+                micros(latency.getMax()),
+                allocatedBytes < 0 ? "n/a" : String.valueOf(allocatedBytes / Math.max(1, operations)) };
+        }
+
+        private static String micros(long nanos) {
+            return String.format("%.1f", nanos / 1000.0);
+        }
+    }
+
+    private static Result run(Operation operation, int threadCount, int seconds) throws InterruptedException {
+        Result result = new Result();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] operations = new long[threadCount];
+        long[] allocated = new long[threadCount];
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                ThreadState state = operation.newThreadState();
+                LatencyHistogram local = new LatencyHistogram();
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long allocatedBefore = allocatedBytes();
+                long count = 0;
+                // Always finish at least one call, even for operations longer than the run
+                do {
+                    local.record(state.runOnce());
+                    count++;
+                } while (running.get());
+                long allocatedAfter = allocatedBytes();
+                allocated[index] = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+                operations[index] = count;
+                result.latency.add(local);
+            }, "bench-" + t);
+            workers[t].start();
+        }
+        ready.await();
+        long started = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        result.elapsedNanos = System.nanoTime() - started;
+        for (int t = 0; t < threadCount; t++) {
+            result.operations += operations[t];
+            result.allocatedBytes = allocated[t] < 0 || result.allocatedBytes < 0 ? -1 : result.allocatedBytes + allocated[t];
+        }
+        return result;
+    }
+
+    // Bytes allocated by the current thread so far, or -1 if the JVM cannot say
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static String[] compare(String[] row, String[] baseline) {
+        if (baseline == null) {
+            return new String[] { "" };
+        }
+        try {
+            double ops = Double.parseDouble(row[3]) / Double.parseDouble(baseline[3]) - 1;
+            double p99 = Double.parseDouble(row[5]) / Double.parseDouble(baseline[5]) - 1;
+            return new String[] { String.format("   ops/s %+.1f%%, p99 %+.1f%% vs baseline", ops * 100, p99 * 100) };
+        } catch (NumberFormatException e) {
+            return new String[] { "" };
+        }
+    }
+
+    private static Map<String, String[]> readCsv(File file) throws IOException {
+        Map<String, String[]> rows = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] row = line.split(",");
+                rows.put(key(row), row);
+            }
+        }
+        return rows;
+    }
+
+    private static String key(String[] row) {
+        return row[0] + "/" + row[1] + "/" + row[2];
+    }
+
+    private static String[] concat(String[] row, String[] extra) {
+        String[] all = Arrays.copyOf(row, row.length + extra.length);
+        System.arraycopy(extra, 0, all, row.length, extra.length);
+        return all;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static List<String> list(String value) {
+        return Arrays.asList(value.split(","));
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,33 @@
+import java.io.Serializable;
+
+// Price of a prospective booking, worked out the same way a new Ticket is priced
+public class FareQuote implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String trainNumber;
+    private final String seatType;
+    private final int numberOfSeats;
+    private final String bookingClass;
+    private final double baseFare;
+    private final double tax;
+    private final double totalFare;
+
+    public FareQuote(String trainNumber, String seatType, int numberOfSeats, String bookingClass,
+                     double baseFare, double tax, double totalFare) {
+        this.trainNumber = trainNumber;
+        this.seatType = seatType;
+        this.numberOfSeats = numberOfSeats;
+        this.bookingClass = bookingClass;
+        this.baseFare = baseFare;
+        this.tax = tax;
+        this.totalFare = totalFare;
+    }
+
+    public String getTrainNumber() { return trainNumber; }
+    public String getSeatType() { return seatType; }
+    public int getNumberOfSeats() { return numberOfSeats; }
+    public String getBookingClass() { return bookingClass; }
+    public double getBaseFare() { return baseFare; }
+    public double getTax() { return tax; }
+    public double getTotalFare() { return totalFare; }
+}
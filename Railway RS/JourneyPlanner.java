@@ -0,0 +1,368 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Journeys between any two stations, changing trains where needed. Every
+// train runs daily at its departure time of day, so the timetable is one
+// day of elementary connections, each a train running between two adjacent
+// stops of its route. They are indexed once per change to the trains,
+// sorted by departure time; a query only scans that array.
+//
+// Queries use the connection scan algorithm in rounds: round r finds the
+// earliest arrival at every station using at most r trains, boarding only
+// at stations reached in round r - 1. The first round that reaches the
+// destination gives the journey with the fewest changes; the last round
+// that improves on it gives the earliest arrival. Each round is one pass
+// over the connections departing between the requested time and the best
+// arrival found so far, so a query costs a few milliseconds even with tens
+// of thousands of trains.
+//
+// A change of trains needs at least the minimum connection time at the
+// station; staying on the same train does not.
+//
+// Tuning: -Drailway.planner.minConnectionMinutes (default 30),
+// -Drailway.planner.maxTransfers (default 3) and -Drailway.planner.searchDays
+// (default 2, how many days of departures a query looks at).
+public class JourneyPlanner {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final int minConnectionMinutes;
+    private final int maxTransfers;
+    private final int searchDays;
+    private volatile Network network = Network.build(Collections.emptyList());
+
+    public JourneyPlanner(int minConnectionMinutes, int maxTransfers, int searchDays) {
+        if (minConnectionMinutes < 0 || maxTransfers < 0 || searchDays <= 0) {
+            throw new IllegalArgumentException("Invalid journey planner settings");
+        }
+        this.minConnectionMinutes = minConnectionMinutes;
+        this.maxTransfers = maxTransfers;
+        this.searchDays = searchDays;
+    }
+
+    // One train between two stations of its route
+    public static final class Leg {
+        private final Train train;
+        private final String fromStation;
+        private final String toStation;
+        private final LocalDateTime departure;
+        private final LocalDateTime arrival;
+        // The date the train leaves its source, which is what a booking is for
+        private final LocalDate journeyDate;
+
+        Leg(Train train, String fromStation, String toStation, LocalDateTime departure, LocalDateTime arrival,
+            LocalDate journeyDate) {
+            this.train = train;
+            this.fromStation = fromStation;
+            this.toStation = toStation;
+            this.departure = departure;
+            this.arrival = arrival;
+            this.journeyDate = journeyDate;
+        }
+
+        public Train getTrain() { return train; }
+        public String getFromStation() { return fromStation; }
+        public String getToStation() { return toStation; }
+        public LocalDateTime getDeparture() { return departure; }
+        public LocalDateTime getArrival() { return arrival; }
+        public LocalDate getJourneyDate() { return journeyDate; }
+    }
+
+    public static final class Journey {
+        private final List<Leg> legs;
+
+        Journey(List<Leg> legs) {
+            this.legs = Collections.unmodifiableList(legs);
+        }
+
+        public List<Leg> getLegs() { return legs; }
+        public LocalDateTime getDeparture() { return legs.get(0).getDeparture(); }
+        public LocalDateTime getArrival() { return legs.get(legs.size() - 1).getArrival(); }
+        public int getTransfers() { return legs.size() - 1; }
+    }
+
+    // Both answers to one query; they are the same journey when the fastest
+    // one needs the fewest changes. Both are null if nothing gets there in time.
+    public static final class Plan {
+        public final Journey earliestArrival;
+        public final Journey fewestTransfers;
+
+        Plan(Journey earliestArrival, Journey fewestTransfers) {
+            this.earliestArrival = earliestArrival;
+            this.fewestTransfers = fewestTransfers;
+        }
+
+        public boolean isEmpty() {
+            return earliestArrival == null;
+        }
+    }
+
+    // Re-indexes the timetable. Serialized, so the last rebuild always sees
+    // the latest trains; queries keep using the old index until it is replaced.
+    public synchronized void rebuild(Collection<Train> trains) {
+        long started = System.nanoTime();
+        Network rebuilt = Network.build(trains);
+        network = rebuilt;
+        Log.debug("Journey planner indexed {} connections in {} ms", rebuilt.size(),
+            (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public int getStationCount() {
+        return network.stationNames.length;
+    }
+
+    // Journeys leaving from on date no earlier than the given time. Throws
+    // IllegalArgumentException if no train calls at either station.
+    public Plan plan(String from, String to, LocalDate date, LocalTime earliestDeparture) {
+        long started = System.nanoTime();
+        Network net = network;
+        int origin = net.stationId(from);
+        int target = net.stationId(to);
+        if (origin == target) {
+            throw new IllegalArgumentException("From and to stations must be different");
+        }
+        int start = earliestDeparture.getHour() * 60 + earliestDeparture.getMinute();
+        int stations = net.stationNames.length;
+        int rounds = maxTransfers + 1;
+        // Trains that left their source up to maxDayOffset days before the
+        // query date may still be running on it
+        int runDays = net.maxDayOffset + searchDays;
+        boolean[] bookable = new boolean[runDays];
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < runDays; i++) {
+            LocalDate runDate = date.plusDays(i - net.maxDayOffset);
+            bookable[i] = !runDate.isBefore(today) && SeatInventory.isWithinHorizon(runDate);
+        }
+
+        // Per round and station: earliest arrival in minutes after midnight
+        // on the query date, and the connections that boarded and left the
+        // last train, each as day << 32 | connection
+        int[][] arrival = new int[rounds + 1][];
+        long[][] boarded = new long[rounds + 1][];
+        long[][] alighted = new long[rounds + 1][];
+        arrival[0] = new int[stations];
+        Arrays.fill(arrival[0], UNREACHED);
+        arrival[0][origin] = start;
+        boarded[0] = new long[stations];
+        alighted[0] = new long[stations];
+        // Round a run of a train was boarded in, and where
+        int[] tripRound = new int[net.trains.length * runDays];
+        long[] tripBoarded = new long[tripRound.length];
+        int first = net.firstDepartureAtOrAfter(start);
+
+        int lastRound = 0;
+        for (int round = 1; round <= rounds; round++) {
+            int[] previous = arrival[round - 1];
+            int[] current = previous.clone();
+            long[] boardedNow = boarded[round - 1].clone();
+            long[] alightedNow = alighted[round - 1].clone();
+            boolean improved = false;
+            scan:
+            for (int day = 0; day < searchDays; day++) {
+                for (int c = day == 0 ? first : 0; c < net.size(); c++) {
+                    int departs = day * MINUTES_PER_DAY + net.departure[c];
+                    if (departs >= current[target]) {
+                        break scan;
+                    }
+                    int run = day - net.dayOffset[c] + net.maxDayOffset;
+                    if (!bookable[run]) continue;
+                    int trip = net.train[c] * runDays + run;
+                    if (tripRound[trip] != round) {
+                        int station = net.fromStation[c];
+                        if (previous[station] == UNREACHED) continue;
+                        int ready = previous[station] + (station == origin ? 0 : minConnectionMinutes);
+                        if (ready > departs) continue;
+                        tripRound[trip] = round;
+                        tripBoarded[trip] = occurrence(day, c);
+                    }
+                    int arrives = departs + net.duration[c];
+                    int station = net.toStation[c];
+                    if (arrives < current[station] && station != origin) {
+                        current[station] = arrives;
+                        boardedNow[station] = tripBoarded[trip];
+                        alightedNow[station] = occurrence(day, c);
+                        improved = true;
+                    }
+                }
+            }
+            arrival[round] = current;
+            boarded[round] = boardedNow;
+            alighted[round] = alightedNow;
+            if (!improved) {
+                break;
+            }
+            lastRound = round;
+        }
+
+        Journey earliest = null;
+        Journey fewest = null;
+        int best = arrival[lastRound][target];
+        if (best != UNREACHED) {
+            for (int round = 1; round <= lastRound; round++) {
+                if (fewest == null && arrival[round][target] != UNREACHED) {
+                    fewest = journey(net, date, origin, target, round, arrival, boarded, alighted);
+                }
+                if (arrival[round][target] == best) {
+                    earliest = journey(net, date, origin, target, round, arrival, boarded, alighted);
+                    break;
+                }
+            }
+        }
+        Metrics.JOURNEY_PLAN.recordSince(started);
+        return new Plan(earliest, fewest);
+    }
+
+    // Walks back from the target through the round before each boarding.
+    // An earlier round's arrival at a change station is never later than
+    // the one used in the scan, so the connection still holds.
+    private Journey journey(Network net, LocalDate date, int origin, int target, int round,
+                            int[][] arrival, long[][] boarded, long[][] alighted) {
+        List<Leg> legs = new ArrayList<>();
+        LocalDateTime midnight = date.atStartOfDay();
+        int station = target;
+        while (station != origin && round > 0 && arrival[round][station] != UNREACHED) {
+            long on = boarded[round][station];
+            long off = alighted[round][station];
+            int onConnection = (int) on;
+            int offConnection = (int) off;
+            int onDay = (int) (on >>> 32);
+            int offDay = (int) (off >>> 32);
+            int departs = onDay * MINUTES_PER_DAY + net.departure[onConnection];
+            int arrives = offDay * MINUTES_PER_DAY + net.departure[offConnection] + net.duration[offConnection];
+            legs.add(new Leg(net.trains[net.train[onConnection]],
+                net.stationNames[net.fromStation[onConnection]], net.stationNames[net.toStation[offConnection]],
+                midnight.plusMinutes(departs), midnight.plusMinutes(arrives),
+                date.plusDays(onDay - net.dayOffset[onConnection])));
+            station = net.fromStation[onConnection];
+            round--;
+        }
+        Collections.reverse(legs);
+        return legs.isEmpty() ? null : new Journey(legs);
+    }
+
+    private static long occurrence(int day, int connection) {
+        return ((long) day << 32) | connection;
+    }
+
+    // Immutable timetable index. Connections are stored column-wise and
+    // sorted by departure minute of the day.
+    private static final class Network {
+        final Map<String, Integer> stationIds;
+        final String[] stationNames;
+        final Train[] trains;
+        final int[] departure;
+        final int[] duration;
+        // Days after the train's own departure that the connection departs
+        final int[] dayOffset;
+        final int[] fromStation;
+        final int[] toStation;
+        final int[] train;
+        final int maxDayOffset;
+
+        private Network(Map<String, Integer> stationIds, String[] stationNames, Train[] trains, int connections) {
+            this.stationIds = stationIds;
+            this.stationNames = stationNames;
+            this.trains = trains;
+            this.departure = new int[connections];
+            this.duration = new int[connections];
+            this.dayOffset = new int[connections];
+            this.fromStation = new int[connections];
+            this.toStation = new int[connections];
+            this.train = new int[connections];
+            int maxOffset = 0;
+            for (Train t : trains) {
+                int departs = t.getDepartureTime().getHour() * 60 + t.getDepartureTime().getMinute();
+                List<Train.Stop> route = t.getRoute();
+                int lastDeparture = departs + route.get(route.size() - 2).getMinutesFromDeparture();
+                maxOffset = Math.max(maxOffset, lastDeparture / MINUTES_PER_DAY);
+            }
+            this.maxDayOffset = maxOffset;
+        }
+
+        static Network build(Collection<Train> trains) {
+            Map<String, Integer> stationIds = new HashMap<>();
+            List<String> stationNames = new ArrayList<>();
+            Train[] trainArray = trains.toArray(new Train[0]);
+            int connections = 0;
+            for (Train t : trainArray) {
+                connections += t.getIntermediateStops().size() + 1;
+            }
+            // Departure minute of the day in the high bits and position in
+            // the low ones: sorting the keys orders connections by
+            // departure, and a train's own connections stay in route order
+            long[] keys = new long[connections];
+            int[][] columns = new int[5][connections];
+            int next = 0;
+            for (int t = 0; t < trainArray.length; t++) {
+                Train current = trainArray[t];
+                int departs = current.getDepartureTime().getHour() * 60 + current.getDepartureTime().getMinute();
+                List<Train.Stop> route = current.getRoute();
+                for (int i = 0; i + 1 < route.size(); i++) {
+                    int leaves = departs + route.get(i).getMinutesFromDeparture();
+                    int reaches = departs + route.get(i + 1).getMinutesFromDeparture();
+                    columns[0][next] = reaches - leaves;
+                    columns[1][next] = leaves / MINUTES_PER_DAY;
+                    columns[2][next] = id(stationIds, stationNames, route.get(i).getStation());
+                    columns[3][next] = id(stationIds, stationNames, route.get(i + 1).getStation());
+                    columns[4][next] = t;
+                    keys[next] = ((long) (leaves % MINUTES_PER_DAY) << 32) | next;
+                    next++;
+                }
+            }
+            Arrays.sort(keys);
+            Network network = new Network(stationIds, stationNames.toArray(new String[0]), trainArray, connections);
+            for (int i = 0; i < connections; i++) {
+                int source = (int) keys[i];
+                network.departure[i] = (int) (keys[i] >>> 32);
+                network.duration[i] = columns[0][source];
+                network.dayOffset[i] = columns[1][source];
+                network.fromStation[i] = columns[2][source];
+                network.toStation[i] = columns[3][source];
+                network.train[i] = columns[4][source];
+            }
+            return network;
+        }
+
+        int size() {
+            return departure.length;
+        }
+
+        int stationId(String station) {
+            Integer id = station != null ? stationIds.get(station.trim().toLowerCase()) : null;
+            if (id == null) {
+                throw new IllegalArgumentException("No train calls at " + station);
+            }
+            return id;
+        }
+
+        // Index of the first connection departing at or after a minute of the day
+        int firstDepartureAtOrAfter(int minute) {
+            int low = 0;
+            int high = departure.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (departure[middle] < minute) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static int id(Map<String, Integer> stationIds, List<String> stationNames, String station) {
+            return stationIds.computeIfAbsent(station.trim().toLowerCase(), key -> {
+                stationNames.add(station.trim());
+                return stationNames.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for the HTTP API: an append-only object/array writer and a
+// parser for flat request objects whose values are strings, numbers or booleans.
+public class Json {
+    private final StringBuilder out = new StringBuilder(256);
+    private boolean needsComma;
+
+    public Json beginObject() {
+        separator();
+        out.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    public Json beginObject(String name) {
+        key(name);
+        out.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    public Json endObject() {
+        out.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    public Json beginArray(String name) {
+        key(name);
+        out.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    public Json endArray() {
+        out.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    public Json field(String name, String value) {
+        key(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            appendString(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    public Json field(String name, long value) {
+        key(name);
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    public Json field(String name, double value) {
+        key(name);
+        out.append(Math.round(value * 100) / 100.0);
+        needsComma = true;
+        return this;
+    }
+
+    public Json field(String name, boolean value) {
+        key(name);
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    public static String error(String code, String message) {
+        return new Json().beginObject().field("error", code).field("message", message).endObject().toString();
+    }
+
+    // Parses {"a":"x","b":2,...}; nested objects and arrays are rejected
+    public static Map<String, String> parseObject(String text) {
+        Map<String, String> values = new LinkedHashMap<>();
+        int[] pos = { skipSpace(text, 0) };
+        expect(text, pos, '{');
+        if (peek(text, pos) == '}') {
+            pos[0]++;
+            return values;
+        }
+        while (true) {
+            String key = readString(text, pos);
+            expect(text, pos, ':');
+            char c = peek(text, pos);
+            String value;
+            if (c == '"') {
+                value = readString(text, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < text.length() && ",} \t\r\n".indexOf(text.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = text.substring(start, pos[0]);
+                if (value.equals("null")) {
+                    value = null;
+                } else if (value.isEmpty() || "{[".indexOf(value.charAt(0)) >= 0) {
+                    throw new IllegalArgumentException("Unsupported JSON value for " + key);
+                }
+            }
+            values.put(key, value);
+            char next = peek(text, pos);
+            pos[0]++;
+            if (next == '}') return values;
+            if (next != ',') throw new IllegalArgumentException("Malformed JSON object");
+        }
+    }
+
+    private void key(String name) {
+        separator();
+        if (name != null) {
+            appendString(name);
+            out.append(':');
+        }
+    }
+
+    private void separator() {
+        if (needsComma) {
+            out.append(',');
+        }
+    }
+
+    private void appendString(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static String readString(String text, int[] pos) {
+        expect(text, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (pos[0] < text.length()) {
+            char c = text.charAt(pos[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\\' && pos[0] < text.length()) {
+                char escaped = text.charAt(pos[0]++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (pos[0] + 4 > text.length()) throw new IllegalArgumentException("Malformed JSON escape");
+                        value.append((char) Integer.parseInt(text.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string");
+    }
+
+    private static void expect(String text, int[] pos, char expected) {
+        if (peek(text, pos) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' in JSON");
+        }
+        pos[0]++;
+    }
+
+    private static char peek(String text, int[] pos) {
+        pos[0] = skipSpace(text, pos[0]);
+        if (pos[0] >= text.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON");
+        }
+        return text.charAt(pos[0]);
+    }
+
+    private static int skipSpace(String text, int pos) {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram with log-linear buckets: every power of two is
+// split into 32 linear sub-buckets, so any recorded value is reported within
+// about 3% while the whole range of a long fits in under 2,000 counters.
+// Recording is one atomic increment and never allocates. Values are in
+// whatever unit the caller records, normally nanoseconds.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Smallest bucket bound at or below which the given share of values fall,
+    // e.g. 99.9 for the p999
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    // Writes the percentile distribution in HdrHistogram's text layout, so
+    // the output can be plotted with the usual HDR histogram plotters.
+    // Percentiles step in ticksPerHalfDistance increments per halving of the
+    // remaining distance to 100%. Values are divided by unitScale, e.g. 1000.0
+    // to print nanosecond recordings as microseconds.
+    public void outputPercentileDistribution(PrintStream out, int ticksPerHalfDistance, double unitScale) {
+        long total = getCount();
+        out.printf("%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+        if (total > 0) {
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+            }
+            double percentile = 0;
+            int index = 0;
+            long seen = snapshot[0];
+            while (true) {
+                long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+                while (seen < rank && index < BUCKETS - 1) {
+                    seen += snapshot[++index];
+                }
+                long value = Math.min(highestValueIn(index), getMax());
+                if (percentile >= 100.0 || seen >= total) {
+                    out.printf("%12.3f %2.12f %10d%n", value / unitScale, 1.0, total);
+                    break;
+                }
+                out.printf("%12.3f %2.12f %10d %14.2f%n", value / unitScale, percentile / 100.0, seen,
+                    1.0 / (1.0 - percentile / 100.0));
+                // Halve the remaining distance every ticksPerHalfDistance steps
+                double halfDistance = Math.pow(2, Math.floor(Math.log(100.0 / (100.0 - percentile)) / Math.log(2)) + 1);
+                percentile += 100.0 / (halfDistance * ticksPerHalfDistance);
+            }
+        }
+        out.printf("#[Mean    = %12.3f, Max            = %12.3f]%n", getMean() / unitScale, getMax() / unitScale);
+        out.printf("#[Total count = %8d, Buckets        = %12d]%n", total, BUCKETS);
+    }
+
+    // Adds another histogram's counts into this one, e.g. per-thread into a total
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = other.counts.get(i);
+            if (n != 0) {
+                counts.addAndGet(i, n);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    // Not atomic with respect to concurrent record calls
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
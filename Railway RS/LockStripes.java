@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed set of locks keyed by hash, so that mutations on unrelated trains
+// proceed in parallel while mutations on the same train stay serialized.
+public class LockStripes {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public LockStripes(int minimumStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock lockFor(String key) {
+        return stripes[indexFor(key)];
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+
+    // The stripe a key maps to, from 0 to size() - 1
+    public int indexFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    // Acquires every stripe in index order, giving callers a global barrier.
+    // Always pair with unlockAll.
+    public void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    // Acquires the stripes of several keys, each once and in index order so
+    // it cannot deadlock with lockAll or another caller. Release with unlock.
+    public List<ReentrantLock> lockAllFor(Collection<String> keys) {
+        boolean[] wanted = new boolean[stripes.length];
+        for (String key : keys) {
+            wanted[indexFor(key)] = true;
+        }
+        List<ReentrantLock> locked = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (wanted[i]) {
+                stripes[i].lock();
+                locked.add(stripes[i]);
+            }
+        }
+        return locked;
+    }
+
+    public void unlock(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Leveled, asynchronous logging for the engine. Callers copy a message
+// template and its arguments into a preallocated ring slot and return; a
+// daemon thread formats and writes them to the console (WARN and ERROR to
+// stderr). A disabled level is one field read, and templates use {}
+// placeholders so no string is built on the calling thread. Pass primitives
+// sparingly on hot paths: they are boxed before the level check, so guard
+// those calls with isEnabled. When the ring is full, messages are dropped
+// and counted rather than blocking the caller.
+//
+// The level comes from -Drailway.log.level (default INFO).
+public final class Log {
+    public enum Level { ERROR, WARN, INFO, DEBUG, TRACE }
+
+    private static final int CAPACITY = 8192;
+    private static final int MAX_ARGS = 4;
+    private static final DateTimeFormatter TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final class Slot {
+        volatile long sequence = -1;
+        long timeMillis;
+        Level level;
+        String thread;
+        String template;
+        final Object[] args = new Object[MAX_ARGS];
+        int argCount;
+        Throwable error;
+    }
+
+    private static final Slot[] ring = new Slot[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong();
+    private static volatile long consumed;
+    private static final LongAdder dropped = new LongAdder();
+    private static volatile int threshold = parseLevel(System.getProperty("railway.log.level")).ordinal();
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Slot();
+        }
+        Thread drainer = new Thread(Log::drain, "railway-log");
+        drainer.setDaemon(true);
+        drainer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "railway-log-flush"));
+    }
+
+    private Log() {
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() <= threshold;
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static void error(String template, Object... args) {
+        if (threshold >= 0) enqueue(Level.ERROR, template, args, args.length, trailingThrowable(args));
+    }
+
+    public static void error(String message, Throwable error) {
+        if (threshold >= 0) enqueue(Level.ERROR, message, null, 0, error);
+    }
+
+    public static void warn(String template) {
+        if (threshold >= 1) enqueue(Level.WARN, template, null, 0, null);
+    }
+
+    public static void warn(String template, Object arg) {
+        if (threshold >= 1) enqueue(Level.WARN, template, arg, null, null, 1);
+    }
+
+    public static void warn(String template, Object arg1, Object arg2) {
+        if (threshold >= 1) enqueue(Level.WARN, template, arg1, arg2, null, 2);
+    }
+
+    public static void info(String template) {
+        if (threshold >= 2) enqueue(Level.INFO, template, null, 0, null);
+    }
+
+    public static void info(String template, Object arg) {
+        if (threshold >= 2) enqueue(Level.INFO, template, arg, null, null, 1);
+    }
+
+    public static void info(String template, Object arg1, Object arg2) {
+        if (threshold >= 2) enqueue(Level.INFO, template, arg1, arg2, null, 2);
+    }
+
+    public static void info(String template, Object arg1, Object arg2, Object arg3) {
+        if (threshold >= 2) enqueue(Level.INFO, template, arg1, arg2, arg3, 3);
+    }
+
+    public static void debug(String template, Object arg) {
+        if (threshold >= 3) enqueue(Level.DEBUG, template, arg, null, null, 1);
+    }
+
+    public static void debug(String template, Object arg1, Object arg2) {
+        if (threshold >= 3) enqueue(Level.DEBUG, template, arg1, arg2, null, 2);
+    }
+
+    public static void debug(String template, Object arg1, Object arg2, Object arg3) {
+        if (threshold >= 3) enqueue(Level.DEBUG, template, arg1, arg2, arg3, 3);
+    }
+
+    // Messages lost because the ring was full
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // Waits until everything logged so far has been written, up to a second
+    public static void flush() {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        while (consumed < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    // Fixed-arity entry point, so the common calls allocate no varargs array
+    private static void enqueue(Level level, String template, Object arg1, Object arg2, Object arg3, int argCount) {
+        long sequence = claim();
+        if (sequence < 0) return;
+        Slot slot = ring[(int) (sequence & (CAPACITY - 1))];
+        slot.args[0] = arg1;
+        slot.args[1] = arg2;
+        slot.args[2] = arg3;
+        publish(slot, sequence, level, template, argCount, null);
+    }
+
+    private static void enqueue(Level level, String template, Object[] args, int argCount, Throwable error) {
+        long sequence = claim();
+        if (sequence < 0) return;
+        Slot slot = ring[(int) (sequence & (CAPACITY - 1))];
+        int count = Math.min(argCount - (error != null && args != null ? 1 : 0), MAX_ARGS);
+        for (int i = 0; i < count; i++) {
+            slot.args[i] = args[i];
+        }
+        publish(slot, sequence, level, template, Math.max(0, count), error);
+    }
+
+    // Reserves the next ring sequence, or returns -1 if the drain thread is a
+    // full ring behind. A slot is only reused once its previous message is consumed.
+    private static long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= CAPACITY) {
+                dropped.increment();
+                return -1;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    // Fills the slot, then makes it visible to the drain thread with one volatile write
+    private static void publish(Slot slot, long sequence, Level level, String template, int argCount,
+                                Throwable error) {
+        slot.timeMillis = System.currentTimeMillis();
+        slot.level = level;
+        slot.thread = Thread.currentThread().getName();
+        slot.template = template;
+        slot.argCount = argCount;
+        slot.error = error;
+        slot.sequence = sequence;
+    }
+
+    private static void drain() {
+        StringBuilder line = new StringBuilder(256);
+        long reportedDrops = 0;
+        while (true) {
+            long next = consumed;
+            Slot slot = ring[(int) (next & (CAPACITY - 1))];
+            if (slot.sequence != next) {
+                long drops = dropped.sum();
+                if (drops != reportedDrops) {
+                    System.err.println(TIMESTAMP.format(Instant.now()) + " WARN  [railway-log] "
+                        + (drops - reportedDrops) + " log messages dropped, ring buffer full");
+                    reportedDrops = drops;
+                }
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+            line.setLength(0);
+            line.append(TIMESTAMP.format(Instant.ofEpochMilli(slot.timeMillis))).append(' ');
+            line.append(slot.level.name());
+            for (int pad = slot.level.name().length(); pad < 6; pad++) {
+                line.append(' ');
+            }
+            line.append('[').append(slot.thread).append("] ");
+            format(line, slot.template, slot.args, slot.argCount);
+            PrintStream out = slot.level.ordinal() <= Level.WARN.ordinal() ? System.err : System.out;
+            out.println(line);
+            if (slot.error != null) {
+                slot.error.printStackTrace(out);
+            }
+            // Release references before handing the slot back to producers
+            for (int i = 0; i < MAX_ARGS; i++) {
+                slot.args[i] = null;
+            }
+            slot.error = null;
+            slot.template = null;
+            consumed = next + 1;
+        }
+    }
+
+    private static void format(StringBuilder line, String template, Object[] args, int argCount) {
+        int arg = 0;
+        int start = 0;
+        int placeholder;
+        while (arg < argCount && (placeholder = template.indexOf("{}", start)) >= 0) {
+            line.append(template, start, placeholder).append(args[arg++]);
+            start = placeholder + 2;
+        }
+        line.append(template, start, template.length());
+    }
+
+    private static Throwable trailingThrowable(Object[] args) {
+        return args.length > 0 && args[args.length - 1] instanceof Throwable
+            ? (Throwable) args[args.length - 1] : null;
+    }
+
+    private static Level parseLevel(String name) {
+        if (name != null) {
+            try {
+                return Level.valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown railway.log.level " + name + ", using INFO");
+            }
+        }
+        return Level.INFO;
+    }
+}
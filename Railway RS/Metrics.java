@@ -0,0 +1,189 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide registry of hot-path metrics. Counters are striped LongAdders
+// and timers are lock-free LatencyHistograms recording nanoseconds, so an
+// update is a couple of uncontended atomic adds and never allocates or locks.
+// The well-known metrics below are static so instrumented code reaches them
+// without a lookup. Snapshots feed the admin dashboard and the Prometheus
+// text exposition used by the /metrics endpoint and file export.
+public final class Metrics {
+    private static final List<Metric> registry = new CopyOnWriteArrayList<>();
+
+    public static final Timer BOOKING = timer("railway_booking_duration_seconds",
+        "Time to book a ticket through BookingService, successful or not");
+    public static final Timer CANCELLATION = timer("railway_cancellation_duration_seconds",
+        "Time to cancel a ticket through BookingService, successful or not");
+    public static final Timer FARE_QUOTE = timer("railway_fare_quote_duration_seconds",
+        "Time to price a booking");
+    public static final Timer JOURNAL_FLUSH = timer("railway_journal_flush_duration_seconds",
+        "Time to write and force one batch of journal records");
+    public static final Timer INDEX_LOOKUP = timer("railway_index_lookup_duration_seconds",
+        "Time to resolve a ticket lookup by PNR, user, train or journey date");
+    public static final Timer LOCK_WAIT = timer("railway_lock_wait_duration_seconds",
+        "Time spent waiting for a train's booking lock");
+    public static final Timer JOURNEY_PLAN = timer("railway_journey_plan_duration_seconds",
+        "Time to search for journeys between two stations");
+
+    public static final Counter BOOKINGS = counter("railway_bookings_total", "Tickets booked");
+    public static final Counter BOOKING_FAILURES = counter("railway_booking_failures_total",
+        "Booking attempts refused or failed");
+    public static final Counter CANCELLATIONS = counter("railway_cancellations_total", "Tickets cancelled");
+    public static final Counter JOURNAL_BYTES = counter("railway_journal_bytes_total",
+        "Bytes appended to the booking journal");
+    public static final Counter SEAT_HOLDS = counter("railway_seat_holds_total",
+        "Seat holds taken while buyers pay");
+    public static final Counter SEAT_HOLDS_EXPIRED = counter("railway_seat_holds_expired_total",
+        "Seat holds that lapsed unpaid and went back on sale");
+    public static final Counter PAYMENTS_CONFIRMED = counter("railway_pending_payments_confirmed_total",
+        "Pending bookings confirmed when their payment settled");
+    public static final Counter PAYMENTS_EXPIRED = counter("railway_pending_payments_cancelled_total",
+        "Pending bookings cancelled because payment failed or never arrived");
+    public static final Counter WAITLIST_JOINS = counter("railway_waitlist_joins_total",
+        "Bookings placed on a waitlist because the class was full");
+    public static final Counter WAITLIST_PROMOTIONS = counter("railway_waitlist_promotions_total",
+        "Waitlisted bookings confirmed from seats freed by cancellations");
+
+    private Metrics() {
+    }
+
+    public abstract static class Metric {
+        private final String name;
+        private final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public String getName() { return name; }
+        public String getHelp() { return help; }
+
+        abstract void reset();
+    }
+
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name, String help) {
+            super(name, help);
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        void reset() {
+            value.reset();
+        }
+    }
+
+    public static final class Timer extends Metric {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        Timer(String name, String help) {
+            super(name, help);
+        }
+
+        // Records the time elapsed since a System.nanoTime() reading
+        public void recordSince(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        @Override
+        void reset() {
+            histogram.reset();
+        }
+    }
+
+    public static Counter counter(String name, String help) {
+        Counter counter = new Counter(name, help);
+        registry.add(counter);
+        return counter;
+    }
+
+    public static Timer timer(String name, String help) {
+        Timer timer = new Timer(name, help);
+        registry.add(timer);
+        return timer;
+    }
+
+    public static List<Metric> getAll() {
+        return new ArrayList<>(registry);
+    }
+
+    // Zeroes every metric; updates racing with the reset may be lost
+    public static void resetAll() {
+        for (Metric metric : registry) {
+            metric.reset();
+        }
+    }
+
+    // Prometheus text exposition format 0.0.4. Timers are exported as
+    // summaries in seconds with p50/p90/p99/p999 quantiles plus a _max gauge.
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric metric : registry) {
+            out.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+            if (metric instanceof Counter) {
+                out.append("# TYPE ").append(metric.getName()).append(" counter\n");
+                out.append(metric.getName()).append(' ').append(((Counter) metric).get()).append('\n');
+            } else {
+                LatencyHistogram histogram = ((Timer) metric).getHistogram();
+                String name = metric.getName();
+                out.append("# TYPE ").append(name).append(" summary\n");
+                for (String quantile : new String[] { "0.5", "0.9", "0.99", "0.999" }) {
+                    long nanos = histogram.getValueAtPercentile(Double.parseDouble(quantile) * 100);
+                    out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(nanos)).append('\n');
+                }
+                out.append(name).append("_sum ").append(seconds(histogram.getSum())).append('\n');
+                out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+                out.append("# TYPE ").append(name).append("_max gauge\n");
+                out.append(name).append("_max ").append(seconds(histogram.getMax())).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    // Writes the exposition to a file, replacing it atomically so a scraper
+    // such as node_exporter's textfile collector never reads a partial file
+    public static void exportPrometheus(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            Files.write(temp.toPath(), toPrometheusText().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
@@ -0,0 +1,159 @@
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Resolves bookings left PENDING by card payments. Each pending ticket has
+// a payment deadline (booking time plus the payment window) in a timer
+// wheel. Payment results reported through paymentSettled wait for the next
+// sweep. Every few seconds a sweep confirms the settled-and-approved
+// tickets, cancels the declined ones and any whose deadline passed without
+// a result, and hands them to DatabaseManager in batches, one journal
+// append each. A ticket that stops being PENDING, by a sweep or by the user
+// cancelling it, has its deadline cancelled at once, so the wheel holds
+// only tickets still awaiting payment. A sweep only touches tickets that
+// are due or settled; it never scans the ticket store.
+public class PendingPaymentSweeper {
+    // Keeps each batch's lock hold and journal append bounded
+    private static final int MAX_BATCH = 10_000;
+    private static final long TICK_MILLIS = 1000;
+
+    private final DatabaseManager database;
+    private final long paymentWindowMillis;
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final TimerWheel<String> deadlines;
+    // PNR to its deadline in the wheel, for cancelling it on resolution
+    private final Map<String, TimerWheel.Timeout<String>> timeouts = new ConcurrentHashMap<>();
+    // PNR to payment approved, reported since the last sweep
+    private final Map<String, Boolean> settlements = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    public PendingPaymentSweeper(DatabaseManager database, long paymentWindowMillis) {
+        this.database = database;
+        this.paymentWindowMillis = paymentWindowMillis;
+        this.deadlines = new TimerWheel<>(TICK_MILLIS, System.currentTimeMillis());
+    }
+
+    // Starts sweeping on a daemon thread every intervalSeconds
+    public synchronized void start(long intervalSeconds) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pending-payment-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException e) {
+                Log.error("Error resolving pending payments", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Registers a PENDING ticket's payment deadline
+    public void track(Ticket ticket) {
+        long bookedAt = ticket.getBookingDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        wheelLock.lock();
+        try {
+            TimerWheel.Timeout<String> previous = timeouts.put(ticket.getPnr(),
+                deadlines.schedule(ticket.getPnr(), bookedAt + paymentWindowMillis));
+            if (previous != null) {
+                deadlines.cancel(previous);
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    // Drops the deadline of a ticket that is no longer PENDING
+    public void resolved(String pnr) {
+        wheelLock.lock();
+        try {
+            TimerWheel.Timeout<String> timeout = timeouts.remove(pnr);
+            if (timeout != null) {
+                deadlines.cancel(timeout);
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    // Records a payment result; the ticket is updated by the next sweep.
+    // Results for tickets that are no longer PENDING are ignored then.
+    public void paymentSettled(String pnr, boolean approved) {
+        settlements.put(pnr, approved);
+    }
+
+    // Tickets awaiting payment
+    public int getTrackedCount() {
+        wheelLock.lock();
+        try {
+            return deadlines.size();
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    // Resolves everything settled or due; returns the number of tickets changed
+    public int sweep() {
+        Map<String, String> outcomes = new HashMap<>();
+        for (String pnr : settlements.keySet()) {
+            Boolean approved = settlements.remove(pnr);
+            if (approved != null) {
+                outcomes.put(pnr, approved ? "CONFIRMED" : "CANCELLED");
+            }
+        }
+        List<String> due = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            deadlines.advance(System.currentTimeMillis(), due::add);
+            for (String pnr : due) {
+                timeouts.remove(pnr);
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+        for (String pnr : due) {
+            // A reported result wins over the deadline
+            outcomes.putIfAbsent(pnr, "CANCELLED");
+        }
+        if (outcomes.isEmpty()) {
+            return 0;
+        }
+        int confirmed = 0;
+        int cancelled = 0;
+        List<String> pnrs = new ArrayList<>(outcomes.keySet());
+        for (int from = 0; from < pnrs.size(); from += MAX_BATCH) {
+            Map<String, String> batch = new HashMap<>();
+            for (String pnr : pnrs.subList(from, Math.min(pnrs.size(), from + MAX_BATCH))) {
+                batch.put(pnr, outcomes.get(pnr));
+            }
+            for (Ticket ticket : database.resolvePendingPayments(batch)) {
+                if ("CONFIRMED".equalsIgnoreCase(ticket.getStatus())) {
+                    confirmed++;
+                } else {
+                    cancelled++;
+                }
+            }
+            // Resolved now, or no longer PENDING before the sweep got to them
+            for (String pnr : batch.keySet()) {
+                resolved(pnr);
+            }
+        }
+        Metrics.PAYMENTS_CONFIRMED.add(confirmed);
+        Metrics.PAYMENTS_EXPIRED.add(cancelled);
+        if (confirmed + cancelled > 0) {
+            Log.info("Pending payments: {} confirmed, {} cancelled", confirmed, cancelled);
+        }
+        return confirmed + cancelled;
+    }
+}
@@ -0,0 +1,290 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Immutable hash map (a hash array mapped trie). put and remove leave the
+// original untouched and return a new map that shares every node except the
+// path to the changed entry, so an update copies at most seven small arrays
+// however large the map is. Any number of threads can read a map while
+// others derive new versions from it, without locks.
+public final class PersistentMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (root == null) return null;
+        Entry entry = root.find(0, hash(key), key);
+        return entry == null ? null : (V) entry.value;
+    }
+
+    public PersistentMap<K, V> put(K key, V value) {
+        int hash = hash(key);
+        Entry entry = new Entry(hash, key, value);
+        if (root == null) {
+            return new PersistentMap<>(BitmapNode.of(0, entry), 1);
+        }
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, entry, added);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    public PersistentMap<K, V> remove(K key) {
+        if (root == null) return this;
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) return this;
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        if (root != null) {
+            root.forEach(entry -> action.accept((V) entry.value));
+        }
+    }
+
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        forEachValue(values::add);
+        return values;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static final class Entry {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Entry(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private interface Node {
+        Entry find(int shift, int hash, Object key);
+
+        // Returns this node if nothing changed; sets added[0] for a new key
+        Node put(int shift, Entry entry, boolean[] added);
+
+        // Returns this node if the key is absent, null if the node is now empty
+        Node remove(int shift, int hash, Object key);
+
+        void forEach(Consumer<Entry> action);
+    }
+
+    // Up to 32 slots, one per 5-bit hash fragment present at this level.
+    // Each slot holds either an Entry or a child Node.
+    private static final class BitmapNode implements Node {
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        static BitmapNode of(int shift, Entry entry) {
+            return new BitmapNode(bit(entry.hash, shift), new Object[] { entry });
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Entry find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+            Object slot = slots[index(bit)];
+            if (slot instanceof Entry) {
+                Entry entry = (Entry) slot;
+                return entry.hash == hash && entry.key.equals(key) ? entry : null;
+            }
+            return ((Node) slot).find(shift + BITS, hash, key);
+        }
+
+        @Override
+        public Node put(int shift, Entry entry, boolean[] added) {
+            int bit = bit(entry.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, copy, 0, index);
+                copy[index] = entry;
+                System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Entry) {
+                Entry existing = (Entry) slot;
+                if (existing.hash == entry.hash && existing.key.equals(entry.key)) {
+                    if (existing.value == entry.value) return this;
+                    replacement = entry;
+                } else {
+                    added[0] = true;
+                    replacement = merge(shift + BITS, existing, entry);
+                }
+            } else {
+                Node child = (Node) slot;
+                Node newChild = child.put(shift + BITS, entry, added);
+                if (newChild == child) return this;
+                replacement = newChild;
+            }
+            Object[] copy = slots.clone();
+            copy[index] = replacement;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+            int index = index(bit);
+            Object slot = slots[index];
+            if (slot instanceof Entry) {
+                Entry entry = (Entry) slot;
+                if (entry.hash != hash || !entry.key.equals(key)) return this;
+                return without(bit, index);
+            }
+            Node child = (Node) slot;
+            Node newChild = child.remove(shift + BITS, hash, key);
+            if (newChild == child) return this;
+            if (newChild == null) return without(bit, index);
+            Object[] copy = slots.clone();
+            copy[index] = newChild;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private Node without(int bit, int index) {
+            if (slots.length == 1) return null;
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, copy.length - index);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        @Override
+        public void forEach(Consumer<Entry> action) {
+            for (Object slot : slots) {
+                if (slot instanceof Entry) {
+                    action.accept((Entry) slot);
+                } else {
+                    ((Node) slot).forEach(action);
+                }
+            }
+        }
+
+        // Node holding two entries whose hashes agreed on every level so far
+        private static Node merge(int shift, Entry a, Entry b) {
+            if (a.hash == b.hash) {
+                return new CollisionNode(a.hash, new Entry[] { a, b });
+            }
+            int bitA = bit(a.hash, shift);
+            int bitB = bit(b.hash, shift);
+            if (bitA == bitB) {
+                return new BitmapNode(bitA, new Object[] { merge(shift + BITS, a, b) });
+            }
+            return new BitmapNode(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0
+                ? new Object[] { a, b } : new Object[] { b, a });
+        }
+    }
+
+    // Keys whose full 32-bit hashes are equal
+    private static final class CollisionNode implements Node {
+        final int hash;
+        final Entry[] entries;
+
+        CollisionNode(int hash, Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].key.equals(key)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public Entry find(int shift, int hash, Object key) {
+            if (hash != this.hash) return null;
+            int index = indexOf(key);
+            return index < 0 ? null : entries[index];
+        }
+
+        @Override
+        public Node put(int shift, Entry entry, boolean[] added) {
+            if (entry.hash != hash) {
+                // A different hash reached us: push this node down a level
+                return new BitmapNode(bit(hash, shift), new Object[] { this }).put(shift, entry, added);
+            }
+            int index = indexOf(entry.key);
+            Entry[] copy;
+            if (index < 0) {
+                copy = Arrays.copyOf(entries, entries.length + 1);
+                copy[entries.length] = entry;
+                added[0] = true;
+            } else {
+                if (entries[index].value == entry.value) return this;
+                copy = entries.clone();
+                copy[index] = entry;
+            }
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            if (hash != this.hash) return this;
+            int index = indexOf(key);
+            if (index < 0) return this;
+            if (entries.length == 1) return null;
+            Entry[] copy = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, copy, 0, index);
+            System.arraycopy(entries, index + 1, copy, index, copy.length - index);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public void forEach(Consumer<Entry> action) {
+            for (Entry entry : entries) {
+                action.accept(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+// Source of booking references. Implementations must never hand out the same
+// PNR twice, including across restarts once recover has seen the stored ones.
+public interface PnrGenerator {
+    String nextPnr();
+
+    // Called with every persisted PNR at startup so numbering resumes past them
+    void recover(String existingPnr);
+}
@@ -0,0 +1,56 @@
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+// Measures PNR issue rate across threads and checks every issued PNR is unique.
+// Usage: java PnrGeneratorBenchmark [threads] [pnrsPerThread]
+public class PnrGeneratorBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        PnrGenerator generator = new SequencePnrGenerator(0);
+
+        // Warm up so the timed run measures compiled code
+        for (int i = 0; i < 200_000; i++) {
+            generator.nextPnr();
+        }
+
+        String[][] issued = new String[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            String[] out = issued[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = generator.nextPnr();
+                }
+            });
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        long total = (long) threads * perThread;
+        Set<String> unique = new HashSet<>((int) (total * 4 / 3) + 1);
+        int invalid = 0;
+        for (String[] out : issued) {
+            for (String pnr : out) {
+                unique.add(pnr);
+                if (!SequencePnrGenerator.isValid(pnr)) invalid++;
+            }
+        }
+        System.out.printf("%d threads issued %,d PNRs in %d ms: %,.0f PNRs/s%n",
+            threads, total, elapsed / 1_000_000, total * 1e9 / elapsed);
+        System.out.printf("Duplicates: %d, failed check character: %d, sample: %s%n",
+            total - unique.size(), invalid, issued[0][0]);
+    }
+}
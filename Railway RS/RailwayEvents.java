@@ -0,0 +1,152 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder events for the booking engine. They cost nothing
+// unless a recording has them enabled, and the bundled railway.jfc keeps the
+// hot-path ones behind duration thresholds so they can stay on in production:
+//
+//   java -XX:StartFlightRecording:settings=default,settings=railway.jfc,filename=railway.jfr,maxage=1h ...
+//
+// Each event times the operation between begin() and commit(); callers fill
+// in the fields only once shouldCommit() says the event will be kept.
+public final class RailwayEvents {
+    private RailwayEvents() {
+    }
+
+    @Name("railway.Booking")
+    @Label("Booking")
+    @Category({ "Railway", "Bookings" })
+    @Description("A ticket stored by DatabaseManager, including the wait for its journal commit")
+    @StackTrace(false)
+    public static class Booking extends Event {
+        @Label("PNR")
+        public String pnr;
+
+        @Label("Train Number")
+        public String trainNumber;
+
+        @Label("Journey Date")
+        public String journeyDate;
+
+        @Label("Seat Type")
+        public String seatType;
+
+        @Label("Seats")
+        public int seats;
+    }
+
+    @Name("railway.Cancellation")
+    @Label("Cancellation")
+    @Category({ "Railway", "Bookings" })
+    @Description("A ticket cancelled by DatabaseManager, including the wait for its journal commit")
+    @StackTrace(false)
+    public static class Cancellation extends Event {
+        @Label("PNR")
+        public String pnr;
+
+        @Label("Train Number")
+        public String trainNumber;
+
+        @Label("Seats")
+        public int seats;
+    }
+
+    @Name("railway.SeatReservation")
+    @Label("Seat Reservation")
+    @Category({ "Railway", "Inventory" })
+    @Description("Seats taken from a train's inventory for one journey date")
+    @StackTrace(false)
+    public static class SeatReservation extends Event {
+        @Label("Train Number")
+        public String trainNumber;
+
+        @Label("Journey Date")
+        public String journeyDate;
+
+        @Label("Seat Type")
+        public String seatType;
+
+        @Label("Seats")
+        public int seats;
+
+        @Label("Granted")
+        public boolean granted;
+    }
+
+    @Name("railway.JournalFlush")
+    @Label("Journal Flush")
+    @Category({ "Railway", "Persistence" })
+    @Description("One batch of journal records written and, unless OS buffered, forced to disk")
+    @StackTrace(false)
+    public static class JournalFlush extends Event {
+        @Label("Records")
+        @Description("Queued appends in the batch; each may hold several journal lines")
+        public int records;
+
+        @Label("Bytes Written")
+        @DataAmount
+        public long bytesWritten;
+
+        @Label("Durability")
+        public String durability;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    @Name("railway.SnapshotWrite")
+    @Label("Snapshot Write")
+    @Category({ "Railway", "Persistence" })
+    @Description("A binary snapshot written and the journal compacted behind it")
+    @StackTrace(false)
+    public static class SnapshotWrite extends Event {
+        @Label("Journal Segment")
+        public long journalSegment;
+
+        @Label("Trains")
+        public int trains;
+
+        @Label("Tickets")
+        public int tickets;
+
+        @Label("Bytes Written")
+        @DataAmount
+        public long bytesWritten;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    @Name("railway.DataLoad")
+    @Label("Data Load")
+    @Category({ "Railway", "Persistence" })
+    @Description("Startup load of the latest snapshot (or text files) plus journal replay")
+    @StackTrace(false)
+    public static class DataLoad extends Event {
+        @Label("From Snapshot")
+        public boolean fromSnapshot;
+
+        @Label("Trains")
+        public int trains;
+
+        @Label("Tickets")
+        public int tickets;
+
+        @Label("Journal Records Replayed")
+        public int journalRecords;
+    }
+
+    @Name("railway.TrainLockWait")
+    @Label("Train Lock Wait")
+    @Category({ "Railway", "Locks" })
+    @Description("Time a booking thread was blocked on a contended train lock stripe")
+    public static class TrainLockWait extends Event {
+        @Label("Train Number")
+        public String trainNumber;
+    }
+}
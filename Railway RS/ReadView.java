@@ -0,0 +1,258 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// A consistent copy of every train and ticket, for readers that must not
+// hold up bookings: reports and the admin bookings table. The copy is split
+// into one Partition per train lock stripe, holding that stripe's trains
+// and their tickets. Partitions are immutable. DatabaseManager derives a new
+// one, with the next epoch, from each mutation while it holds the train's
+// lock, and publishes it by replacing only its stripe's partition, so
+// bookings on different stripes never contend to publish. The maps are
+// persistent, so deriving a partition costs a few small node copies rather
+// than a full copy.
+//
+// A view gathers the partitions current when it was taken. Every change
+// touches one train, so each train and its tickets are seen wholly before
+// or wholly after any change; two changes on different trains made while
+// the view was being gathered may be seen one without the other. A reader
+// keeps using a view for as long as it likes.
+public final class ReadView {
+    private final Partition[] partitions;
+    private final ToIntFunction<String> stripeOf;
+
+    ReadView(Partition[] partitions, ToIntFunction<String> stripeOf) {
+        this.partitions = partitions;
+        this.stripeOf = stripeOf;
+    }
+
+    // Rebuilds every stripe's partition from scratch, e.g. after startup
+    // replay, each with the epoch after the one it replaces. The caller must
+    // keep the trains and tickets from changing while this runs.
+    static Partition[] partition(Partition[] previous, Collection<Train> allTrains, Collection<Ticket> allTickets,
+                                 ToIntFunction<String> stripeOf) {
+        Partition[] partitions = new Partition[previous.length];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(previous[i].epoch + 1, PersistentMap.empty(), PersistentMap.empty());
+        }
+        for (Train train : allTrains) {
+            int stripe = stripeOf.applyAsInt(train.getTrainNumber());
+            Partition partition = partitions[stripe];
+            partitions[stripe] = new Partition(partition.epoch, partition.trains.put(train.getTrainNumber(),
+                new TrainRecord(train)), partition.tickets);
+        }
+        for (Ticket ticket : allTickets) {
+            int stripe = stripeOf.applyAsInt(ticket.getTrain().getTrainNumber());
+            Partition partition = partitions[stripe];
+            partitions[stripe] = new Partition(partition.epoch, partition.trains,
+                partition.tickets.put(ticket.getPnr(), partition.recordFor(ticket)));
+        }
+        return partitions;
+    }
+
+    // The sum of every partition's epoch, which increases by one with each
+    // published change, so later views never have a smaller epoch
+    public long getEpoch() {
+        long epoch = 0;
+        for (Partition partition : partitions) {
+            epoch += partition.epoch;
+        }
+        return epoch;
+    }
+
+    public int getTrainCount() {
+        int count = 0;
+        for (Partition partition : partitions) {
+            count += partition.trains.size();
+        }
+        return count;
+    }
+
+    public int getTicketCount() {
+        int count = 0;
+        for (Partition partition : partitions) {
+            count += partition.tickets.size();
+        }
+        return count;
+    }
+
+    public TrainRecord getTrain(String trainNumber) {
+        return partitions[stripeOf.applyAsInt(trainNumber)].trains.get(trainNumber);
+    }
+
+    // Looks in every partition, since a PNR does not name its train
+    public TicketRecord getTicket(String pnr) {
+        for (Partition partition : partitions) {
+            TicketRecord ticket = partition.tickets.get(pnr);
+            if (ticket != null) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    // New lists on each call, in no particular order
+    public List<TrainRecord> getTrains() {
+        List<TrainRecord> trains = new ArrayList<>(getTrainCount());
+        for (Partition partition : partitions) {
+            partition.trains.forEachValue(trains::add);
+        }
+        return trains;
+    }
+
+    public List<TicketRecord> getTickets() {
+        List<TicketRecord> tickets = new ArrayList<>(getTicketCount());
+        for (Partition partition : partitions) {
+            partition.tickets.forEachValue(tickets::add);
+        }
+        return tickets;
+    }
+
+    // The trains of one lock stripe and their tickets
+    static final class Partition {
+        static final Partition EMPTY = new Partition(0, PersistentMap.empty(), PersistentMap.empty());
+
+        private final long epoch;
+        private final PersistentMap<String, TrainRecord> trains;
+        private final PersistentMap<String, TicketRecord> tickets;
+
+        private Partition(long epoch, PersistentMap<String, TrainRecord> trains,
+                          PersistentMap<String, TicketRecord> tickets) {
+            this.epoch = epoch;
+            this.trains = trains;
+            this.tickets = tickets;
+        }
+
+        // Derived partitions. Ticket records are taken from the live ticket,
+        // so these must be called under the ticket's train lock.
+        Partition withTicket(Ticket ticket) {
+            return new Partition(epoch + 1, trains, tickets.put(ticket.getPnr(), recordFor(ticket)));
+        }
+
+        // Re-snapshots a train and the tickets booked on it, which show its details
+        Partition withTrain(Train train, Collection<Ticket> trainTickets) {
+            TrainRecord record = new TrainRecord(train);
+            PersistentMap<String, TicketRecord> updated = tickets;
+            for (Ticket ticket : trainTickets) {
+                updated = updated.put(ticket.getPnr(), new TicketRecord(ticket, record));
+            }
+            return new Partition(epoch + 1, trains.put(train.getTrainNumber(), record), updated);
+        }
+
+        // Tickets of a deleted train keep the last details it had
+        Partition withoutTrain(String trainNumber) {
+            return new Partition(epoch + 1, trains.remove(trainNumber), tickets);
+        }
+
+        private TicketRecord recordFor(Ticket ticket) {
+            TrainRecord train = trains.get(ticket.getTrain().getTrainNumber());
+            return new TicketRecord(ticket, train != null ? train : new TrainRecord(ticket.getTrain()));
+        }
+    }
+
+    // Train details as they were when the view was published. Seat
+    // availability is not included; it is tracked per journey date by the
+    // train's lock-free inventory.
+    public static final class TrainRecord {
+        private final String trainNumber;
+        private final String trainName;
+        private final String source;
+        private final String destination;
+        private final LocalDateTime departureTime;
+        private final LocalDateTime arrivalTime;
+        private final int totalSeats;
+        private final int acSeats;
+        private final double baseFare;
+
+        private TrainRecord(Train train) {
+            this.trainNumber = train.getTrainNumber();
+            this.trainName = train.getTrainName();
+            this.source = train.getSource();
+            this.destination = train.getDestination();
+            this.departureTime = train.getDepartureTime();
+            this.arrivalTime = train.getArrivalTime();
+            this.totalSeats = train.getTotalSeats();
+            this.acSeats = train.getAcSeats();
+            this.baseFare = train.getBaseFare();
+        }
+
+        public String getTrainNumber() { return trainNumber; }
+        public String getTrainName() { return trainName; }
+        public String getSource() { return source; }
+        public String getDestination() { return destination; }
+        public LocalDateTime getDepartureTime() { return departureTime; }
+        public LocalDateTime getArrivalTime() { return arrivalTime; }
+        public int getTotalSeats() { return totalSeats; }
+        public int getAcSeats() { return acSeats; }
+        public int getNonAcSeats() { return totalSeats - acSeats; }
+        public double getBaseFare() { return baseFare; }
+    }
+
+    // A ticket as it was when the view was published
+    public static final class TicketRecord {
+        private static final DateTimeFormatter JOURNEY_DATE_FORMAT = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy");
+
+        private final String pnr;
+        private final String userId;
+        private final TrainRecord train;
+        private final String passengerName;
+        private final LocalDateTime journeyDate;
+        private final LocalDateTime bookingDateTime;
+        private final String seatType;
+        private final String bookingClass;
+        private final int numberOfSeats;
+        private final String coachNumber;
+        private final List<String> seatNumbers;
+        private final String status;
+        private final String paymentMethod;
+        private final double baseFare;
+        private final double tax;
+        private final double totalFare;
+
+        private TicketRecord(Ticket ticket, TrainRecord train) {
+            this.pnr = ticket.getPnr();
+            this.userId = ticket.getUserId();
+            this.train = train;
+            this.passengerName = ticket.getPassengerName();
+            this.journeyDate = ticket.getJourneyDate();
+            this.bookingDateTime = ticket.getBookingDateTime();
+            this.seatType = ticket.getSeatType();
+            this.bookingClass = ticket.getBookingClass();
+            this.numberOfSeats = ticket.getNumberOfSeats();
+            this.coachNumber = ticket.getCoachNumber();
+            // Berth lists are never modified once a ticket has them
+            this.seatNumbers = ticket.getSeatNumbers() != null
+                ? Collections.unmodifiableList(ticket.getSeatNumbers()) : Collections.emptyList();
+            this.status = ticket.getStatus();
+            this.paymentMethod = ticket.getPaymentMethod();
+            this.baseFare = ticket.getBaseFare();
+            this.tax = ticket.getTax();
+            this.totalFare = ticket.getTotalFare();
+        }
+
+        public String getPnr() { return pnr; }
+        public String getUserId() { return userId; }
+        public TrainRecord getTrain() { return train; }
+        public String getPassengerName() { return passengerName; }
+        public LocalDateTime getJourneyDate() { return journeyDate; }
+        public LocalDateTime getBookingDateTime() { return bookingDateTime; }
+        public String getSeatType() { return seatType; }
+        public String getBookingClass() { return bookingClass; }
+        public int getNumberOfSeats() { return numberOfSeats; }
+        public String getCoachNumber() { return coachNumber; }
+        public List<String> getSeatNumbers() { return seatNumbers; }
+        public String getStatus() { return status; }
+        public String getPaymentMethod() { return paymentMethod; }
+        public double getBaseFare() { return baseFare; }
+        public double getTax() { return tax; }
+        public double getTotalFare() { return totalFare; }
+
+        public String getFormattedJourneyDate() {
+            return journeyDate.format(JOURNEY_DATE_FORMAT);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Materialized revenue and occupancy counters, kept per train, journey date,
+// seat class and payment method and updated as tickets are booked and
+// cancelled. A ticket counts towards revenue, tax and seats sold while it
+// holds seats (CONFIRMED or PENDING); cancelling it takes its contribution
+// back out and counts a cancellation. Counters are LongAdders and money is
+// held in paise, so updates never lock and never drift through rounding.
+// Reports roll the cells up on demand, costing O(cells) however many
+// tickets there are.
+public class ReportAggregates {
+    private final ConcurrentHashMap<Key, Cell> cells = new ConcurrentHashMap<>();
+
+    private static final class Key {
+        final String trainNumber;
+        final LocalDate journeyDate;
+        final String seatType;
+        final String paymentMethod;
+
+        Key(String trainNumber, LocalDate journeyDate, String seatType, String paymentMethod) {
+            this.trainNumber = trainNumber;
+            this.journeyDate = journeyDate;
+            this.seatType = seatType;
+            this.paymentMethod = paymentMethod;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return trainNumber.equals(other.trainNumber) && journeyDate.equals(other.journeyDate)
+                && seatType.equals(other.seatType) && Objects.equals(paymentMethod, other.paymentMethod);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trainNumber, journeyDate, seatType, paymentMethod);
+        }
+    }
+
+    private static final class Cell {
+        final LongAdder revenuePaise = new LongAdder();
+        final LongAdder taxPaise = new LongAdder();
+        final LongAdder seatsSold = new LongAdder();
+        final LongAdder tickets = new LongAdder();
+        final LongAdder cancellations = new LongAdder();
+    }
+
+    // One row of a report: the sum of every cell in a group
+    public static final class Totals {
+        private long revenuePaise;
+        private long taxPaise;
+        private long seatsSold;
+        private long tickets;
+        private long cancellations;
+        private long capacity;
+
+        public double getRevenue() { return revenuePaise / 100.0; }
+        public double getTax() { return taxPaise / 100.0; }
+        public long getSeatsSold() { return seatsSold; }
+        public long getTickets() { return tickets; }
+        public long getCancellations() { return cancellations; }
+        // Seats offered on the train/date/class combinations in this group
+        public long getCapacity() { return capacity; }
+
+        public double getOccupancyPercent() {
+            return capacity == 0 ? 0 : seatsSold * 100.0 / capacity;
+        }
+
+        private void add(Cell cell) {
+            revenuePaise += cell.revenuePaise.sum();
+            taxPaise += cell.taxPaise.sum();
+            seatsSold += cell.seatsSold.sum();
+            tickets += cell.tickets.sum();
+            cancellations += cell.cancellations.sum();
+        }
+    }
+
+    // Counts a ticket that now holds seats
+    public void ticketBooked(Ticket ticket) {
+        Cell cell = cellFor(ticket);
+        cell.revenuePaise.add(paise(ticket.getTotalFare()));
+        cell.taxPaise.add(paise(ticket.getTax()));
+        cell.seatsSold.add(ticket.getNumberOfSeats());
+        cell.tickets.increment();
+    }
+
+    // Takes back a ticket that no longer holds seats; cancelled says whether
+    // to count it as a cancellation
+    public void ticketReleased(Ticket ticket, boolean cancelled) {
+        Cell cell = cellFor(ticket);
+        cell.revenuePaise.add(-paise(ticket.getTotalFare()));
+        cell.taxPaise.add(-paise(ticket.getTax()));
+        cell.seatsSold.add(-ticket.getNumberOfSeats());
+        cell.tickets.decrement();
+        if (cancelled) {
+            cell.cancellations.increment();
+        }
+    }
+
+    // Counts the cancellation of a ticket that held no seats, e.g. one still
+    // on the waitlist
+    public void ticketCancelled(Ticket ticket) {
+        cellFor(ticket).cancellations.increment();
+    }
+
+    // Recomputes everything from the ticket store, e.g. after startup replay.
+    // Not safe against concurrent bookings.
+    public void rebuild(Collection<Ticket> tickets) {
+        cells.clear();
+        for (Ticket ticket : tickets) {
+            if (ticket.holdsSeats()) {
+                ticketBooked(ticket);
+            } else if ("CANCELLED".equalsIgnoreCase(ticket.getStatus())) {
+                ticketCancelled(ticket);
+            }
+        }
+    }
+
+    public Totals overall(Function<String, ReadView.TrainRecord> trains) {
+        return rollup(key -> "all", trains).getOrDefault("all", new Totals());
+    }
+
+    public SortedMap<String, Totals> byTrain(Function<String, ReadView.TrainRecord> trains) {
+        return rollup(key -> key.trainNumber, trains);
+    }
+
+    public SortedMap<LocalDate, Totals> byJourneyDate(Function<String, ReadView.TrainRecord> trains) {
+        return rollup(key -> key.journeyDate, trains);
+    }
+
+    public SortedMap<String, Totals> bySeatClass(Function<String, ReadView.TrainRecord> trains) {
+        return rollup(key -> key.seatType, trains);
+    }
+
+    public SortedMap<String, Totals> byPaymentMethod(Function<String, ReadView.TrainRecord> trains) {
+        return rollup(key -> key.paymentMethod, trains);
+    }
+
+    // Sums cells into groups. Capacity is added once per train, date and
+    // class within a group, looked up from the train's seat counts in the
+    // caller's read view.
+    private <K extends Comparable<? super K>> SortedMap<K, Totals> rollup(Function<Key, K> groupOf,
+                                                                           Function<String, ReadView.TrainRecord> trains) {
+        SortedMap<K, Totals> groups = new TreeMap<>();
+        Set<List<Object>> capacityCounted = new HashSet<>();
+        for (Map.Entry<Key, Cell> entry : cells.entrySet()) {
+            Key key = entry.getKey();
+            K group = groupOf.apply(key);
+            Totals totals = groups.computeIfAbsent(group, g -> new Totals());
+            totals.add(entry.getValue());
+            ReadView.TrainRecord train = trains.apply(key.trainNumber);
+            if (train != null && capacityCounted.add(List.of(group, key.trainNumber, key.journeyDate, key.seatType))) {
+                totals.capacity += "AC".equalsIgnoreCase(key.seatType) ? train.getAcSeats() : train.getNonAcSeats();
+            }
+        }
+        return groups;
+    }
+
+    private Cell cellFor(Ticket ticket) {
+        String paymentMethod = ticket.getPaymentMethod() == null || ticket.getPaymentMethod().isEmpty()
+            ? "Unknown" : ticket.getPaymentMethod();
+        Key key = new Key(ticket.getTrain().getTrainNumber(), ticket.getJourneyDate().toLocalDate(),
+            "AC".equalsIgnoreCase(ticket.getSeatType()) ? "AC" : "Non-AC", paymentMethod);
+        return cells.computeIfAbsent(key, k -> new Cell());
+    }
+
+    private static long paise(double rupees) {
+        return Math.round(rupees * 100);
+    }
+}
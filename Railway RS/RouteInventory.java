@@ -0,0 +1,251 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Seats sold for part of a train's route on one journey date. Segment i
+// runs from stop i to stop i + 1; a ticket from stop a to stop b uses
+// segments [a, b). Each class keeps a segment tree of how many part-route
+// seats are in use on every segment.
+//
+// SeatInventory still counts whole-run availability: the seats free on
+// every segment. Part-route tickets take out of it only what they need
+// (the charge), so a leg that needs nothing more costs the whole-run count
+// nothing and a seat sold A to B is sold again B to C.
+//
+// Berths used by part-route tickets stay taken in the SeatAllocator and
+// are shared through a pool here, each with a bit per segment it is
+// occupied on. A leg is given pooled berths that are free on all its
+// segments, best fit (the busiest berths first, leaving emptier ones for
+// longer legs), and fresh berths from the allocator for the rest; a berth
+// goes back to the allocator once no leg uses it.
+//
+// Legs are placed as they are sold, never moved, so the pool can need more
+// berths than the busiest segment's load (the peak). The charge is
+// therefore the larger of the peak and the pool's size, and a leg is only
+// reserved if the whole-run count can cover what it adds to either, so
+// every seat counted as sold has a berth. A leg can then be refused while
+// the busiest segment it crosses still has room: the price of fixed berths.
+// The seats free between two stops are worked out the same way, from a
+// range maximum over the segments, O(log stops), and a scan of the pool.
+final class RouteInventory {
+    private final int segments;
+    private final SegmentTree acLoads;
+    private final SegmentTree nonAcLoads;
+    // "coach-berth" to a mask of the segments it is occupied on, in the
+    // order the berths joined the pool
+    private final Map<String, Long> acBerths = new LinkedHashMap<>();
+    private final Map<String, Long> nonAcBerths = new LinkedHashMap<>();
+    // Whole-run seats taken for part-route tickets in each class
+    private int acCharged;
+    private int nonAcCharged;
+
+    RouteInventory(int segments) {
+        this.segments = segments;
+        this.acLoads = new SegmentTree(segments);
+        this.nonAcLoads = new SegmentTree(segments);
+    }
+
+    int getSegments() {
+        return segments;
+    }
+
+    // Takes count seats on [from, to), and from the whole-run count as much
+    // as the leg adds to the charge, in one step; false if either is short
+    synchronized boolean reserve(SeatInventory inventory, LocalDate date, boolean ac, int from, int to, int count) {
+        SegmentTree loads = ac ? acLoads : nonAcLoads;
+        Map<String, Long> pool = ac ? acBerths : nonAcBerths;
+        int charged = ac ? acCharged : nonAcCharged;
+        int fresh = Math.max(0, count - freeBerths(pool, mask(from, to)));
+        int charge = Math.max(charged, Math.max(loads.max(from, to) + count, pool.size() + fresh));
+        if (!charge(inventory, date, ac, charge - charged)) {
+            return false;
+        }
+        loads.add(from, to, count);
+        return true;
+    }
+
+    // Puts count seats on [from, to) back and returns how far the charge
+    // fell: the seats the caller now owes the whole-run count. The leg's
+    // berths are freed first.
+    synchronized int release(boolean ac, int from, int to, int count) {
+        SegmentTree loads = ac ? acLoads : nonAcLoads;
+        loads.add(from, to, -count);
+        int charged = ac ? acCharged : nonAcCharged;
+        int charge = Math.max(loads.max(), (ac ? acBerths : nonAcBerths).size());
+        setCharged(ac, charge);
+        return Math.max(0, charged - charge);
+    }
+
+    synchronized int getAvailable(int wholeRunAvailable, boolean ac, int from, int to) {
+        SegmentTree loads = ac ? acLoads : nonAcLoads;
+        Map<String, Long> pool = ac ? acBerths : nonAcBerths;
+        int charged = ac ? acCharged : nonAcCharged;
+        int bySegments = wholeRunAvailable + charged - loads.max(from, to);
+        int byBerths = wholeRunAvailable + charged - pool.size() + freeBerths(pool, mask(from, to));
+        return Math.max(0, Math.min(bySegments, byBerths));
+    }
+
+    // Berths for count seats on [from, to), or null if there are none left;
+    // nothing is taken then. A leg reserved alongside another can find the
+    // pooled berths it was counted against gone, and then needs more of the
+    // whole-run count before it can take fresh ones.
+    synchronized SeatAllocator.Assignment allocate(SeatAllocator seatMap, SeatInventory inventory, LocalDate date,
+                                                   String seatType, int from, int to, int count) {
+        boolean ac = "AC".equalsIgnoreCase(seatType);
+        Map<String, Long> pool = poolFor(seatType);
+        long mask = mask(from, to);
+        List<Map.Entry<String, Long>> free = new ArrayList<>();
+        for (Map.Entry<String, Long> berth : pool.entrySet()) {
+            if ((berth.getValue() & mask) == 0) {
+                free.add(berth);
+            }
+        }
+        free.sort((a, b) -> Long.bitCount(b.getValue()) - Long.bitCount(a.getValue()));
+        List<String> berths = new ArrayList<>(count);
+        for (Map.Entry<String, Long> berth : free) {
+            if (berths.size() == count) break;
+            berths.add(berth.getKey());
+        }
+        int pooled = berths.size();
+        int charged = ac ? acCharged : nonAcCharged;
+        int extra = Math.max(0, pool.size() + count - pooled - charged);
+        if (!charge(inventory, date, ac, extra)) {
+            return null;
+        }
+        while (berths.size() < count) {
+            SeatAllocator.Assignment fresh = seatMap.allocate(seatType, 1);
+            if (fresh == null) {
+                for (String berth : berths.subList(pooled, berths.size())) {
+                    seatMap.release(seatType, "", List.of(berth));
+                }
+                setCharged(ac, charged);
+                inventory.release(date, ac ? extra : 0, ac ? 0 : extra);
+                return null;
+            }
+            berths.add(label(fresh.coach, fresh.seats.get(0)));
+        }
+        for (String berth : berths) {
+            pool.merge(berth, mask, (a, b) -> a | b);
+        }
+        // Give back whatever the leg was charged for but did not need
+        int surplus = (ac ? acCharged : nonAcCharged) - Math.max((ac ? acLoads : nonAcLoads).max(), pool.size());
+        if (surplus > 0) {
+            setCharged(ac, (ac ? acCharged : nonAcCharged) - surplus);
+            inventory.release(date, ac ? surplus : 0, ac ? 0 : surplus);
+        }
+        // Berths in the ticket's coach are written without it, as the allocator does
+        String coach = berths.get(0).substring(0, berths.get(0).indexOf('-'));
+        List<String> seats = new ArrayList<>(count);
+        for (String berth : berths) {
+            seats.add(berth.startsWith(coach + "-") ? berth.substring(coach.length() + 1) : berth);
+        }
+        return new SeatAllocator.Assignment(coach, seats);
+    }
+
+    // Frees a leg's berths on [from, to). Berths not in the pool, as after a
+    // restart before the pool is rebuilt, go straight back to the allocator.
+    synchronized void free(SeatAllocator seatMap, String seatType, int from, int to,
+                           String coach, List<String> seats) {
+        Map<String, Long> pool = poolFor(seatType);
+        long mask = mask(from, to);
+        for (String seat : seats) {
+            String berth = label(coach, seat);
+            Long occupied = pool.get(berth);
+            long left = occupied != null ? occupied & ~mask : 0;
+            if (left != 0) {
+                pool.put(berth, left);
+            } else {
+                pool.remove(berth);
+                seatMap.release(seatType, "", List.of(berth));
+            }
+        }
+    }
+
+    // Re-applies a stored ticket's load and berths at startup. The whole-run
+    // count is persisted and already includes the charge.
+    synchronized void restore(SeatAllocator seatMap, String seatType, int from, int to, int count,
+                              String coach, List<String> seats) {
+        boolean ac = "AC".equalsIgnoreCase(seatType);
+        SegmentTree loads = ac ? acLoads : nonAcLoads;
+        loads.add(from, to, count);
+        Map<String, Long> pool = poolFor(seatType);
+        long mask = mask(from, to);
+        for (String seat : seats) {
+            String berth = label(coach, seat);
+            pool.merge(berth, mask, (a, b) -> a | b);
+            seatMap.occupy(seatType, "", List.of(berth));
+        }
+        setCharged(ac, Math.max(ac ? acCharged : nonAcCharged, Math.max(loads.max(), pool.size())));
+    }
+
+    synchronized boolean isEmpty() {
+        return acLoads.max() == 0 && nonAcLoads.max() == 0 && acBerths.isEmpty() && nonAcBerths.isEmpty();
+    }
+
+    // Drops berths the allocator no longer has after a change of capacity
+    synchronized void retainBerths(int acSeats, int nonAcSeats) {
+        retain(acBerths, "A", SeatAllocator.AC_COACH_SEATS, acSeats);
+        retain(nonAcBerths, "S", SeatAllocator.NON_AC_COACH_SEATS, nonAcSeats);
+    }
+
+    private static void retain(Map<String, Long> pool, String prefix, int seatsPerCoach, int capacity) {
+        for (Iterator<String> it = pool.keySet().iterator(); it.hasNext(); ) {
+            String berth = it.next();
+            int dash = berth.indexOf('-');
+            try {
+                int coach = Integer.parseInt(berth.substring(prefix.length(), dash)) - 1;
+                int number = Integer.parseInt(berth.substring(dash + 1)) - 1;
+                if (coach * seatsPerCoach + number >= capacity) {
+                    it.remove();
+                }
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                it.remove();
+            }
+        }
+    }
+
+    // Takes seats from the whole-run count and adds them to the charge
+    private boolean charge(SeatInventory inventory, LocalDate date, boolean ac, int seats) {
+        if (seats > 0 && !inventory.reserve(date, ac ? seats : 0, ac ? 0 : seats)) {
+            return false;
+        }
+        setCharged(ac, (ac ? acCharged : nonAcCharged) + seats);
+        return true;
+    }
+
+    private void setCharged(boolean ac, int charged) {
+        if (ac) {
+            acCharged = charged;
+        } else {
+            nonAcCharged = charged;
+        }
+    }
+
+    // Pooled berths free on every segment of mask
+    private static int freeBerths(Map<String, Long> pool, long mask) {
+        int free = 0;
+        for (long occupied : pool.values()) {
+            if ((occupied & mask) == 0) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    private Map<String, Long> poolFor(String seatType) {
+        return "AC".equalsIgnoreCase(seatType) ? acBerths : nonAcBerths;
+    }
+
+    // "S3-07" for berth 07 of coach S3, whether or not the seat already names its coach
+    private static String label(String coach, String seat) {
+        return seat.indexOf('-') >= 0 ? seat : coach + "-" + seat;
+    }
+
+    private static long mask(int from, int to) {
+        long upTo = to == 64 ? -1L : (1L << to) - 1;
+        return upTo & ~((1L << from) - 1);
+    }
+}
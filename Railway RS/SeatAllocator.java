@@ -0,0 +1,260 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Berth occupancy of one train on one journey date. Each coach is a small
+// bitset (one bit per berth) and each class keeps a bitset of coaches that
+// still have room, so an allocation only looks at coaches that can serve it.
+// Group bookings get a contiguous run in one coach when there is one, then
+// any berths in one coach, and only then are spread across coaches.
+public class SeatAllocator implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int AC_COACH_SEATS = 30;
+    public static final int NON_AC_COACH_SEATS = 72;
+
+    private final CoachClass ac;
+    private final CoachClass nonAc;
+
+    public SeatAllocator(int acSeats, int nonAcSeats) {
+        this.ac = new CoachClass("A", AC_COACH_SEATS, acSeats);
+        this.nonAc = new CoachClass("S", NON_AC_COACH_SEATS, nonAcSeats);
+    }
+
+    // Coach and berth labels handed to one ticket. Berths outside the ticket's
+    // own coach are written as "<coach>-<berth>", e.g. "S3-07".
+    public static class Assignment {
+        public final String coach;
+        public final List<String> seats;
+
+        Assignment(String coach, List<String> seats) {
+            this.coach = coach;
+            this.seats = Collections.unmodifiableList(seats);
+        }
+    }
+
+    // Returns null if the class does not have that many free berths
+    public synchronized Assignment allocate(String seatType, int count) {
+        return classFor(seatType).allocate(count);
+    }
+
+    // Marks berths of a restored ticket as taken
+    public synchronized void occupy(String seatType, String coach, List<String> seats) {
+        classFor(seatType).mark(coach, seats, true);
+    }
+
+    public synchronized void release(String seatType, String coach, List<String> seats) {
+        classFor(seatType).mark(coach, seats, false);
+    }
+
+    public synchronized int getFreeSeats(String seatType) {
+        return classFor(seatType).free;
+    }
+
+    // Keeps the berths that still exist after a change of capacity
+    public synchronized void resize(int acSeats, int nonAcSeats) {
+        ac.resize(acSeats);
+        nonAc.resize(nonAcSeats);
+    }
+
+    private CoachClass classFor(String seatType) {
+        return "AC".equalsIgnoreCase(seatType) ? ac : nonAc;
+    }
+
+    private static String berthLabel(int berth) {
+        int number = berth + 1;
+        return number < 10 ? "0" + number : Integer.toString(number);
+    }
+
+    private static class CoachClass implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final int WORDS = 2; // enough for a 72-berth sleeper coach
+
+        private final String prefix;
+        private final int seatsPerCoach;
+        private long[] occupied = new long[0];   // WORDS longs per coach
+        private int[] freeInCoach = new int[0];
+        private long[] coachesWithRoom = new long[0];
+        private int capacity;
+        private int free;
+
+        CoachClass(String prefix, int seatsPerCoach, int capacity) {
+            this.prefix = prefix;
+            this.seatsPerCoach = seatsPerCoach;
+            resize(capacity);
+        }
+
+        Assignment allocate(int count) {
+            if (count <= 0 || count > free) {
+                return null;
+            }
+            // 1. A contiguous run in a single coach
+            if (count <= seatsPerCoach) {
+                for (int coach = nextCoachWithRoom(0); coach >= 0; coach = nextCoachWithRoom(coach + 1)) {
+                    if (freeInCoach[coach] < count) continue;
+                    int start = findRun(coach, count);
+                    if (start >= 0) {
+                        List<String> seats = new ArrayList<>(count);
+                        for (int berth = start; berth < start + count; berth++) {
+                            take(coach, berth);
+                            seats.add(berthLabel(berth));
+                        }
+                        return new Assignment(coachLabel(coach), seats);
+                    }
+                }
+                // 2. Any berths, all in one coach
+                for (int coach = nextCoachWithRoom(0); coach >= 0; coach = nextCoachWithRoom(coach + 1)) {
+                    if (freeInCoach[coach] >= count) {
+                        List<String> seats = new ArrayList<>(count);
+                        takeFree(coach, count, seats, null);
+                        return new Assignment(coachLabel(coach), seats);
+                    }
+                }
+            }
+            // 3. Spread across coaches, labelling berths outside the first coach
+            List<String> seats = new ArrayList<>(count);
+            int first = nextCoachWithRoom(0);
+            for (int coach = first; seats.size() < count; coach = nextCoachWithRoom(coach + 1)) {
+                takeFree(coach, count - seats.size(), seats, coach == first ? null : coachLabel(coach));
+            }
+            return new Assignment(coachLabel(first), seats);
+        }
+
+        void mark(String coach, List<String> seats, boolean taken) {
+            for (String seat : seats) {
+                String seatCoach = coach;
+                String berthText = seat;
+                int dash = seat.indexOf('-');
+                if (dash >= 0) {
+                    seatCoach = seat.substring(0, dash);
+                    berthText = seat.substring(dash + 1);
+                }
+                if (!seatCoach.startsWith(prefix)) continue;
+                int coachIndex;
+                int berth;
+                try {
+                    coachIndex = Integer.parseInt(seatCoach.substring(prefix.length())) - 1;
+                    berth = Integer.parseInt(berthText.trim()) - 1;
+                } catch (NumberFormatException e) {
+                    continue; // not a berth this allocator handed out
+                }
+                if (coachIndex < 0 || berth < 0 || berth >= coachCapacity(coachIndex)) continue;
+                boolean isTaken = isTaken(coachIndex, berth);
+                if (taken && !isTaken) {
+                    take(coachIndex, berth);
+                } else if (!taken && isTaken) {
+                    give(coachIndex, berth);
+                }
+            }
+        }
+
+        void resize(int newCapacity) {
+            int coaches = (newCapacity + seatsPerCoach - 1) / seatsPerCoach;
+            long[] oldOccupied = occupied;
+            int oldCoaches = freeInCoach.length;
+            occupied = new long[coaches * WORDS];
+            freeInCoach = new int[coaches];
+            coachesWithRoom = new long[(coaches + 63) >>> 6];
+            capacity = newCapacity;
+            free = 0;
+            for (int coach = 0; coach < coaches; coach++) {
+                int coachCapacity = coachCapacity(coach);
+                freeInCoach[coach] = coachCapacity;
+                free += coachCapacity;
+                if (coach < oldCoaches) {
+                    for (int word = 0; word < WORDS; word++) {
+                        long kept = oldOccupied[coach * WORDS + word] & validMask(coachCapacity, word);
+                        occupied[coach * WORDS + word] = kept;
+                        freeInCoach[coach] -= Long.bitCount(kept);
+                        free -= Long.bitCount(kept);
+                    }
+                }
+                updateRoom(coach);
+            }
+        }
+
+        // Lowest berth starting a run of count free berths, or -1
+        private int findRun(int coach, int count) {
+            long free0 = ~occupied[coach * WORDS] & validMask(coachCapacity(coach), 0);
+            long free1 = ~occupied[coach * WORDS + 1] & validMask(coachCapacity(coach), 1);
+            long run0 = free0;
+            long run1 = free1;
+            // After step i, bit b is set only if berths b..b+i are all free
+            for (int i = 1; i < count && (run0 | run1) != 0; i++) {
+                long shifted0 = i < 64 ? (free0 >>> i) | (free1 << (64 - i)) : free1 >>> (i - 64);
+                long shifted1 = i < 64 ? free1 >>> i : 0;
+                run0 &= shifted0;
+                run1 &= shifted1;
+            }
+            if (run0 != 0) return Long.numberOfTrailingZeros(run0);
+            if (run1 != 0) return 64 + Long.numberOfTrailingZeros(run1);
+            return -1;
+        }
+
+        private void takeFree(int coach, int count, List<String> seats, String coachLabel) {
+            for (int word = 0; word < WORDS && count > 0; word++) {
+                long available = ~occupied[coach * WORDS + word] & validMask(coachCapacity(coach), word);
+                while (available != 0 && count > 0) {
+                    int berth = word * 64 + Long.numberOfTrailingZeros(available);
+                    available &= available - 1;
+                    take(coach, berth);
+                    seats.add(coachLabel == null ? berthLabel(berth) : coachLabel + "-" + berthLabel(berth));
+                    count--;
+                }
+            }
+        }
+
+        private boolean isTaken(int coach, int berth) {
+            return (occupied[coach * WORDS + (berth >>> 6)] & (1L << berth)) != 0;
+        }
+
+        private void take(int coach, int berth) {
+            occupied[coach * WORDS + (berth >>> 6)] |= 1L << berth;
+            freeInCoach[coach]--;
+            free--;
+            updateRoom(coach);
+        }
+
+        private void give(int coach, int berth) {
+            occupied[coach * WORDS + (berth >>> 6)] &= ~(1L << berth);
+            freeInCoach[coach]++;
+            free++;
+            updateRoom(coach);
+        }
+
+        private void updateRoom(int coach) {
+            if (freeInCoach[coach] > 0) {
+                coachesWithRoom[coach >>> 6] |= 1L << coach;
+            } else {
+                coachesWithRoom[coach >>> 6] &= ~(1L << coach);
+            }
+        }
+
+        private int nextCoachWithRoom(int from) {
+            int index = from >>> 6;
+            if (index >= coachesWithRoom.length) return -1;
+            long word = coachesWithRoom[index] & (-1L << from);
+            while (true) {
+                if (word != 0) return index * 64 + Long.numberOfTrailingZeros(word);
+                if (++index == coachesWithRoom.length) return -1;
+                word = coachesWithRoom[index];
+            }
+        }
+
+        // The last coach of a class may be only partly fitted
+        private int coachCapacity(int coach) {
+            if (coach >= freeInCoach.length) return 0;
+            return Math.min(seatsPerCoach, capacity - coach * seatsPerCoach);
+        }
+
+        private static long validMask(int coachCapacity, int word) {
+            int bits = Math.max(0, Math.min(64, coachCapacity - word * 64));
+            return bits == 64 ? -1L : (1L << bits) - 1;
+        }
+
+        private String coachLabel(int coach) {
+            return prefix + (coach + 1);
+        }
+    }
+}
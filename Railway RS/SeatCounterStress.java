@@ -0,0 +1,110 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Hammers one hot train's seat counters with concurrent bookers, each
+// reserving and releasing single-class and mixed AC/Non-AC requests on the
+// same journey date, and checks that no update was lost: when the threads
+// stop, seats available plus seats still held by the threads must equal
+// capacity in each class. A sampler watches for availability outside
+// [0, capacity] while the run is going. Exits with status 1 on any failure.
+// Usage: java SeatCounterStress [threads] [seconds]
+public class SeatCounterStress {
+    private static final int AC_SEATS = 240;
+    private static final int TOTAL_SEATS = 1392;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        LocalDateTime departure = LocalDate.now().plusDays(1).atTime(6, 0);
+        Train train = new Train("H1", "Hot Train", "Delhi", "Mumbai",
+            departure, departure.plusHours(16), TOTAL_SEATS, 500, AC_SEATS);
+        LocalDate date = departure.toLocalDate();
+        int nonAcSeats = TOTAL_SEATS - AC_SEATS;
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        // Per thread: AC and Non-AC seats still held, reservations granted and refused
+        long[][] results = new long[threads][4];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] out = results[t];
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ArrayDeque<int[]> held = new ArrayDeque<>();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (running.get()) {
+                    // Lean towards booking so the train keeps selling out
+                    if (held.isEmpty() || random.nextInt(10) < 6) {
+                        int kind = random.nextInt(3);
+                        int ac = kind == 1 ? 0 : 1 + random.nextInt(4);
+                        int nonAc = kind == 0 ? 0 : 1 + random.nextInt(6);
+                        if (train.reserveSeats(date, ac, nonAc)) {
+                            held.add(new int[] { ac, nonAc });
+                            out[2]++;
+                        } else {
+                            out[3]++;
+                        }
+                    } else {
+                        int[] seats = random.nextBoolean() ? held.pollFirst() : held.pollLast();
+                        train.releaseSeats(date, seats[0], seats[1]);
+                    }
+                }
+                for (int[] seats : held) {
+                    out[0] += seats[0];
+                    out[1] += seats[1];
+                }
+            }, "booker-" + t);
+            workers[t].start();
+        }
+
+        long[] outOfRange = new long[1];
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                int ac = train.getAvailableAcSeats(date);
+                int nonAc = train.getAvailableNonAcSeats(date);
+                if (ac < 0 || ac > AC_SEATS || nonAc < 0 || nonAc > nonAcSeats) {
+                    outOfRange[0]++;
+                }
+            }
+        }, "sampler");
+
+        long began = System.nanoTime();
+        start.countDown();
+        sampler.start();
+        Thread.sleep(seconds * 1000);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        sampler.join();
+        long elapsed = System.nanoTime() - began;
+
+        long heldAc = 0, heldNonAc = 0, granted = 0, refused = 0;
+        for (long[] out : results) {
+            heldAc += out[0];
+            heldNonAc += out[1];
+            granted += out[2];
+            refused += out[3];
+        }
+        long lostAc = AC_SEATS - heldAc - train.getAvailableAcSeats(date);
+        long lostNonAc = nonAcSeats - heldNonAc - train.getAvailableNonAcSeats(date);
+        System.out.printf("%d bookers on one train for %d s: %,d reservations granted, %,d refused, %,.0f ops/s%n",
+            threads, seconds, granted, refused, (granted + refused) * 1e9 / elapsed);
+        System.out.printf("AC: %d held + %d available of %d, lost updates %d%n",
+            heldAc, train.getAvailableAcSeats(date), AC_SEATS, lostAc);
+        System.out.printf("Non-AC: %d held + %d available of %d, lost updates %d%n",
+            heldNonAc, train.getAvailableNonAcSeats(date), nonAcSeats, lostNonAc);
+        System.out.printf("Availability samples out of range: %d%n", outOfRange[0]);
+        if (lostAc != 0 || lostNonAc != 0 || outOfRange[0] != 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Seats set aside for one buyer until a deadline, while they pay. A hold
+// leaves ACTIVE exactly once: CONFIRMED when it is booked, RELEASED when the
+// buyer backs out, or EXPIRED when the deadline passes. See SeatHoldManager.
+public class SeatHold {
+    public enum State { ACTIVE, CONFIRMED, RELEASED, EXPIRED }
+
+    private final long id;
+    private final String userId;
+    private final Train train;
+    private final LocalDate journeyDate;
+    private final String seatType;
+    private final int numberOfSeats;
+    private final long expiresAtMillis;
+    private final AtomicReference<State> state = new AtomicReference<>(State.ACTIVE);
+    // Guarded by the manager's wheel lock
+    TimerWheel.Timeout<SeatHold> timeout;
+
+    SeatHold(long id, String userId, Train train, LocalDate journeyDate, String seatType,
+             int numberOfSeats, long expiresAtMillis) {
+        this.id = id;
+        this.userId = userId;
+        this.train = train;
+        this.journeyDate = journeyDate;
+        this.seatType = seatType;
+        this.numberOfSeats = numberOfSeats;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    // Moves an active hold to its final state; false if it already left ACTIVE
+    boolean finish(State outcome) {
+        return state.compareAndSet(State.ACTIVE, outcome);
+    }
+
+    public long getId() { return id; }
+    public String getUserId() { return userId; }
+    public Train getTrain() { return train; }
+    public LocalDate getJourneyDate() { return journeyDate; }
+    public String getSeatType() { return seatType; }
+    public int getNumberOfSeats() { return numberOfSeats; }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+    public State getState() { return state.get(); }
+
+    public boolean isActive() {
+        return state.get() == State.ACTIVE;
+    }
+
+    public long getRemainingMillis() {
+        return Math.max(0, expiresAtMillis - System.currentTimeMillis());
+    }
+
+    int getAcSeats() {
+        return "AC".equalsIgnoreCase(seatType) ? numberOfSeats : 0;
+    }
+
+    int getNonAcSeats() {
+        return "AC".equalsIgnoreCase(seatType) ? 0 : numberOfSeats;
+    }
+}
@@ -0,0 +1,178 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Seat holds with a time limit. A hold takes seats out of availability while
+// the buyer pays, and becomes a booking only through BookingService.book(hold,
+// request). Holds the buyer abandons go back on sale when their time runs out:
+// deadlines sit in a timer wheel that a background thread advances every
+// tick, so expiry touches only the holds that are due, never the ticket
+// store. Expired seats are returned in one step per train and date. Each
+// user may have only a few holds at once, so a burst of abandoned carts
+// cannot lock real buyers out for long.
+//
+// Holds live in memory only. Persisted availability counts held seats as
+// free, so nothing leaks if the process stops with holds outstanding.
+//
+// Tuning: -Drailway.hold.ttlSeconds (default 300) and
+// -Drailway.hold.maxPerUser (default 2).
+public class SeatHoldManager {
+    private static final long TICK_MILLIS = 250;
+    private static SeatHoldManager instance;
+
+    private final DatabaseManager database;
+    private final long ttlMillis;
+    private final int maxHoldsPerUser;
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final TimerWheel<SeatHold> wheel;
+    private final Map<String, Integer> activeHoldsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger activeHolds = new AtomicInteger();
+    private final AtomicLong nextHoldId = new AtomicLong(1);
+    private final ScheduledExecutorService expiryExecutor;
+
+    SeatHoldManager(DatabaseManager database, long ttlMillis, int maxHoldsPerUser) {
+        this.database = database;
+        this.ttlMillis = ttlMillis;
+        this.maxHoldsPerUser = maxHoldsPerUser;
+        this.wheel = new TimerWheel<>(TICK_MILLIS, System.currentTimeMillis());
+        this.expiryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expiryExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                expireDue();
+            } catch (RuntimeException e) {
+                Log.error("Error expiring seat holds", e);
+            }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized SeatHoldManager getInstance() {
+        if (instance == null) {
+            instance = new SeatHoldManager(DatabaseManager.getInstance(),
+                TimeUnit.SECONDS.toMillis(Long.getLong("railway.hold.ttlSeconds", 300L)),
+                Integer.getInteger("railway.hold.maxPerUser", 2));
+        }
+        return instance;
+    }
+
+    // Takes the seats for ttl. The request must already be validated.
+    public SeatHold hold(String userId, Train train, LocalDate journeyDate, String seatType, int seats)
+            throws BookingException {
+        boolean[] admitted = new boolean[1];
+        activeHoldsByUser.compute(userId, (user, count) -> {
+            int current = count == null ? 0 : count;
+            admitted[0] = current < maxHoldsPerUser;
+            return admitted[0] ? current + 1 : count;
+        });
+        if (!admitted[0]) {
+            throw new BookingException(BookingError.TOO_MANY_HOLDS, "You already have " + maxHoldsPerUser
+                + " bookings awaiting payment; complete or cancel one first");
+        }
+        SeatHold hold = new SeatHold(nextHoldId.getAndIncrement(), userId, train, journeyDate, seatType, seats,
+            System.currentTimeMillis() + ttlMillis);
+        if (!database.holdSeats(train, journeyDate, hold.getAcSeats(), hold.getNonAcSeats())) {
+            userHoldEnded(userId);
+            throw new BookingException(BookingError.SEATS_UNAVAILABLE, "Not enough " + seatType + " seats available");
+        }
+        wheelLock.lock();
+        try {
+            hold.timeout = wheel.schedule(hold, hold.getExpiresAtMillis());
+        } finally {
+            wheelLock.unlock();
+        }
+        activeHolds.incrementAndGet();
+        Metrics.SEAT_HOLDS.increment();
+        return hold;
+    }
+
+    // Hands an active hold's seats to a booking. False if the hold has
+    // already expired or been released.
+    boolean claim(SeatHold hold) {
+        if (!hold.finish(SeatHold.State.CONFIRMED)) {
+            return false;
+        }
+        ended(hold);
+        database.confirmHeldSeats(hold.getTrain(), hold.getJourneyDate(), hold.getAcSeats(), hold.getNonAcSeats());
+        return true;
+    }
+
+    // Gives an active hold's seats back at once. False if it had already ended.
+    public boolean release(SeatHold hold) {
+        if (!hold.finish(SeatHold.State.RELEASED)) {
+            return false;
+        }
+        ended(hold);
+        database.releaseHeldSeats(hold.getTrain(), hold.getJourneyDate(), hold.getAcSeats(), hold.getNonAcSeats());
+        return true;
+    }
+
+    public int getActiveHoldCount() {
+        return activeHolds.get();
+    }
+
+    // Runs on the expiry thread every tick
+    void expireDue() {
+        List<SeatHold> due = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            wheel.advance(System.currentTimeMillis(), due::add);
+        } finally {
+            wheelLock.unlock();
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        // Total up the seats per train and date, then return each total at once
+        Map<Train, Map<LocalDate, int[]>> seatsToRelease = new HashMap<>();
+        int expired = 0;
+        for (SeatHold hold : due) {
+            // A hold booked or released since it fell due is left alone
+            if (!hold.finish(SeatHold.State.EXPIRED)) {
+                continue;
+            }
+            userHoldEnded(hold.getUserId());
+            activeHolds.decrementAndGet();
+            int[] seats = seatsToRelease.computeIfAbsent(hold.getTrain(), t -> new HashMap<>())
+                .computeIfAbsent(hold.getJourneyDate(), d -> new int[2]);
+            seats[0] += hold.getAcSeats();
+            seats[1] += hold.getNonAcSeats();
+            expired++;
+        }
+        for (Map.Entry<Train, Map<LocalDate, int[]>> train : seatsToRelease.entrySet()) {
+            for (Map.Entry<LocalDate, int[]> date : train.getValue().entrySet()) {
+                database.releaseHeldSeats(train.getKey(), date.getKey(), date.getValue()[0], date.getValue()[1]);
+            }
+        }
+        Metrics.SEAT_HOLDS_EXPIRED.add(expired);
+        if (expired > 0) {
+            Log.info("Released {} expired seat holds", expired);
+        }
+    }
+
+    private void ended(SeatHold hold) {
+        wheelLock.lock();
+        try {
+            wheel.cancel(hold.timeout);
+        } finally {
+            wheelLock.unlock();
+        }
+        userHoldEnded(hold.getUserId());
+        activeHolds.decrementAndGet();
+    }
+
+    private void userHoldEnded(String userId) {
+        activeHoldsByUser.computeIfPresent(userId, (user, count) -> count > 1 ? count - 1 : null);
+    }
+}
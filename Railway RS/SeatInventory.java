@@ -0,0 +1,290 @@
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per-journey-date seat availability for one train over the booking horizon.
+// Each date maps to one slot of a ring of HORIZON_DAYS longs, packed as
+// [epoch day + 1 : 32 bits][available AC : 16 bits][available Non-AC : 16 bits].
+// A slot tagged with a different day has not been booked for this date yet and
+// reads as full capacity, so the ring never needs to be swept as days pass.
+// All operations are O(1) compare-and-set on one slot; a full horizon costs
+// under 1 KB per train.
+//
+// Seats under a temporary hold (see SeatHoldManager) are taken out of
+// availability like any booking and also counted in a second ring, packed
+// the same way. Holds do not survive a restart, so exportSlots and
+// getDurable* count held seats as available. Seats kept for a waitlist are
+// counted in a third ring; they do survive a restart, so they are persisted
+// as taken and their counts are exported alongside (see exportKept).
+public class SeatInventory implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int HORIZON_DAYS = 120;
+    public static final int MAX_SEATS_PER_CLASS = 0xFFFF;
+
+    private final AtomicLongArray slots = new AtomicLongArray(HORIZON_DAYS);
+    private final AtomicLongArray held = new AtomicLongArray(HORIZON_DAYS);
+    private final AtomicLongArray kept = new AtomicLongArray(HORIZON_DAYS);
+    private volatile int acCapacity;
+    private volatile int nonAcCapacity;
+
+    public SeatInventory(int acCapacity, int nonAcCapacity) {
+        setCapacity(acCapacity, nonAcCapacity);
+    }
+
+    // True for today and the following HORIZON_DAYS - 1 days
+    public static boolean isWithinHorizon(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        return !date.isBefore(today) && date.isBefore(today.plusDays(HORIZON_DAYS));
+    }
+
+    public boolean reserve(LocalDate date, int acCount, int nonAcCount) {
+        int index = indexOf(date);
+        long tag = tagOf(date);
+        while (true) {
+            long current = slots.get(index);
+            int ac = availableAc(current, tag);
+            int nonAc = availableNonAc(current, tag);
+            if (ac < acCount || nonAc < nonAcCount) {
+                return false;
+            }
+            if (slots.compareAndSet(index, current, pack(tag, ac - acCount, nonAc - nonAcCount))) {
+                return true;
+            }
+        }
+    }
+
+    // Returns seats, capped at each class's capacity
+    public void release(LocalDate date, int acCount, int nonAcCount) {
+        int index = indexOf(date);
+        long tag = tagOf(date);
+        while (true) {
+            long current = slots.get(index);
+            int ac = Math.min(acCapacity, availableAc(current, tag) + acCount);
+            int nonAc = Math.min(nonAcCapacity, availableNonAc(current, tag) + nonAcCount);
+            if (slots.compareAndSet(index, current, pack(tag, ac, nonAc))) {
+                return;
+            }
+        }
+    }
+
+    // Takes seats out of availability as a hold; false if either class is short
+    public boolean hold(LocalDate date, int acCount, int nonAcCount) {
+        if (!reserve(date, acCount, nonAcCount)) {
+            return false;
+        }
+        adjust(held, date, acCount, nonAcCount);
+        return true;
+    }
+
+    // Ends a hold and gives its seats back
+    public void releaseHold(LocalDate date, int acCount, int nonAcCount) {
+        adjust(held, date, -acCount, -nonAcCount);
+        release(date, acCount, nonAcCount);
+    }
+
+    // Ends a hold whose seats now belong to a booking
+    public void confirmHold(LocalDate date, int acCount, int nonAcCount) {
+        adjust(held, date, -acCount, -nonAcCount);
+    }
+
+    // Turns booked seats into seats kept for a waitlist; they stay out of
+    // availability throughout, so no concurrent booking can take them
+    public void keepBooked(LocalDate date, int acCount, int nonAcCount) {
+        adjust(kept, date, acCount, nonAcCount);
+    }
+
+    // Puts kept seats back on sale
+    public void releaseKept(LocalDate date, int acCount, int nonAcCount) {
+        adjust(kept, date, -acCount, -nonAcCount);
+        release(date, acCount, nonAcCount);
+    }
+
+    // Kept seats that now belong to a booking
+    public void confirmKept(LocalDate date, int acCount, int nonAcCount) {
+        adjust(kept, date, -acCount, -nonAcCount);
+    }
+
+    public int getHeldAc(LocalDate date) {
+        return countAc(held, date);
+    }
+
+    public int getHeldNonAc(LocalDate date) {
+        return countNonAc(held, date);
+    }
+
+    public int getKeptAc(LocalDate date) {
+        return countAc(kept, date);
+    }
+
+    public int getKeptNonAc(LocalDate date) {
+        return countNonAc(kept, date);
+    }
+
+    // Overwrites the kept counts of one date, used when restoring persisted
+    // state. Persisted availability already excludes kept seats.
+    public void setKept(LocalDate date, int ac, int nonAc) {
+        kept.set(indexOf(date), pack(tagOf(date), clamp(ac, acCapacity), clamp(nonAc, nonAcCapacity)));
+    }
+
+    // Dates within the horizon that have seats kept for a waitlist
+    public List<LocalDate> getKeptDates() {
+        List<LocalDate> dates = new ArrayList<>();
+        for (long value : exportKept()) {
+            LocalDate date = LocalDate.ofEpochDay((value >>> 32) - 1);
+            if (isWithinHorizon(date)) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+
+    // Availability as it should be persisted: held seats count as free
+    public int getDurableAc(LocalDate date) {
+        return getAvailableAc(date) + getHeldAc(date);
+    }
+
+    public int getDurableNonAc(LocalDate date) {
+        return getAvailableNonAc(date) + getHeldNonAc(date);
+    }
+
+    private static int countAc(AtomicLongArray ring, LocalDate date) {
+        long current = ring.get(indexOf(date));
+        return (current >>> 32) == tagOf(date) ? unpackAc(current) : 0;
+    }
+
+    private static int countNonAc(AtomicLongArray ring, LocalDate date) {
+        long current = ring.get(indexOf(date));
+        return (current >>> 32) == tagOf(date) ? unpackNonAc(current) : 0;
+    }
+
+    private static void adjust(AtomicLongArray ring, LocalDate date, int acDelta, int nonAcDelta) {
+        int index = indexOf(date);
+        long tag = tagOf(date);
+        while (true) {
+            long current = ring.get(index);
+            boolean sameDate = (current >>> 32) == tag;
+            int ac = Math.max(0, (sameDate ? unpackAc(current) : 0) + acDelta);
+            int nonAc = Math.max(0, (sameDate ? unpackNonAc(current) : 0) + nonAcDelta);
+            if (ring.compareAndSet(index, current, pack(tag, ac, nonAc))) {
+                return;
+            }
+        }
+    }
+
+    // Overwrites the availability of one date, used when restoring persisted state
+    public void set(LocalDate date, int ac, int nonAc) {
+        slots.set(indexOf(date), pack(tagOf(date), clamp(ac, acCapacity), clamp(nonAc, nonAcCapacity)));
+    }
+
+    public int getAvailableAc(LocalDate date) {
+        return availableAc(slots.get(indexOf(date)), tagOf(date));
+    }
+
+    public int getAvailableNonAc(LocalDate date) {
+        return availableNonAc(slots.get(indexOf(date)), tagOf(date));
+    }
+
+    // Shifts every booked date by the change in capacity, keeping existing bookings
+    public void setCapacity(int acCapacity, int nonAcCapacity) {
+        if (acCapacity > MAX_SEATS_PER_CLASS || nonAcCapacity > MAX_SEATS_PER_CLASS) {
+            throw new IllegalArgumentException("A seat class cannot exceed " + MAX_SEATS_PER_CLASS + " seats");
+        }
+        int acDelta = acCapacity - this.acCapacity;
+        int nonAcDelta = nonAcCapacity - this.nonAcCapacity;
+        this.acCapacity = acCapacity;
+        this.nonAcCapacity = nonAcCapacity;
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            while (true) {
+                long current = slots.get(i);
+                if (current == 0) break;
+                long tag = current >>> 32;
+                long updated = pack(tag,
+                    clamp(unpackAc(current) + acDelta, acCapacity),
+                    clamp(unpackNonAc(current) + nonAcDelta, nonAcCapacity));
+                if (slots.compareAndSet(i, current, updated)) break;
+            }
+        }
+    }
+
+    // Slot values of every date that has been booked, for snapshots, with
+    // held seats counted as available and kept seats as taken. The caller must keep holds from
+    // changing while this runs.
+    public long[] exportSlots() {
+        long[] exported = new long[HORIZON_DAYS];
+        int count = 0;
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            long value = slots.get(i);
+            if (value != 0) {
+                long heldValue = held.get(i);
+                if ((heldValue >>> 32) == (value >>> 32)) {
+                    value = pack(value >>> 32, clamp(unpackAc(value) + unpackAc(heldValue), acCapacity),
+                        clamp(unpackNonAc(value) + unpackNonAc(heldValue), nonAcCapacity));
+                }
+                exported[count++] = value;
+            }
+        }
+        return java.util.Arrays.copyOf(exported, count);
+    }
+
+    // Kept counts of every date that has any, packed like exportSlots
+    public long[] exportKept() {
+        long[] exported = new long[HORIZON_DAYS];
+        int count = 0;
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            long value = kept.get(i);
+            if ((value & 0xFFFFFFFFL) != 0) {
+                exported[count++] = value;
+            }
+        }
+        return java.util.Arrays.copyOf(exported, count);
+    }
+
+    public void importKept(long[] values) {
+        for (long value : values) {
+            LocalDate date = LocalDate.ofEpochDay((value >>> 32) - 1);
+            setKept(date, unpackAc(value), unpackNonAc(value));
+        }
+    }
+
+    public void importSlots(long[] values) {
+        for (long value : values) {
+            LocalDate date = LocalDate.ofEpochDay((value >>> 32) - 1);
+            set(date, unpackAc(value), unpackNonAc(value));
+        }
+    }
+
+    private int availableAc(long slot, long tag) {
+        return (slot >>> 32) == tag ? unpackAc(slot) : acCapacity;
+    }
+
+    private int availableNonAc(long slot, long tag) {
+        return (slot >>> 32) == tag ? unpackNonAc(slot) : nonAcCapacity;
+    }
+
+    private static int indexOf(LocalDate date) {
+        return (int) Math.floorMod(date.toEpochDay(), (long) HORIZON_DAYS);
+    }
+
+    private static long tagOf(LocalDate date) {
+        return date.toEpochDay() + 1;
+    }
+
+    private static long pack(long tag, int ac, int nonAc) {
+        return (tag << 32) | ((long) ac << 16) | nonAc;
+    }
+
+    private static int unpackAc(long slot) {
+        return (int) ((slot >>> 16) & 0xFFFF);
+    }
+
+    private static int unpackNonAc(long slot) {
+        return (int) (slot & 0xFFFF);
+    }
+
+    private static int clamp(int value, int capacity) {
+        return Math.max(0, Math.min(capacity, value));
+    }
+}
@@ -0,0 +1,80 @@
+// Segment tree over a fixed row of counters, supporting "add to a range"
+// and "largest value in a range" in O(log n) each. Range updates are lazy:
+// a node that covers the whole range just records the addition for its
+// subtree instead of passing it down.
+//
+// Not thread-safe; callers serialize access.
+final class SegmentTree {
+    private final int size;
+    // max[node] is the largest value in the node's range, counting
+    // everything added to it and its ancestors' pending additions below
+    private final int[] max;
+    // Added to the whole of a node's range and not yet pushed to its children
+    private final int[] pending;
+
+    SegmentTree(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        this.size = size;
+        this.max = new int[4 * size];
+        this.pending = new int[4 * size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Adds delta to every counter in [from, to)
+    void add(int from, int to, int delta) {
+        checkRange(from, to);
+        add(1, 0, size, from, to, delta);
+    }
+
+    // Largest counter in [from, to)
+    int max(int from, int to) {
+        checkRange(from, to);
+        return max(1, 0, size, from, to);
+    }
+
+    // Largest counter overall
+    int max() {
+        return max[1];
+    }
+
+    private void add(int node, int nodeFrom, int nodeTo, int from, int to, int delta) {
+        if (to <= nodeFrom || nodeTo <= from) {
+            return;
+        }
+        if (from <= nodeFrom && nodeTo <= to) {
+            max[node] += delta;
+            pending[node] += delta;
+            return;
+        }
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        add(2 * node, nodeFrom, middle, from, to, delta);
+        add(2 * node + 1, middle, nodeTo, from, to, delta);
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]) + pending[node];
+    }
+
+    private int max(int node, int nodeFrom, int nodeTo, int from, int to) {
+        if (from <= nodeFrom && nodeTo <= to) {
+            return max[node];
+        }
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        int best = Integer.MIN_VALUE;
+        if (from < middle) {
+            best = max(2 * node, nodeFrom, middle, from, to);
+        }
+        if (middle < to) {
+            best = Math.max(best, max(2 * node + 1, middle, nodeTo, from, to));
+        }
+        return best + pending[node];
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from >= to) {
+            throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ") of " + size);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Compact binary snapshot of trains, tickets and users. Each snapshot is tagged
+// with the journal segment that was opened when it was taken, so startup only
+// replays the journal from that segment on. Snapshots are read through a
+// memory-mapped buffer; low-cardinality strings (train numbers, seat types,
+// statuses, payment methods) are shared between tickets while decoding.
+public class SnapshotStore {
+    private static final int MAGIC = 0x52525353; // "RRSS"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final File directory;
+
+    public SnapshotStore(String directory) {
+        this.directory = new File(directory);
+    }
+
+    public static class Snapshot {
+        public final long journalSegment;
+        public final Map<String, Train> trains = new HashMap<>();
+        public final Map<String, Ticket> tickets = new HashMap<>();
+        public final Map<String, String> users = new HashMap<>();
+
+        Snapshot(long journalSegment) {
+            this.journalSegment = journalSegment;
+        }
+    }
+
+    // Returns the size of the snapshot file in bytes. inventories and kept
+    // hold each train's exported seat slots and seats kept for its waitlists,
+    // taken by the caller at a consistent point.
+    public long write(long journalSegment, Collection<Train> trains, Map<String, long[]> inventories,
+                      Map<String, long[]> kept, Collection<Ticket> tickets, Map<String, String> users) throws IOException {
+        File target = fileFor(journalSegment);
+        File tempFile = new File(target.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(tempFile)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(fileOut, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalSegment);
+
+            out.writeInt(trains.size());
+            for (Train train : trains) {
+                writeTrain(out, train, inventories.get(train.getTrainNumber()), kept.get(train.getTrainNumber()));
+            }
+            out.writeInt(tickets.size());
+            for (Ticket ticket : tickets) {
+                writeTicket(out, ticket);
+            }
+            out.writeInt(users.size());
+            for (Map.Entry<String, String> entry : users.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+            out.flush();
+            // The checksum covers everything above and is written unchecked
+            new DataOutputStream(fileOut).writeLong(crc.getValue());
+            fileOut.getFD().sync();
+        }
+        long size = tempFile.length();
+        Files.move(tempFile.toPath(), target.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename lives in the directory; it must be durable before the
+        // caller deletes the journal segments and snapshots it replaces
+        syncDirectory();
+        return size;
+    }
+
+    private void syncDirectory() throws IOException {
+        if (File.separatorChar == '\\') {
+            // Windows cannot open a directory as a channel to force it
+            return;
+        }
+        try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    // Loads the newest snapshot that passes its checksum, or null if none does
+    public Snapshot loadLatest() {
+        for (long segment : listSegments(true)) {
+            try {
+                return read(fileFor(segment));
+            } catch (IOException | RuntimeException e) {
+                Log.warn("Ignoring unreadable snapshot {}: {}", fileFor(segment), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    public void deleteOlderThan(long journalSegment) {
+        for (long segment : listSegments(false)) {
+            if (segment < journalSegment) {
+                fileFor(segment).delete();
+            }
+        }
+    }
+
+    private Snapshot read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < 24 || length > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected snapshot size " + length);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            // Checksum everything except the trailing 8-byte CRC
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            body.limit((int) length - 8);
+            crc.update(body);
+            if (buffer.getLong((int) length - 8) != crc.getValue()) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            SnapshotReader in = new SnapshotReader(buffer);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            Snapshot snapshot = new Snapshot(buffer.getLong());
+
+            int trainCount = buffer.getInt();
+            for (int i = 0; i < trainCount; i++) {
+                Train train = readTrain(in);
+                snapshot.trains.put(train.getTrainNumber(), train);
+            }
+            int ticketCount = buffer.getInt();
+            for (int i = 0; i < ticketCount; i++) {
+                Ticket ticket = readTicket(in, snapshot.trains);
+                if (ticket != null) {
+                    snapshot.tickets.put(ticket.getPnr(), ticket);
+                }
+            }
+            int userCount = buffer.getInt();
+            for (int i = 0; i < userCount; i++) {
+                snapshot.users.put(in.readString(), in.readString());
+            }
+            return snapshot;
+        }
+    }
+
+    private void writeTrain(DataOutputStream out, Train train, long[] slots, long[] kept) throws IOException {
+        writeString(out, train.getTrainNumber());
+        writeString(out, train.getTrainName());
+        writeString(out, train.getSource());
+        writeString(out, train.getDestination());
+        writeDateTime(out, train.getDepartureTime());
+        writeDateTime(out, train.getArrivalTime());
+        out.writeInt(train.getTotalSeats());
+        out.writeDouble(train.getBaseFare());
+        out.writeInt(train.getAcSeats());
+        if (slots == null) {
+            slots = train.getInventory().exportSlots();
+        }
+        out.writeInt(slots.length);
+        for (long slot : slots) {
+            out.writeLong(slot);
+        }
+        writeString(out, Train.formatStops(train.getIntermediateStops()));
+        if (kept == null) {
+            kept = train.getInventory().exportKept();
+        }
+        out.writeInt(kept.length);
+        for (long slot : kept) {
+            out.writeLong(slot);
+        }
+    }
+
+    private Train readTrain(SnapshotReader in) throws IOException {
+        Train train = new Train(in.readString(), in.readString(), in.readString(), in.readString(),
+            in.readDateTime(), in.readDateTime(), in.buffer.getInt(), in.buffer.getDouble(), in.buffer.getInt());
+        long[] slots = new long[in.buffer.getInt()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = in.buffer.getLong();
+        }
+        train.getInventory().importSlots(slots);
+        String stops = in.readString();
+        try {
+            train.setIntermediateStops(Train.parseStops(stops));
+        } catch (IllegalArgumentException e) {
+            Log.warn("Train {}: ignoring stops: {}", train.getTrainNumber(), e.getMessage());
+        }
+        long[] kept = new long[in.buffer.getInt()];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = in.buffer.getLong();
+        }
+        train.getInventory().importKept(kept);
+        return train;
+    }
+
+    private void writeTicket(DataOutputStream out, Ticket ticket) throws IOException {
+        writeString(out, ticket.getPnr());
+        writeString(out, ticket.getUserId());
+        writeString(out, ticket.getTrain().getTrainNumber());
+        out.writeInt(ticket.getNumberOfSeats());
+        writeString(out, ticket.getSeatType());
+        writeString(out, ticket.getPassengerName());
+        writeString(out, ticket.getPhoneNumber());
+        writeString(out, ticket.getEmail());
+        writeDateTime(out, ticket.getJourneyDate());
+        writeDateTime(out, ticket.getBookingDateTime());
+        writeString(out, ticket.getStatus());
+        writeString(out, ticket.getPaymentMethod() != null ? ticket.getPaymentMethod() : "");
+        writeString(out, ticket.getPaymentId() != null ? ticket.getPaymentId() : "");
+        writeString(out, ticket.getTransactionReference() != null ? ticket.getTransactionReference() : "");
+        out.writeDouble(ticket.getBaseFare());
+        out.writeDouble(ticket.getTax());
+        out.writeDouble(ticket.getTotalFare());
+        writeString(out, ticket.getCoachNumber());
+        writeString(out, String.join(",", ticket.getSeatNumbers()));
+        writeString(out, ticket.isPartOfRoute() ? ticket.getFromStation() : "");
+        writeString(out, ticket.isPartOfRoute() ? ticket.getToStation() : "");
+    }
+
+    // Returns null when the referenced train no longer exists
+    private Ticket readTicket(SnapshotReader in, Map<String, Train> trains) throws IOException {
+        String pnr = in.readString();
+        String userId = in.readString();
+        Train train = trains.get(in.readPooledString());
+        int numberOfSeats = in.buffer.getInt();
+        String seatType = in.readPooledString();
+        String passengerName = in.readString();
+        String phoneNumber = in.readString();
+        String email = in.readString();
+        LocalDateTime journeyDate = in.readDateTime();
+        LocalDateTime bookingDate = in.readDateTime();
+        String status = in.readPooledString();
+        String paymentMethod = in.readPooledString();
+        String paymentId = in.readString();
+        String transactionRef = in.readString();
+        double baseFare = in.buffer.getDouble();
+        double tax = in.buffer.getDouble();
+        double totalFare = in.buffer.getDouble();
+        String coachNumber = in.readPooledString();
+        String seats = in.readString();
+        List<String> seatNumbers = seats.isEmpty() ? Collections.emptyList() : Arrays.asList(seats.split(","));
+        String fromStation = in.readPooledString();
+        String toStation = in.readPooledString();
+        if (fromStation.isEmpty()) {
+            fromStation = null;
+            toStation = null;
+        }
+        if (train == null) {
+            return null;
+        }
+        return Ticket.restore(pnr, userId, train, numberOfSeats, seatType,
+            passengerName, phoneNumber, email, journeyDate, bookingDate, status,
+            paymentMethod, paymentId, transactionRef, baseFare, tax, totalFare,
+            coachNumber, seatNumbers, fromStation, toStation);
+    }
+
+    private void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private File fileFor(long journalSegment) {
+        return new File(directory, String.format("%s%08d%s", PREFIX, journalSegment, SUFFIX));
+    }
+
+    private List<Long> listSegments(boolean newestFirst) {
+        List<Long> segments = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    try {
+                        segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        segments.sort(newestFirst ? Comparator.reverseOrder() : Comparator.naturalOrder());
+        return segments;
+    }
+
+    private static class SnapshotReader {
+        final ByteBuffer buffer;
+        private final Map<String, String> pool = new HashMap<>();
+        private byte[] scratch = new byte[256];
+
+        SnapshotReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        String readString() {
+            int length = buffer.getInt();
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        String readPooledString() {
+            String value = readString();
+            String pooled = pool.putIfAbsent(value, value);
+            return pooled != null ? pooled : value;
+        }
+
+        LocalDateTime readDateTime() {
+            long epochSecond = buffer.getLong();
+            return LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC);
+        }
+    }
+}
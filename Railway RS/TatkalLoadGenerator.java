@@ -0,0 +1,335 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load generator that replays a tatkal rush: a population of
+// users all opening at the same instant, most of them fighting over a few
+// hot trains, each booking again as soon as the previous attempt returns and
+// now and then cancelling one of their own tickets. Every simulated user is
+// its own (virtual, where available) thread driving BookingService, which
+// writes through DatabaseManager exactly as the GUI and HTTP API do.
+//
+//   java -Drailway.data.dir=/tmp/railway-load TatkalLoadGenerator
+//        [--users=2000] [--seconds=30] [--hot=3 | --hot=12951,12002] [--hotShare=0.9]
+//        [--cancelRate=0.1] [--maxSeats=4] [--thinkMs=0] [--date=yyyy-MM-dd]
+//        [--paymentMethod=UPI] [--hdr=prefix]
+//
+// Bookings are stored for real, so point railway.data.dir at a scratch copy
+// of the data directory. After the run every train/date touched is audited
+// for oversold seats, inventory drift and berths sold twice; the process
+// exits non-zero if any are found. --hdr writes prefix-book.hgrm and
+// prefix-cancel.hgrm in HdrHistogram's percentile layout.
+public class TatkalLoadGenerator {
+    private static final String[] SEAT_TYPES = { "AC", "Non-AC" };
+
+    private final BookingService service;
+    private final List<Train> hotTrains;
+    private final List<Train> allTrains;
+    private final LocalDate journeyDate;
+    private final double hotShare;
+    private final double cancelRate;
+    private final int maxSeats;
+    private final long thinkMillis;
+    private final String paymentMethod;
+
+    private final LatencyHistogram bookLatency = new LatencyHistogram();
+    private final LatencyHistogram cancelLatency = new LatencyHistogram();
+    private final LongAdder bookingsAttempted = new LongAdder();
+    private final LongAdder bookingsSucceeded = new LongAdder();
+    private final LongAdder seatsBooked = new LongAdder();
+    private final LongAdder cancellationsAttempted = new LongAdder();
+    private final LongAdder cancellationsSucceeded = new LongAdder();
+    private final Map<BookingError, LongAdder> bookingFailures = new EnumMap<>(BookingError.class);
+    private final Map<BookingError, LongAdder> cancelFailures = new EnumMap<>(BookingError.class);
+    private final LongAdder unexpectedErrors = new LongAdder();
+
+    private volatile boolean running = true;
+
+    private TatkalLoadGenerator(BookingService service, List<Train> hotTrains, LocalDate journeyDate,
+            double hotShare, double cancelRate, int maxSeats, long thinkMillis, String paymentMethod) {
+        this.service = service;
+        this.hotTrains = hotTrains;
+        this.allTrains = service.getAllTrains();
+        this.journeyDate = journeyDate;
+        this.hotShare = hotShare;
+        this.cancelRate = cancelRate;
+        this.maxSeats = maxSeats;
+        this.thinkMillis = thinkMillis;
+        this.paymentMethod = paymentMethod;
+        for (BookingError error : BookingError.values()) {
+            bookingFailures.put(error, new LongAdder());
+            cancelFailures.put(error, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "2000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        LocalDate date = options.containsKey("date")
+            ? LocalDate.parse(options.get("date")) : LocalDate.now().plusDays(1);
+
+        BookingService service = BookingService.getInstance();
+        if (service.getAllTrains().isEmpty()) {
+            System.err.println("No trains in the data directory; nothing to book");
+            System.exit(2);
+        }
+        List<Train> hot = hotTrains(service, options.getOrDefault("hot", "3"));
+        TatkalLoadGenerator generator = new TatkalLoadGenerator(service, hot, date,
+            Double.parseDouble(options.getOrDefault("hotShare", "0.9")),
+            Double.parseDouble(options.getOrDefault("cancelRate", "0.1")),
+            Integer.parseInt(options.getOrDefault("maxSeats", "4")),
+            Long.parseLong(options.getOrDefault("thinkMs", "0")),
+            options.getOrDefault("paymentMethod", "UPI"));
+
+        PrintStream console = System.out;
+        console.printf("Tatkal rush: %d users for %ds on %s, hot trains %s (%.0f%% of requests), "
+                + "cancel rate %.0f%%, %s threads%n",
+            users, seconds, date, numbers(hot), generator.hotShare * 100, generator.cancelRate * 100,
+            VirtualThreads.isAvailable() ? "virtual" : "platform");
+
+        // Engine code still logs to stdout on some paths; keep it out of the timings
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long elapsedNanos;
+        try {
+            elapsedNanos = generator.run(users, seconds);
+        } finally {
+            System.setOut(console);
+        }
+
+        boolean clean = generator.report(console, elapsedNanos);
+        if (options.containsKey("hdr")) {
+            String prefix = options.get("hdr");
+            generator.writeHdr(new File(prefix + "-book.hgrm"), generator.bookLatency);
+            generator.writeHdr(new File(prefix + "-cancel.hgrm"), generator.cancelLatency);
+            console.println("Percentile distributions written to " + prefix + "-book.hgrm and "
+                + prefix + "-cancel.hgrm");
+        }
+        System.exit(clean ? 0 : 1);
+    }
+
+    // Starts every user at once, lets them run for the given time and
+    // returns the wall-clock duration of the rush in ns
+    private long run(int users, int seconds) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(users);
+        CountDownLatch open = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(users);
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+        for (int i = 0; i < users; i++) {
+            String userId = "tatkal" + i;
+            executor.execute(() -> {
+                try {
+                    ready.countDown();
+                    open.await();
+                    simulateUser(userId);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        ready.await();
+        long started = System.nanoTime();
+        open.countDown();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running = false;
+        finished.await();
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private void simulateUser(String userId) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> myTickets = new ArrayList<>();
+        while (running) {
+            if (!myTickets.isEmpty() && random.nextDouble() < cancelRate) {
+                cancel(userId, myTickets.remove(random.nextInt(myTickets.size())));
+            } else {
+                String pnr = book(userId, random);
+                if (pnr != null) {
+                    myTickets.add(pnr);
+                }
+            }
+            if (thinkMillis > 0) {
+                Thread.sleep(random.nextLong(thinkMillis + 1));
+            }
+        }
+    }
+
+    private String book(String userId, ThreadLocalRandom random) {
+        List<Train> pool = !hotTrains.isEmpty() && random.nextDouble() < hotShare ? hotTrains : allTrains;
+        Train train = pool.get(random.nextInt(pool.size()));
+        int seats = 1 + random.nextInt(maxSeats);
+        BookingRequest request = new BookingRequest(userId, train.getTrainNumber(), journeyDate,
+            SEAT_TYPES[random.nextInt(SEAT_TYPES.length)], seats, "Passenger " + userId,
+            "9" + (100000000 + random.nextInt(900000000)), userId + "@example.com", paymentMethod);
+        bookingsAttempted.increment();
+        long started = System.nanoTime();
+        try {
+            Ticket ticket = service.book(request);
+            bookLatency.record(System.nanoTime() - started);
+            bookingsSucceeded.increment();
+            seatsBooked.add(seats);
+            return ticket.getPnr();
+        } catch (BookingException e) {
+            bookLatency.record(System.nanoTime() - started);
+            bookingFailures.get(e.getError()).increment();
+        } catch (RuntimeException e) {
+            bookLatency.record(System.nanoTime() - started);
+            unexpectedErrors.increment();
+        }
+        return null;
+    }
+
+    private void cancel(String userId, String pnr) {
+        cancellationsAttempted.increment();
+        long started = System.nanoTime();
+        try {
+            service.cancel(userId, pnr);
+            cancellationsSucceeded.increment();
+        } catch (BookingException e) {
+            cancelFailures.get(e.getError()).increment();
+        } catch (RuntimeException e) {
+            unexpectedErrors.increment();
+        }
+        cancelLatency.record(System.nanoTime() - started);
+    }
+
+    // Prints throughput, latency and failure mix, then audits every train
+    // on the journey date. Returns false if the audit found a problem.
+    private boolean report(PrintStream out, long elapsedNanos) {
+        double elapsedSeconds = elapsedNanos / 1e9;
+        long attempted = bookingsAttempted.sum();
+        long failed = attempted - bookingsSucceeded.sum();
+        out.println();
+        out.printf("%-10s %10s %12s %10s %10s %10s %10s %10s%n",
+            "operation", "count", "ops/s", "mean us", "p50 us", "p99 us", "p999 us", "max us");
+        printLatency(out, "book", bookLatency, elapsedSeconds);
+        printLatency(out, "cancel", cancelLatency, elapsedSeconds);
+        out.println();
+        out.printf("Bookings:      %d attempted, %d succeeded (%d seats), %d failed (%.2f%%)%n",
+            attempted, bookingsSucceeded.sum(), seatsBooked.sum(), failed,
+            attempted == 0 ? 0.0 : failed * 100.0 / attempted);
+        printFailures(out, bookingFailures);
+        out.printf("Cancellations: %d attempted, %d succeeded%n",
+            cancellationsAttempted.sum(), cancellationsSucceeded.sum());
+        printFailures(out, cancelFailures);
+        if (unexpectedErrors.sum() > 0) {
+            out.printf("  unexpected exceptions: %d%n", unexpectedErrors.sum());
+        }
+
+        out.println();
+        int oversold = 0;
+        int drift = 0;
+        int duplicateBerths = 0;
+        for (Train train : allTrains) {
+            int[] issues = audit(out, train);
+            oversold += issues[0];
+            drift += issues[1];
+            duplicateBerths += issues[2];
+        }
+        out.printf("Audit of %d trains on %s: %d seats oversold, %d seats of inventory drift, "
+            + "%d berths sold twice%n", allTrains.size(), journeyDate, oversold, drift, duplicateBerths);
+        return oversold == 0 && drift == 0 && duplicateBerths == 0 && unexpectedErrors.sum() == 0;
+    }
+
+    // Compares the live tickets of one train on the journey date against its
+    // capacity, its seat inventory and its berth map. Returns
+    // {oversold seats, drifted seats, duplicate berths}.
+    private int[] audit(PrintStream out, Train train) {
+        int[] activeSeats = new int[2];
+        int duplicates = 0;
+        Set<String> berths = new HashSet<>();
+        for (Ticket ticket : DatabaseManager.getInstance().getTrainTickets(train.getTrainNumber())) {
+            if (!ticket.holdsSeats() || !ticket.getJourneyDate().toLocalDate().equals(journeyDate)) {
+                continue;
+            }
+            int type = "AC".equals(ticket.getSeatType()) ? 0 : 1;
+            activeSeats[type] += ticket.getNumberOfSeats();
+            for (String seat : ticket.getSeatNumbers()) {
+                // Seats outside the ticket's first coach already carry their own coach prefix
+                String berth = ticket.getSeatType() + "/" + (seat.indexOf('-') >= 0 ? seat : ticket.getCoachNumber() + "-" + seat);
+                if (!berths.add(berth)) {
+                    duplicates++;
+                }
+            }
+        }
+        int[] capacity = { train.getAcSeats(), train.getTotalSeats() - train.getAcSeats() };
+        int[] available = { train.getAvailableAcSeats(journeyDate), train.getAvailableNonAcSeats(journeyDate) };
+        int oversold = 0;
+        int drift = 0;
+        for (int type = 0; type < 2; type++) {
+            oversold += Math.max(0, activeSeats[type] - capacity[type]);
+            drift += Math.abs(capacity[type] - available[type] - activeSeats[type]);
+        }
+        if (oversold > 0 || drift > 0 || duplicates > 0) {
+            out.printf("  train %s: AC %d/%d sold, %d left; Non-AC %d/%d sold, %d left; %d duplicate berths%n",
+                train.getTrainNumber(), activeSeats[0], capacity[0], available[0],
+                activeSeats[1], capacity[1], available[1], duplicates);
+        }
+        return new int[] { oversold, drift, duplicates };
+    }
+
+    private void writeHdr(File file, LatencyHistogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, 5, 1000.0);
+        }
+    }
+
+    private static void printLatency(PrintStream out, String name, LatencyHistogram histogram, double seconds) {
+        out.printf("%-10s %10d %12.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(),
+            histogram.getCount() / seconds, histogram.getMean() / 1000.0,
+            histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0);
+    }
+
+    private static void printFailures(PrintStream out, Map<BookingError, LongAdder> failures) {
+        for (Map.Entry<BookingError, LongAdder> entry : failures.entrySet()) {
+            if (entry.getValue().sum() > 0) {
+                out.printf("  %-18s %d%n", entry.getKey(), entry.getValue().sum());
+            }
+        }
+    }
+
+    // --hot is either a count (that many trains with the fewest seats, which
+    // sell out first) or a comma-separated list of train numbers
+    private static List<Train> hotTrains(BookingService service, String hot) throws BookingException {
+        List<Train> trains = new ArrayList<>();
+        if (hot.matches("\\d{1,3}")) {
+            List<Train> all = new ArrayList<>(service.getAllTrains());
+            all.sort(Comparator.comparingInt(Train::getTotalSeats).thenComparing(Train::getTrainNumber));
+            trains.addAll(all.subList(0, Math.min(Integer.parseInt(hot), all.size())));
+        } else {
+            for (String number : hot.split(",")) {
+                trains.add(service.findTrain(number));
+            }
+        }
+        return trains;
+    }
+
+    private static String numbers(List<Train> trains) {
+        List<String> numbers = new ArrayList<>();
+        for (Train train : trains) {
+            numbers.add(train.getTrainNumber());
+        }
+        return numbers.toString();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
@@ -1,23 +1,23 @@
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.UUID;
 
-import javax.swing.JOptionPane;
-
 public class Ticket implements Serializable {
     private static final long serialVersionUID = 1L;
     private static int ticketCounter = 1000;
+    private static volatile PnrGenerator pnrGenerator =
+        new SequencePnrGenerator(Integer.getInteger("railway.node", 0));
     
     // Ticket Information
     private String pnr;
     private final String userId;
     private LocalDateTime bookingDateTime;
     private LocalDateTime journeyDate;
-    private String status; // CONFIRMED, CANCELLED, PENDING
+    private String status; // CONFIRMED, CANCELLED, PENDING, WAITLISTED
     
     // Passenger Information
     private final String passengerName;
@@ -28,9 +28,13 @@ public class Ticket implements Serializable {
     private final Train train;
     private final int numberOfSeats;
     private String seatType; // AC or Non-AC
-    private final List<String> seatNumbers;
-    private final String coachNumber;
+    // Empty and "-" while waitlisted
+    private List<String> seatNumbers;
+    private String coachNumber;
     private final String bookingClass; // SL, 3A, 2A, 1A
+    // Stations of a part-route ticket; null for a ticket for the whole run
+    private String fromStation;
+    private String toStation;
     
     // Fare Information
     private double baseFare;
@@ -42,10 +46,23 @@ public class Ticket implements Serializable {
     private String paymentId;
     private String transactionReference;
 
+    // Journal segment of the newest change to this ticket whose journal
+    // write failed, or 0. The change stands but may be lost on a restart
+    // until a snapshot taken after it has been written.
+    private transient long unsavedSegment;
+
     public Ticket(String userId, Train train, int numberOfSeats, String seatType,
                  String passengerName, String phoneNumber, String email, 
                  LocalDateTime journeyDate) {
-        this.pnr = generatePNR();
+        this(userId, train, numberOfSeats, seatType, passengerName, phoneNumber, email, journeyDate, null, null);
+    }
+
+    // A ticket between two stations of the train's route, or for the whole
+    // run if both are null
+    public Ticket(String userId, Train train, int numberOfSeats, String seatType,
+                  String passengerName, String phoneNumber, String email,
+                  LocalDateTime journeyDate, String fromStation, String toStation) {
+        this.pnr = pnrGenerator.nextPnr();
         this.userId = userId;
         this.train = train;
         this.numberOfSeats = numberOfSeats;
@@ -56,10 +73,122 @@ public class Ticket implements Serializable {
         this.journeyDate = journeyDate;
         this.bookingDateTime = LocalDateTime.now();
         this.status = "CONFIRMED";
-        this.seatNumbers = generateSeatNumbers();
-        this.coachNumber = generateCoachNumber();
-        this.bookingClass = determineBookingClass();
-        calculateFares();
+        this.fromStation = fromStation;
+        this.toStation = toStation;
+        // The seat count is already reserved on the train; this picks the berths
+        SeatAllocator.Assignment assignment = isPartOfRoute()
+            ? train.allocateRouteSeats(journeyDate.toLocalDate(), seatType, fromStation, toStation, numberOfSeats)
+            : train.allocateSeats(journeyDate.toLocalDate(), seatType, numberOfSeats);
+        if (assignment == null) {
+            throw new IllegalStateException("No free " + seatType + " berths left for this journey date");
+        }
+        this.seatNumbers = assignment.seats;
+        this.coachNumber = assignment.coach;
+        FareQuote fare = price(train, numberOfSeats, seatType, journeyDate,
+                               train.getAvailableSeats(journeyDate.toLocalDate()), routeShare(train, fromStation, toStation));
+        this.bookingClass = fare.getBookingClass();
+        this.baseFare = fare.getBaseFare();
+        this.tax = fare.getTax();
+        this.totalFare = fare.getTotalFare();
+    }
+
+    // Rebuilds a persisted ticket without generating a new PNR or re-pricing it
+    private Ticket(String pnr, String userId, Train train, int numberOfSeats, String seatType,
+                   String passengerName, String phoneNumber, String email,
+                   LocalDateTime journeyDate, LocalDateTime bookingDateTime, String status,
+                   String coachNumber, List<String> seatNumbers) {
+        this.pnr = pnr;
+        this.userId = userId;
+        this.train = train;
+        this.numberOfSeats = numberOfSeats;
+        this.seatType = seatType;
+        this.passengerName = passengerName;
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.journeyDate = journeyDate;
+        this.bookingDateTime = bookingDateTime;
+        setStatus(status);
+        if (coachNumber != null && !coachNumber.isEmpty()) {
+            this.coachNumber = coachNumber;
+            this.seatNumbers = seatNumbers;
+            if (holdsSeats()) {
+                train.occupySeats(journeyDate.toLocalDate(), seatType, coachNumber, seatNumbers);
+            }
+        } else {
+            // Saved before berths were allocated: give upcoming journeys real
+            // berths, older or cancelled ones never had any
+            SeatAllocator.Assignment assignment = holdsSeats() && !journeyDate.toLocalDate().isBefore(LocalDate.now())
+                ? train.allocateSeats(journeyDate.toLocalDate(), seatType, numberOfSeats)
+                : null;
+            this.coachNumber = assignment != null ? assignment.coach : "-";
+            this.seatNumbers = assignment != null ? assignment.seats : Collections.emptyList();
+        }
+        this.bookingClass = determineBookingClass(train, seatType, numberOfSeats);
+    }
+
+    public static Ticket restore(String pnr, String userId, Train train, int numberOfSeats, String seatType,
+                                 String passengerName, String phoneNumber, String email,
+                                 LocalDateTime journeyDate, LocalDateTime bookingDateTime, String status,
+                                 String paymentMethod, String paymentId, String transactionReference,
+                                 double baseFare, double tax, double totalFare,
+                                 String coachNumber, List<String> seatNumbers) {
+        return restore(pnr, userId, train, numberOfSeats, seatType, passengerName, phoneNumber, email,
+                       journeyDate, bookingDateTime, status, paymentMethod, paymentId, transactionReference,
+                       baseFare, tax, totalFare, coachNumber, seatNumbers, null, null);
+    }
+
+    // As above for a part-route ticket. Its berths are marked taken here;
+    // DatabaseManager re-applies its load on the route once all are loaded.
+    public static Ticket restore(String pnr, String userId, Train train, int numberOfSeats, String seatType,
+                                 String passengerName, String phoneNumber, String email,
+                                 LocalDateTime journeyDate, LocalDateTime bookingDateTime, String status,
+                                 String paymentMethod, String paymentId, String transactionReference,
+                                 double baseFare, double tax, double totalFare,
+                                 String coachNumber, List<String> seatNumbers,
+                                 String fromStation, String toStation) {
+        Ticket ticket = new Ticket(pnr, userId, train, numberOfSeats, seatType,
+                                   passengerName, phoneNumber, email,
+                                   journeyDate, bookingDateTime, status,
+                                   coachNumber, seatNumbers);
+        ticket.paymentMethod = paymentMethod;
+        ticket.paymentId = paymentId;
+        ticket.transactionReference = transactionReference;
+        ticket.baseFare = baseFare;
+        ticket.tax = tax;
+        ticket.totalFare = totalFare;
+        ticket.fromStation = fromStation;
+        ticket.toStation = toStation;
+        return ticket;
+    }
+
+    // A booking for a full train: no berths until DatabaseManager confirms it
+    // from the waitlist. Priced as a booking that fills the train.
+    public static Ticket waitlisted(String userId, Train train, int numberOfSeats, String seatType,
+                                    String passengerName, String phoneNumber, String email,
+                                    LocalDateTime journeyDate, String paymentMethod, String transactionReference) {
+        Ticket ticket = new Ticket(pnrGenerator.nextPnr(), userId, train, numberOfSeats, seatType,
+                                   passengerName, phoneNumber, email,
+                                   journeyDate, LocalDateTime.now(), "WAITLISTED", null, null);
+        FareQuote fare = price(train, numberOfSeats, seatType, journeyDate, 0);
+        ticket.baseFare = fare.getBaseFare();
+        ticket.tax = fare.getTax();
+        ticket.totalFare = fare.getTotalFare();
+        // The fare is collected on joining, so there is no PENDING stage
+        ticket.paymentMethod = paymentMethod;
+        ticket.transactionReference = transactionReference;
+        ticket.paymentId = "PAY-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return ticket;
+    }
+
+    // Gives a waitlisted ticket the berths its now-reserved seats were allocated
+    public void confirmFromWaitlist(SeatAllocator.Assignment assignment) {
+        if (!isWaitlisted()) {
+            throw new IllegalStateException("Ticket " + pnr + " is not waitlisted");
+        }
+        this.coachNumber = assignment.coach;
+        this.seatNumbers = assignment.seats;
+        this.status = "CONFIRMED";
+        Log.debug("Ticket {} confirmed from the waitlist", this.pnr);
     }
 
     public void cancelTicket() throws IllegalStateException {
@@ -76,12 +205,15 @@ public class Ticket implements Serializable {
         }
         
         // Allow cancellation for other statuses but show warning
-        if (!"CONFIRMED".equalsIgnoreCase(this.status)) {
-            System.out.println("Warning: Cancelling ticket in " + this.status + " status");
+        if (!"CONFIRMED".equalsIgnoreCase(this.status) && !isWaitlisted()) {
+            Log.warn("Cancelling ticket {} in {} status", this.pnr, this.status);
         }
         
+        if (holdsSeats()) {
+            releaseBerths();
+        }
         this.status = "CANCELLED";
-        System.out.println("Ticket " + this.pnr + " status changed to CANCELLED");
+        Log.debug("Ticket {} status changed to CANCELLED", this.pnr);
     }
 
     // Setters
@@ -97,7 +229,11 @@ public class Ticket implements Serializable {
         if (status != null && 
             (status.equals("CONFIRMED") || 
              status.equals("PENDING") || 
-             status.equals("CANCELLED"))) {
+             status.equals("CANCELLED") ||
+             status.equals("WAITLISTED"))) {
+            if (status.equals("CANCELLED") && holdsSeats()) {
+                releaseBerths();
+            }
             this.status = status;
         } else {
             throw new IllegalArgumentException("Invalid ticket status");
@@ -132,44 +268,56 @@ public class Ticket implements Serializable {
         this.totalFare = totalFare;
     }
 
-    // PNR generation
-    private String generatePNR() {
-        String timestamp = Long.toString(System.currentTimeMillis() % 100000);
-        Random rand = new Random();
-        return "PNR" + timestamp + 
-               Character.toString(rand.nextInt(26) + 'A') +
-               Character.toString(rand.nextInt(26) + 'A');
+    // PNR generation is pluggable; the default is unique per node and restart
+    public static PnrGenerator getPnrGenerator() {
+        return pnrGenerator;
     }
 
-    // Seat number generation
-    private List<String> generateSeatNumbers() {
-        List<String> seats = new ArrayList<>();
-        Random rand = new Random();
-        int coachSeats = seatType.equals("AC") ? 30 : 72;
-        
-        for (int i = 0; i < numberOfSeats; i++) {
-            String seat;
-            do {
-                seat = String.format("%02d", rand.nextInt(coachSeats) + 1);
-            } while (seats.contains(seat));
-            seats.add(seat);
+    public static void setPnrGenerator(PnrGenerator generator) {
+        pnrGenerator = generator;
+    }
+
+    // False while a change to this ticket is live but not on disk
+    public synchronized boolean isSaved() {
+        return unsavedSegment == 0;
+    }
+
+    synchronized void markUnsaved(long journalSegment) {
+        unsavedSegment = Math.max(unsavedSegment, journalSegment);
+    }
+
+    // A snapshot tagged with journalSegment holds every change journaled before it
+    synchronized void markSaved(long journalSegment) {
+        if (unsavedSegment != 0 && unsavedSegment < journalSegment) {
+            unsavedSegment = 0;
         }
-        return seats;
     }
 
-    // Coach number generation
-    private String generateCoachNumber() {
-        Random rand = new Random();
-        if (seatType.equals("AC")) {
-            return "A" + (rand.nextInt(8) + 1);
+    // Confirmed and pending tickets keep their berths until cancelled
+    public boolean holdsSeats() {
+        return "CONFIRMED".equals(status) || "PENDING".equals(status);
+    }
+
+    public boolean isWaitlisted() {
+        return "WAITLISTED".equals(status);
+    }
+
+    // A ticket between two stations of the route rather than for its whole run
+    public boolean isPartOfRoute() {
+        return fromStation != null;
+    }
+
+    private void releaseBerths() {
+        if (isPartOfRoute()) {
+            train.freeRouteSeats(journeyDate.toLocalDate(), seatType, fromStation, toStation,
+                                 coachNumber, seatNumbers);
         } else {
-            String[] prefixes = {"S", "B", "C"};
-            return prefixes[rand.nextInt(prefixes.length)] + (rand.nextInt(12) + 1);
+            train.freeSeats(journeyDate.toLocalDate(), seatType, coachNumber, seatNumbers);
         }
     }
 
     // Booking class determination
-    private String determineBookingClass() {
+    private static String determineBookingClass(Train train, String seatType, int numberOfSeats) {
         if (seatType.equals("AC")) {
             if (train.hasExecutiveClass()) {
                 return numberOfSeats <= 2 ? "1A" : "2A";
@@ -180,26 +328,58 @@ public class Ticket implements Serializable {
         }
     }
 
+    // Prices a booking that has not reserved its seats yet, as it would be
+    // priced once they are
+    public static FareQuote quote(Train train, int numberOfSeats, String seatType, LocalDateTime journeyDate) {
+        return quote(train, numberOfSeats, seatType, journeyDate, null, null);
+    }
+
+    // As above for a leg between two stations; null stations mean the whole run
+    public static FareQuote quote(Train train, int numberOfSeats, String seatType, LocalDateTime journeyDate,
+                                  String fromStation, String toStation) {
+        int availableAfterBooking = Math.max(0,
+            train.getAvailableSeats(journeyDate.toLocalDate()) - numberOfSeats);
+        return price(train, numberOfSeats, seatType, journeyDate, availableAfterBooking,
+                     routeShare(train, fromStation, toStation));
+    }
+
+    private static FareQuote price(Train train, int numberOfSeats, String seatType,
+                                   LocalDateTime journeyDate, int availableSeats) {
+        return price(train, numberOfSeats, seatType, journeyDate, availableSeats, 1.0);
+    }
+
+    // Part-route fares are the whole-run fare scaled by the leg's share of the journey time
+    private static double routeShare(Train train, String fromStation, String toStation) {
+        return fromStation == null ? 1.0 : train.getRouteShare(fromStation, toStation);
+    }
+
     // Fare calculation
-    private void calculateFares() {
+    private static FareQuote price(Train train, int numberOfSeats, String seatType,
+                                   LocalDateTime journeyDate, int availableSeats, double routeShare) {
+        long started = System.nanoTime();
+        String bookingClass = determineBookingClass(train, seatType, numberOfSeats);
         double farePerSeat = seatType.equals("AC") ? 
                            train.getAcFare() : train.getBaseFare();
         
-        double demandMultiplier = calculateDemandMultiplier();
-        double classMultiplier = getClassMultiplier();
-        double advanceBookingDiscount = getAdvanceBookingDiscount();
+        double demandMultiplier = calculateDemandMultiplier(train, availableSeats);
+        double classMultiplier = getClassMultiplier(bookingClass);
+        double advanceBookingDiscount = getAdvanceBookingDiscount(journeyDate);
         
-        this.baseFare = farePerSeat * numberOfSeats * demandMultiplier * classMultiplier;
-        this.tax = this.baseFare * 0.18;
-        this.totalFare = (this.baseFare + this.tax) * (1 - advanceBookingDiscount);
+        double baseFare = farePerSeat * numberOfSeats * demandMultiplier * classMultiplier * routeShare;
+        double tax = baseFare * 0.18;
+        double totalFare = (baseFare + tax) * (1 - advanceBookingDiscount);
+        FareQuote quote = new FareQuote(train.getTrainNumber(), seatType, numberOfSeats, bookingClass,
+                                        baseFare, tax, totalFare);
+        Metrics.FARE_QUOTE.recordSince(started);
+        return quote;
     }
 
-    private double calculateDemandMultiplier() {
-        double occupancyRate = 1 - ((double)train.getAvailableSeats() / train.getTotalSeats());
+    private static double calculateDemandMultiplier(Train train, int availableSeats) {
+        double occupancyRate = 1 - ((double)availableSeats / train.getTotalSeats());
         return 0.9 + (occupancyRate * 0.9);
     }
 
-    private double getClassMultiplier() {
+    private static double getClassMultiplier(String bookingClass) {
         switch (bookingClass) {
             case "1A": return 1.8;
             case "2A": return 1.4;
@@ -208,7 +388,7 @@ public class Ticket implements Serializable {
         }
     }
 
-    private double getAdvanceBookingDiscount() {
+    private static double getAdvanceBookingDiscount(LocalDateTime journeyDate) {
         long daysInAdvance = java.time.Duration.between(LocalDateTime.now(), journeyDate).toDays();
         if (daysInAdvance > 60) return 0.15;
         if (daysInAdvance > 30) return 0.10;
@@ -250,6 +430,8 @@ public class Ticket implements Serializable {
     public String getCoachNumber() { return coachNumber; }
     public String getBookingClass() { return bookingClass; }
     public String getTransactionReference() { return transactionReference; }
+    public String getFromStation() { return fromStation != null ? fromStation : train.getSource(); }
+    public String getToStation() { return toStation != null ? toStation : train.getDestination(); }
 
     // Utility methods
     public String getSeatNumbersAsString() {
@@ -265,7 +447,7 @@ public class Ticket implements Serializable {
     }
 
     public boolean isCancellable() {
-        return status.equals("CONFIRMED") && 
+        return (status.equals("CONFIRMED") || status.equals("WAITLISTED")) &&
                LocalDateTime.now().isBefore(journeyDate);
     }
 
@@ -288,8 +470,8 @@ public class Ticket implements Serializable {
                "PNR: " + getPnr() + "\n" +
                "Passenger Name: " + getPassengerName() + "\n" +
                "Train Number: " + getTrain().getTrainNumber() + "\n" +
-               "Source: " + getTrain().getSource() + "\n" +
-               "Destination: " + getTrain().getDestination() + "\n" +
+               "Source: " + getFromStation() + "\n" +
+               "Destination: " + getToStation() + "\n" +
                "Journey Date: " + getFormattedJourneyDate() + "\n" +
                "Seats: " + getNumberOfSeats() + "\n" +
                "Fare: ₹" + getTotalFare();
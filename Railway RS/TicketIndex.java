@@ -0,0 +1,57 @@
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Secondary indexes over the ticket store: user, train and journey date to
+// PNRs. Cancelled tickets stay in the primary map and therefore stay indexed;
+// DatabaseManager keeps these in step with every put into the tickets map.
+public class TicketIndex {
+    private final Map<String, Set<String>> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byTrain = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Set<String>> byJourneyDate = new ConcurrentHashMap<>();
+
+    public void add(Ticket ticket) {
+        String pnr = ticket.getPnr();
+        byUser.computeIfAbsent(ticket.getUserId(), k -> ConcurrentHashMap.newKeySet()).add(pnr);
+        byTrain.computeIfAbsent(ticket.getTrain().getTrainNumber(), k -> ConcurrentHashMap.newKeySet()).add(pnr);
+        byJourneyDate.computeIfAbsent(ticket.getJourneyDate().toLocalDate(), k -> ConcurrentHashMap.newKeySet()).add(pnr);
+    }
+
+    public void remove(Ticket ticket) {
+        String pnr = ticket.getPnr();
+        removeFrom(byUser, ticket.getUserId(), pnr);
+        removeFrom(byTrain, ticket.getTrain().getTrainNumber(), pnr);
+        removeFrom(byJourneyDate, ticket.getJourneyDate().toLocalDate(), pnr);
+    }
+
+    public void clear() {
+        byUser.clear();
+        byTrain.clear();
+        byJourneyDate.clear();
+    }
+
+    public Set<String> getByUser(String userId) {
+        return view(byUser.get(userId));
+    }
+
+    public Set<String> getByTrain(String trainNumber) {
+        return view(byTrain.get(trainNumber));
+    }
+
+    public Set<String> getByJourneyDate(LocalDate journeyDate) {
+        return view(byJourneyDate.get(journeyDate));
+    }
+
+    private static <K> void removeFrom(Map<K, Set<String>> index, K key, String pnr) {
+        index.computeIfPresent(key, (k, pnrs) -> {
+            pnrs.remove(pnr);
+            return pnrs.isEmpty() ? null : pnrs;
+        });
+    }
+
+    private static Set<String> view(Set<String> pnrs) {
+        return pnrs == null ? Collections.emptySet() : Collections.unmodifiableSet(pnrs);
+    }
+}
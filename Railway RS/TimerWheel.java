@@ -0,0 +1,161 @@
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: four wheels of 64 slots, each slot spanning 64
+// times the one below, so with a tick of t milliseconds deadlines up to
+// 64^4 ticks ahead are placed directly (t = 250 ms gives about 48 days);
+// later ones wait in the outermost wheel and are re-placed as it turns.
+// Scheduling and cancelling are O(1). Each tick expires the entries in one
+// slot; when the innermost wheel wraps, the next outer slot is emptied into
+// the wheels below. Expiring n entries therefore costs O(n) plus O(1) per
+// elapsed tick, independent of how many entries are still pending.
+//
+// Not thread-safe; callers serialize access.
+public final class TimerWheel<T> {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long tickMillis;
+    // slots[level][index] heads a doubly linked list of timeouts
+    private final Timeout<T>[][] slots = newSlots();
+    // The next tick to be processed
+    private long currentTick;
+    private int size;
+
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int level = -1;
+        private int index;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+
+    public TimerWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    // Java cannot create an array of Timeout<T> directly
+    @SuppressWarnings("unchecked")
+    private static <T> Timeout<T>[][] newSlots() {
+        return (Timeout<T>[][]) new Timeout<?>[LEVELS][WHEEL_SIZE];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Deadlines already passed fire on the next advance
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        // Round up so an entry never fires before its deadline
+        Timeout<T> timeout = new Timeout<>(item, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    // Returns false if the timeout already fired or was cancelled
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.level < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    // Fires every entry whose deadline is at or before nowMillis, in deadline
+    // order to within one tick
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick <= targetTick) {
+            if (size == 0) {
+                // Nothing to fire or cascade; jump straight to the target
+                currentTick = targetTick + 1;
+                return;
+            }
+            cascade();
+            int index = (int) (currentTick & WHEEL_MASK);
+            Timeout<T> timeout = slots[0][index];
+            slots[0][index] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = timeout.next = null;
+                timeout.level = -1;
+                size--;
+                expired.accept(timeout.item);
+                timeout = next;
+            }
+            currentTick++;
+        }
+    }
+
+    // On a wheel boundary, moves the outer slot that now starts into the inner wheels
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            int index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Timeout<T> timeout = slots[level][index];
+            slots[level][index] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = timeout.next = null;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long tick = Math.max(timeout.deadlineTick, currentTick);
+        long delta = tick - currentTick;
+        if (delta >= MAX_SPAN) {
+            // Park in the outermost wheel; it is re-placed when that slot cascades
+            tick = currentTick + MAX_SPAN - 1;
+            delta = MAX_SPAN - 1;
+        }
+        int level = 0;
+        while (delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int index = (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        timeout.level = level;
+        timeout.index = index;
+        Timeout<T> head = slots[level][index];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[level][index] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.index] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = timeout.next = null;
+        timeout.level = -1;
+    }
+}
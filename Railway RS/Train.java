@@ -1,7 +1,16 @@
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Train implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -11,6 +20,8 @@ public class Train implements Serializable {
     private String trainName;
     private String source;
     private String destination;
+    // Stations called at between source and destination, in order
+    private List<Stop> intermediateStops = Collections.emptyList();
     
     // Schedule information
     private LocalDateTime departureTime;
@@ -19,8 +30,12 @@ public class Train implements Serializable {
     // Seat configuration
     private int totalSeats;
     private int acSeats;
-    private int availableAcSeats;
-    private int availableNonAcSeats;
+    // Per-date availability of both classes, updated lock-free
+    private final SeatInventory inventory;
+    // Per-date berth maps, created on the first booking for a date
+    private final Map<LocalDate, SeatAllocator> seatMaps = new ConcurrentHashMap<>();
+    // Per-date part-route loads, created on the first part-route booking
+    private final Map<LocalDate, RouteInventory> routeInventories = new ConcurrentHashMap<>();
     
     // Fare information
     private double baseFare;
@@ -32,6 +47,41 @@ public class Train implements Serializable {
     private boolean hasPantry;
     private int averageSpeed; // km/h
 
+    // Route segments are tracked as bits of a long
+    public static final int MAX_INTERMEDIATE_STOPS = 62;
+
+    // A station on the route and when the train gets there, in minutes
+    // after it leaves its source
+    public static final class Stop implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String station;
+        private final int minutesFromDeparture;
+
+        public Stop(String station, int minutesFromDeparture) {
+            if (station == null || station.trim().isEmpty()) {
+                throw new IllegalArgumentException("Stop station cannot be empty");
+            }
+            this.station = station.trim();
+            this.minutesFromDeparture = minutesFromDeparture;
+        }
+
+        public String getStation() { return station; }
+        public int getMinutesFromDeparture() { return minutesFromDeparture; }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Stop)) return false;
+            Stop stop = (Stop) other;
+            return station.equals(stop.station) && minutesFromDeparture == stop.minutesFromDeparture;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(station, minutesFromDeparture);
+        }
+    }
+
     public Train(String trainNumber, String trainName, String source, String destination,
                 LocalDateTime departureTime, LocalDateTime arrivalTime, 
                 int totalSeats, double baseFare, int acSeats) {
@@ -47,8 +97,7 @@ public class Train implements Serializable {
         this.totalSeats = totalSeats;
         this.baseFare = baseFare;
         this.acSeats = acSeats;
-        this.availableAcSeats = acSeats;
-        this.availableNonAcSeats = totalSeats - acSeats;
+        this.inventory = new SeatInventory(acSeats, totalSeats - acSeats);
     }
 
     private void validateConstructorArgs(String trainNumber, String trainName, String source, 
@@ -69,36 +118,272 @@ public class Train implements Serializable {
         }
     }
 
-    // Enhanced seat management
-    public synchronized boolean bookSeats(int numberOfSeats, String seatType) {
+    // Enhanced seat management. Availability is kept per journey date; the
+    // undated methods act on the train's next run (see getNextRunDate).
+    public boolean bookSeats(int numberOfSeats, String seatType) {
+        return bookSeats(getNextRunDate(), numberOfSeats, seatType);
+    }
+
+    public boolean bookSeats(LocalDate journeyDate, int numberOfSeats, String seatType) {
         if (numberOfSeats <= 0) {
             throw new IllegalArgumentException("Number of seats must be positive");
         }
+        RailwayEvents.SeatReservation event = new RailwayEvents.SeatReservation();
+        event.begin();
+        boolean granted = "AC".equalsIgnoreCase(seatType)
+            ? reserveSeats(journeyDate, numberOfSeats, 0)
+            : reserveSeats(journeyDate, 0, numberOfSeats);
+        event.end();
+        if (event.shouldCommit()) {
+            event.trainNumber = trainNumber;
+            event.journeyDate = journeyDate.toString();
+            event.seatType = seatType;
+            event.seats = numberOfSeats;
+            event.granted = granted;
+            event.commit();
+        }
+        if (!granted && Log.isEnabled(Log.Level.DEBUG)) {
+            Log.debug("Train {} has no room for {} on {}", trainNumber, numberOfSeats + " " + seatType, journeyDate);
+        }
+        return granted;
+    }
+
+    public void cancelSeats(int numberOfSeats, String seatType) {
+        cancelSeats(getNextRunDate(), numberOfSeats, seatType);
+    }
 
+    public void cancelSeats(LocalDate journeyDate, int numberOfSeats, String seatType) {
+        if (numberOfSeats <= 0) {
+            throw new IllegalArgumentException("Number of seats must be positive");
+        }
         if ("AC".equalsIgnoreCase(seatType)) {
-            if (availableAcSeats >= numberOfSeats) {
-                availableAcSeats -= numberOfSeats;
-                return true;
-            }
+            releaseSeats(journeyDate, numberOfSeats, 0);
         } else {
-            if (availableNonAcSeats >= numberOfSeats) {
-                availableNonAcSeats -= numberOfSeats;
-                return true;
-            }
+            releaseSeats(journeyDate, 0, numberOfSeats);
+        }
+    }
+
+    // Takes the requested AC and Non-AC seats on one date in one atomic step,
+    // or none of them if either class is short. Never oversells under contention.
+    public boolean reserveSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (acCount < 0 || nonAcCount < 0) {
+            throw new IllegalArgumentException("Seat counts cannot be negative");
+        }
+        if (!SeatInventory.isWithinHorizon(journeyDate)) {
+            throw new IllegalArgumentException("Journey date must be within the next "
+                + SeatInventory.HORIZON_DAYS + " days");
         }
-        return false;
+        return inventory.reserve(journeyDate, acCount, nonAcCount);
     }
 
-    public synchronized void cancelSeats(int numberOfSeats, String seatType) {
+    // Returns seats, capped at each class's capacity. Dates that have left the
+    // booking horizon are no longer tracked, so releases for them are dropped.
+    public void releaseSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (acCount < 0 || nonAcCount < 0) {
+            throw new IllegalArgumentException("Seat counts cannot be negative");
+        }
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.release(journeyDate, acCount, nonAcCount);
+        }
+    }
+
+    // Seat holds: seats set aside for a buyer who has not paid yet. They
+    // leave availability like a booking but are persisted as free, since a
+    // hold ends with the process. See SeatHoldManager.
+    public boolean holdSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (acCount < 0 || nonAcCount < 0) {
+            throw new IllegalArgumentException("Seat counts cannot be negative");
+        }
+        if (!SeatInventory.isWithinHorizon(journeyDate)) {
+            throw new IllegalArgumentException("Journey date must be within the next "
+                + SeatInventory.HORIZON_DAYS + " days");
+        }
+        return inventory.hold(journeyDate, acCount, nonAcCount);
+    }
+
+    public void releaseHeldSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.releaseHold(journeyDate, acCount, nonAcCount);
+        }
+    }
+
+    // The held seats become a booking's; availability does not change
+    public void confirmHeldSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.confirmHold(journeyDate, acCount, nonAcCount);
+        }
+    }
+
+    // Keeps seats given up by a cancellation out of sale for the waitlist
+    // to claim later. Unlike holds, kept seats are persisted.
+    public void keepReleasedSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.keepBooked(journeyDate, acCount, nonAcCount);
+        }
+    }
+
+    public void releaseKeptSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.releaseKept(journeyDate, acCount, nonAcCount);
+        }
+    }
+
+    // The kept seats become a booking's; availability does not change
+    public void confirmKeptSeats(LocalDate journeyDate, int acCount, int nonAcCount) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.confirmKept(journeyDate, acCount, nonAcCount);
+        }
+    }
+
+    public int getHeldSeats(LocalDate journeyDate) {
+        return inventory.getHeldAc(journeyDate) + inventory.getHeldNonAc(journeyDate);
+    }
+
+    // The departure date, or today once the scheduled departure has passed
+    public LocalDate getNextRunDate() {
+        LocalDate departureDate = departureTime.toLocalDate();
+        LocalDate today = LocalDate.now();
+        return departureDate.isBefore(today) ? today : departureDate;
+    }
+
+    // Picks actual free berths for a booking whose seat count is already reserved.
+    // Returns null if the berth map has no room, which means the counts and the
+    // map disagree and the caller should give the reserved seats back.
+    public SeatAllocator.Assignment allocateSeats(LocalDate journeyDate, String seatType, int numberOfSeats) {
+        return seatMapFor(journeyDate).allocate(seatType, numberOfSeats);
+    }
+
+    // Journeys that have already run are not tracked
+    public void occupySeats(LocalDate journeyDate, String seatType, String coach, List<String> seatNumbers) {
+        if (!journeyDate.isBefore(LocalDate.now())) {
+            seatMapFor(journeyDate).occupy(seatType, coach, seatNumbers);
+        }
+    }
+
+    public void freeSeats(LocalDate journeyDate, String seatType, String coach, List<String> seatNumbers) {
+        SeatAllocator seatMap = seatMaps.get(journeyDate);
+        if (seatMap != null) {
+            seatMap.release(seatType, coach, seatNumbers);
+        }
+    }
+
+    // Part-route bookings: a leg between two stations of the route, see
+    // RouteInventory. Takes the seats and as much of the whole-run count as
+    // the leg needs in one step; false if the leg is short of seats.
+    public boolean reserveRoute(LocalDate journeyDate, String seatType, String from, String to, int numberOfSeats) {
         if (numberOfSeats <= 0) {
             throw new IllegalArgumentException("Number of seats must be positive");
         }
+        if (!SeatInventory.isWithinHorizon(journeyDate)) {
+            throw new IllegalArgumentException("Journey date must be within the next "
+                + SeatInventory.HORIZON_DAYS + " days");
+        }
+        int[] leg = segmentsBetween(from, to);
+        return routeInventoryFor(journeyDate).reserve(inventory, journeyDate, "AC".equalsIgnoreCase(seatType),
+            leg[0], leg[1], numberOfSeats);
+    }
 
-        if ("AC".equalsIgnoreCase(seatType)) {
-            availableAcSeats = Math.min(acSeats, availableAcSeats + numberOfSeats);
-        } else {
-            availableNonAcSeats = Math.min(totalSeats - acSeats, availableNonAcSeats + numberOfSeats);
+    // Gives a leg's seats back and returns the whole-run seats that frees,
+    // which the caller returns with cancelSeats or passes to the waitlist
+    public int releaseRoute(LocalDate journeyDate, String seatType, String from, String to, int numberOfSeats) {
+        RouteInventory route = routeInventories.get(journeyDate);
+        if (route == null) {
+            return 0;
+        }
+        int[] leg = segmentsBetween(from, to);
+        return route.release("AC".equalsIgnoreCase(seatType), leg[0], leg[1], numberOfSeats);
+    }
+
+    // Berths for a leg whose seats are already reserved; null if there are none
+    public SeatAllocator.Assignment allocateRouteSeats(LocalDate journeyDate, String seatType,
+                                                       String from, String to, int numberOfSeats) {
+        int[] leg = segmentsBetween(from, to);
+        return routeInventoryFor(journeyDate).allocate(seatMapFor(journeyDate), inventory, journeyDate, seatType,
+            leg[0], leg[1], numberOfSeats);
+    }
+
+    public void freeRouteSeats(LocalDate journeyDate, String seatType, String from, String to,
+                               String coach, List<String> seatNumbers) {
+        SeatAllocator seatMap = seatMaps.get(journeyDate);
+        if (seatMap == null) {
+            return;
+        }
+        RouteInventory route = routeInventories.get(journeyDate);
+        if (route == null) {
+            seatMap.release(seatType, coach, seatNumbers);
+            return;
         }
+        int[] leg = segmentsBetween(from, to);
+        route.free(seatMap, seatType, leg[0], leg[1], coach, seatNumbers);
+    }
+
+    // Re-applies a restored part-route ticket's load and berths. The
+    // persisted whole-run count already allows for it.
+    public void restoreRoute(LocalDate journeyDate, String seatType, String from, String to, int numberOfSeats,
+                             String coach, List<String> seatNumbers) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            int[] leg = segmentsBetween(from, to);
+            routeInventoryFor(journeyDate).restore(seatMapFor(journeyDate), seatType, leg[0], leg[1],
+                numberOfSeats, coach, seatNumbers);
+        }
+    }
+
+    // Seats of one class free on every segment between two stations
+    public int getAvailableSeats(LocalDate journeyDate, String seatType, String from, String to) {
+        boolean ac = "AC".equalsIgnoreCase(seatType);
+        int wholeRun = ac ? inventory.getAvailableAc(journeyDate) : inventory.getAvailableNonAc(journeyDate);
+        RouteInventory route = routeInventories.get(journeyDate);
+        if (route == null) {
+            return wholeRun;
+        }
+        int[] leg = segmentsBetween(from, to);
+        return route.getAvailable(wholeRun, ac, leg[0], leg[1]);
+    }
+
+    private RouteInventory routeInventoryFor(LocalDate journeyDate) {
+        RouteInventory route = routeInventories.get(journeyDate);
+        if (route == null) {
+            LocalDate today = LocalDate.now();
+            routeInventories.keySet().removeIf(date -> date.isBefore(today) && !date.equals(journeyDate));
+            route = routeInventories.computeIfAbsent(journeyDate,
+                date -> new RouteInventory(intermediateStops.size() + 1));
+        }
+        return route;
+    }
+
+    // Segment range [from, to) of a leg; throws if it is not one of this train's
+    private int[] segmentsBetween(String from, String to) {
+        int fromIndex = stopIndex(from);
+        int toIndex = stopIndex(to);
+        if (fromIndex < 0 || toIndex < 0 || fromIndex >= toIndex) {
+            throw new IllegalArgumentException("Train " + trainNumber + " does not run from " + from + " to " + to);
+        }
+        return new int[] { fromIndex, toIndex };
+    }
+
+    private SeatAllocator seatMapFor(LocalDate journeyDate) {
+        SeatAllocator seatMap = seatMaps.get(journeyDate);
+        if (seatMap == null) {
+            // Drop maps of journeys that have already run before adding a new one
+            LocalDate today = LocalDate.now();
+            seatMaps.keySet().removeIf(date -> date.isBefore(today) && !date.equals(journeyDate));
+            seatMap = seatMaps.computeIfAbsent(journeyDate,
+                date -> new SeatAllocator(acSeats, totalSeats - acSeats));
+        }
+        return seatMap;
+    }
+
+    private void resizeSeatMaps() {
+        for (SeatAllocator seatMap : seatMaps.values()) {
+            seatMap.resize(acSeats, totalSeats - acSeats);
+        }
+        for (RouteInventory route : routeInventories.values()) {
+            route.retainBerths(acSeats, totalSeats - acSeats);
+        }
+    }
+
+    public SeatInventory getInventory() {
+        return inventory;
     }
 
     // Enhanced fare calculation
@@ -178,6 +463,134 @@ public class Train implements Serializable {
         this.destination = destination; 
     }
 
+    public List<Stop> getIntermediateStops() { return intermediateStops; }
+
+    // Replaces the stations called at between source and destination. The
+    // route cannot change while part-route bookings for it are held.
+    public void setIntermediateStops(List<Stop> stops) {
+        List<Stop> newStops = stops == null ? Collections.emptyList() : List.copyOf(stops);
+        if (newStops.equals(intermediateStops)) {
+            return;
+        }
+        validateStops(newStops);
+        checkStopsCanChange(newStops);
+        routeInventories.clear();
+        this.intermediateStops = newStops;
+    }
+
+    // Throws IllegalStateException if stops differ from the current ones
+    // while part-route bookings are held, so callers changing several
+    // details can refuse before changing any of them
+    public void checkStopsCanChange(List<Stop> stops) {
+        if ((stops == null ? Collections.emptyList() : stops).equals(intermediateStops)) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<LocalDate, RouteInventory> route : routeInventories.entrySet()) {
+            if (!route.getKey().isBefore(today) && !route.getValue().isEmpty()) {
+                throw new IllegalStateException("The stops of train " + trainNumber
+                    + " cannot change while part-route bookings are held");
+            }
+        }
+    }
+
+    private void validateStops(List<Stop> stops) {
+        if (stops.size() > MAX_INTERMEDIATE_STOPS) {
+            throw new IllegalArgumentException("A train can have at most " + MAX_INTERMEDIATE_STOPS + " stops");
+        }
+        long journeyMinutes = getJourneyDuration().toMinutes();
+        Set<String> stations = new HashSet<>();
+        stations.add(source.toLowerCase());
+        stations.add(destination.toLowerCase());
+        int previous = 0;
+        for (Stop stop : stops) {
+            if (stop.getStation().matches(".*[|:,].*")) {
+                throw new IllegalArgumentException("Stop names cannot contain '|', ':' or ','");
+            }
+            if (!stations.add(stop.getStation().toLowerCase())) {
+                throw new IllegalArgumentException(stop.getStation() + " is on the route more than once");
+            }
+            if (stop.getMinutesFromDeparture() <= previous || stop.getMinutesFromDeparture() >= journeyMinutes) {
+                throw new IllegalArgumentException("Stop times must increase along the route and fall"
+                    + " between departure and arrival: " + stop.getStation());
+            }
+            previous = stop.getMinutesFromDeparture();
+        }
+    }
+
+    // The whole route: source, intermediate stops and destination
+    public List<Stop> getRoute() {
+        List<Stop> route = new ArrayList<>(intermediateStops.size() + 2);
+        route.add(new Stop(source, 0));
+        route.addAll(intermediateStops);
+        route.add(new Stop(destination, (int) getJourneyDuration().toMinutes()));
+        return route;
+    }
+
+    // Position of a station on the route, case-insensitive; -1 if the train does not call there
+    public int stopIndex(String station) {
+        if (station == null) {
+            return -1;
+        }
+        String name = station.trim();
+        if (name.equalsIgnoreCase(source)) {
+            return 0;
+        }
+        for (int i = 0; i < intermediateStops.size(); i++) {
+            if (intermediateStops.get(i).getStation().equalsIgnoreCase(name)) {
+                return i + 1;
+            }
+        }
+        return name.equalsIgnoreCase(destination) ? intermediateStops.size() + 1 : -1;
+    }
+
+    // A null station stands for the end of the route
+    public boolean isWholeRun(String from, String to) {
+        return (from == null || stopIndex(from) == 0)
+            && (to == null || stopIndex(to) == intermediateStops.size() + 1);
+    }
+
+    // The part of the journey time a leg takes, used to scale its fare
+    public double getRouteShare(String from, String to) {
+        List<Stop> route = getRoute();
+        int[] leg = segmentsBetween(from, to);
+        int total = route.get(route.size() - 1).getMinutesFromDeparture();
+        if (total <= 0) {
+            return (double) (leg[1] - leg[0]) / (route.size() - 1);
+        }
+        return (double) (route.get(leg[1]).getMinutesFromDeparture()
+            - route.get(leg[0]).getMinutesFromDeparture()) / total;
+    }
+
+    // "Pune:150,Satara:260", as stored and as typed by admins
+    public static String formatStops(List<Stop> stops) {
+        StringBuilder text = new StringBuilder();
+        for (Stop stop : stops) {
+            if (text.length() > 0) text.append(',');
+            text.append(stop.getStation()).append(':').append(stop.getMinutesFromDeparture());
+        }
+        return text.toString();
+    }
+
+    public static List<Stop> parseStops(String text) {
+        List<Stop> stops = new ArrayList<>();
+        if (text == null || text.trim().isEmpty()) {
+            return stops;
+        }
+        for (String entry : text.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Stops must be written as Station:minutes, e.g. Pune:150");
+            }
+            try {
+                stops.add(new Stop(entry.substring(0, colon), Integer.parseInt(entry.substring(colon + 1).trim())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid minutes for stop " + entry.trim());
+            }
+        }
+        return stops;
+    }
+
     public LocalDateTime getDepartureTime() { return departureTime; }
     public void setDepartureTime(LocalDateTime departureTime) { 
         if (departureTime == null || departureTime.isAfter(arrivalTime)) {
@@ -202,8 +615,10 @@ public class Train implements Serializable {
         if (acSeats > totalSeats) {
             throw new IllegalArgumentException("AC seats cannot exceed total seats");
         }
+        // Added or removed seats are all Non-AC; seats already booked stay booked
+        inventory.setCapacity(acSeats, totalSeats - acSeats);
         this.totalSeats = totalSeats;
-        this.availableNonAcSeats = totalSeats - acSeats - (this.totalSeats - availableAcSeats - availableNonAcSeats);
+        resizeSeatMaps();
     }
 
     public int getAcSeats() { return acSeats; }
@@ -211,10 +626,9 @@ public class Train implements Serializable {
         if (acSeats < 0 || acSeats > totalSeats) {
             throw new IllegalArgumentException("Invalid AC seats count");
         }
-        int difference = acSeats - this.acSeats;
+        inventory.setCapacity(acSeats, totalSeats - acSeats);
         this.acSeats = acSeats;
-        this.availableAcSeats += difference;
-        this.availableNonAcSeats -= difference;
+        resizeSeatMaps();
     }
 
     public double getBaseFare() { return baseFare; }
@@ -233,19 +647,47 @@ public class Train implements Serializable {
         this.acFareMultiplier = multiplier; 
     }
 
-    public void setAvailableAcSeats(int availableAcSeats) {
-        this.availableAcSeats = availableAcSeats;
+    // Restores persisted availability for one date; dates outside the booking
+    // horizon are stale and skipped
+    public void setAvailableSeats(LocalDate journeyDate, int availableAcSeats, int availableNonAcSeats) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.set(journeyDate, availableAcSeats, availableNonAcSeats);
+        } else {
+            Log.debug("Train {}: ignoring seat counts for {}, outside the booking horizon", trainNumber, journeyDate);
+        }
+    }
+
+    public void setKeptSeats(LocalDate journeyDate, int keptAcSeats, int keptNonAcSeats) {
+        if (SeatInventory.isWithinHorizon(journeyDate)) {
+            inventory.setKept(journeyDate, keptAcSeats, keptNonAcSeats);
+        }
     }
 
-    public int getAvailableAcSeats() {
-        return availableAcSeats;
+    public void setAvailableAcSeats(int availableAcSeats) {
+        LocalDate date = getNextRunDate();
+        setAvailableSeats(date, availableAcSeats, getAvailableNonAcSeats(date));
     }
+
     public void setAvailableNonAcSeats(int availableNonAcSeats) {
-        this.availableNonAcSeats = availableNonAcSeats;
+        LocalDate date = getNextRunDate();
+        setAvailableSeats(date, getAvailableAcSeats(date), availableNonAcSeats);
     }
 
-    public int getAvailableSeats() { return availableAcSeats + availableNonAcSeats; }
-    public int getAvailableNonAcSeats() { return availableNonAcSeats; }
+    public int getAvailableAcSeats() { return getAvailableAcSeats(getNextRunDate()); }
+    public int getAvailableNonAcSeats() { return getAvailableNonAcSeats(getNextRunDate()); }
+    public int getAvailableSeats() { return getAvailableSeats(getNextRunDate()); }
+
+    public int getAvailableAcSeats(LocalDate journeyDate) {
+        return inventory.getAvailableAc(journeyDate);
+    }
+
+    public int getAvailableNonAcSeats(LocalDate journeyDate) {
+        return inventory.getAvailableNonAc(journeyDate);
+    }
+
+    public int getAvailableSeats(LocalDate journeyDate) {
+        return inventory.getAvailableAc(journeyDate) + inventory.getAvailableNonAc(journeyDate);
+    }
 
     public String getTrainType() { return trainType; }
     public void setTrainType(String trainType) { this.trainType = trainType; }
@@ -275,7 +717,7 @@ public class Train implements Serializable {
                arrivalTime.format(DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm")),
                getJourneyDuration().toHours(), getJourneyDuration().toMinutesPart(),
                totalSeats, acSeats, totalSeats - acSeats,
-               availableAcSeats, availableNonAcSeats,
+               getAvailableAcSeats(), getAvailableNonAcSeats(),
                baseFare, getAcFare());
     }
 }
\ No newline at end of file
@@ -3,9 +3,15 @@ import javax.swing.border.*;
 import javax.swing.table.DefaultTableModel;
 
 import java.awt.*;
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 public class UserMenu extends JFrame {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = 
@@ -45,6 +51,7 @@ public class UserMenu extends JFrame {
 
         // Create styled buttons with icons
         JButton bookTicketButton = createMenuButton("Book Ticket", "icons/book_ticket.png");
+        JButton planJourneyButton = createMenuButton("Plan Journey", "icons/plan_journey.png");
         JButton cancelTicketButton = createMenuButton("Cancel Ticket", "icons/cancel_ticket.png");
         JButton viewBookingButton = createMenuButton("My Bookings", "icons/view_bookings.png");
         JButton viewScheduleButton = createMenuButton("Train Schedule", "icons/schedule.png");
@@ -54,6 +61,7 @@ public class UserMenu extends JFrame {
 
         // Add action listeners
         bookTicketButton.addActionListener(e -> showBookTicketDialog());
+        planJourneyButton.addActionListener(e -> showPlanJourneyDialog());
         cancelTicketButton.addActionListener(e -> showCancelTicketDialog());
         viewBookingButton.addActionListener(e -> showViewBookingDialog());
         viewScheduleButton.addActionListener(e -> showTrainSchedule());
@@ -67,6 +75,7 @@ public class UserMenu extends JFrame {
 
         // Add buttons to panel
         buttonPanel.add(bookTicketButton);
+        buttonPanel.add(planJourneyButton);
         buttonPanel.add(cancelTicketButton);
         buttonPanel.add(viewBookingButton);
         buttonPanel.add(viewScheduleButton);
@@ -148,19 +157,23 @@ public class UserMenu extends JFrame {
                 return;
             }
 
-            DatabaseManager.getInstance().addUser(username, password);
-            currentUserId = username;
-            JOptionPane.showMessageDialog(dialog,
-                "Registration successful!",
-                "Success",
-                JOptionPane.INFORMATION_MESSAGE);
-            dialog.dispose();
-                currentUserId = username;
-                JOptionPane.showMessageDialog(dialog,
-                    "Registration successful!",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-            dialog.dispose();
+            BackgroundTask.run(dialog, "Registering...", false,
+                progress -> {
+                    DatabaseManager.getInstance().addUser(username, password);
+                    return username;
+                },
+                registered -> {
+                    currentUserId = registered;
+                    JOptionPane.showMessageDialog(dialog,
+                        "Registration successful!",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                    dialog.dispose();
+                },
+                ex -> JOptionPane.showMessageDialog(dialog,
+                    "Registration failed: " + ex.getMessage(),
+                    "Registration Error",
+                    JOptionPane.ERROR_MESSAGE));
         });
 
         buttonPanel.add(loginButton);
@@ -208,7 +221,7 @@ public class UserMenu extends JFrame {
     }
 
     private void showBookTicketDialog() {
-        List<Train> trains = DatabaseManager.getInstance().getAllTrains();
+        List<Train> trains = BookingService.getInstance().getAllTrains();
         if (trains.isEmpty()) {
             showErrorMessage("No trains available for booking");
             return;
@@ -247,6 +260,7 @@ public class UserMenu extends JFrame {
             }
         });
         
+        JComboBox<LocalDate> journeyDateComboBox = createJourneyDateComboBox();
         JComboBox<String> seatTypeComboBox = new JComboBox<>(new String[]{"AC", "Non-AC"});
         JComboBox<String> paymentMethodComboBox = new JComboBox<>(
             new String[]{"UPI", "Credit Card", "Debit Card", "Net Banking"});
@@ -256,6 +270,7 @@ public class UserMenu extends JFrame {
         addFormRow(formPanel, "Phone Number:", phoneField);
         addFormRow(formPanel, "Email:", emailField);
         addFormRow(formPanel, "Select Train:", trainComboBox);
+        addFormRow(formPanel, "Journey Date:", journeyDateComboBox);
         addFormRow(formPanel, "Seat Type:", seatTypeComboBox);
         addFormRow(formPanel, "Number of Seats:", seatsField);
         addFormRow(formPanel, "Payment Method:", paymentMethodComboBox);
@@ -275,39 +290,51 @@ public class UserMenu extends JFrame {
                 String passengerName = nameField.getText().trim();
                 String phoneNumber = phoneField.getText().trim();
                 String email = emailField.getText().trim();
-                LocalDateTime journeyDate = LocalDateTime.now().plusDays(1);
-
-                if (passengerName.isEmpty() || phoneNumber.isEmpty()) {
-                    throw new IllegalArgumentException("Name and phone number are required");
-                }
-
-                if (selectedTrain.bookSeats(seats, seatType)) {
-                    Ticket ticket = new Ticket(currentUserId, selectedTrain, seats, seatType,
-                                            passengerName, phoneNumber, email, journeyDate);
-                    
-                    // Show payment confirmation
-                    int confirm = JOptionPane.showConfirmDialog(dialog,
-                        createPaymentConfirmationPanel(ticket),
-                        "Confirm Payment",
-                        JOptionPane.YES_NO_OPTION,
-                        JOptionPane.PLAIN_MESSAGE);
-                    
-                    if (confirm == JOptionPane.YES_OPTION) {
-                        String paymentId = "PAY" + System.currentTimeMillis();
-                        String txnRef = "TXN" + System.currentTimeMillis();
-                        ticket.setPaymentDetails(paymentMethod, paymentId);
-                        DatabaseManager.getInstance().addTicket(ticket);
-                        
-                        // Show ticket details
-                        showTicketDetails(ticket, "Booking Successful");
-                        dialog.dispose();
-                    } else {
-                        selectedTrain.cancelSeats(seats, seatType);
+                LocalDate travelDate = (LocalDate) journeyDateComboBox.getSelectedItem();
+                BookingService service = BookingService.getInstance();
+                FareQuote quote = service.quote(selectedTrain.getTrainNumber(), travelDate, seatType, seats);
+                BookingRequest request = new BookingRequest(currentUserId,
+                    selectedTrain.getTrainNumber(), travelDate, seatType, seats,
+                    passengerName, phoneNumber, email, paymentMethod);
+
+                // Keep the seats while the user decides; they go back on sale
+                // if the dialog is declined, closed or left open too long
+                SeatHold hold;
+                try {
+                    hold = service.hold(request);
+                } catch (BookingException ex) {
+                    if (ex.getError() != BookingError.SEATS_UNAVAILABLE) {
+                        throw ex;
                     }
+                    offerWaitlist(dialog, request, ex.getMessage());
+                    return;
+                }
+                int confirm = JOptionPane.showConfirmDialog(dialog,
+                    createPaymentConfirmationPanel(passengerName, selectedTrain, quote, hold),
+                    "Confirm Payment",
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.PLAIN_MESSAGE);
+
+                if (confirm == JOptionPane.YES_OPTION) {
+                    // Once submitted a booking runs to completion, so it is not cancellable
+                    BackgroundTask.run(dialog, "Booking ticket...", false,
+                        progress -> service.book(hold, request),
+                        ticket -> {
+                            // Show ticket details
+                            showTicketDetails(ticket, "Booking Successful");
+                            dialog.dispose();
+                            warnIfUnsaved(ticket);
+                        },
+                        ex -> {
+                            service.releaseHold(hold);
+                            showErrorMessage(ex.getMessage());
+                        });
                 } else {
-                    showErrorMessage("Not enough " + seatType + " seats available");
+                    service.releaseHold(hold);
                 }
-            } catch (Exception ex) {
+            } catch (NumberFormatException ex) {
+                showErrorMessage("Please enter a valid number of seats");
+            } catch (BookingException ex) {
                 showErrorMessage(ex.getMessage());
             }
         });
@@ -323,7 +350,30 @@ public class UserMenu extends JFrame {
         dialog.setVisible(true);
     }
 
-    private JPanel createPaymentConfirmationPanel(Ticket ticket) {
+    // The class is full: offer a place on its waitlist instead
+    private void offerWaitlist(JDialog dialog, BookingRequest request, String reason) {
+        int confirm = JOptionPane.showConfirmDialog(dialog,
+            reason + ".\n\nJoin the waitlist? The fare is charged now, and the ticket is\n" +
+            "confirmed automatically when enough seats are released.",
+            "Class Full",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.QUESTION_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        BookingService service = BookingService.getInstance();
+        BackgroundTask.run(dialog, "Joining waitlist...", false,
+            progress -> service.joinWaitlist(request),
+            ticket -> {
+                String waitlist = service.getWaitlistStatus(ticket);
+                showTicketDetails(ticket, waitlist != null ? "Waitlisted: " + waitlist : "Booking Successful");
+                dialog.dispose();
+                warnIfUnsaved(ticket);
+            },
+            ex -> showErrorMessage(ex.getMessage()));
+    }
+
+    private JPanel createPaymentConfirmationPanel(String passengerName, Train train, FareQuote quote, SeatHold hold) {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(new EmptyBorder(10, 10, 10, 10));
 
@@ -339,15 +389,18 @@ public class UserMenu extends JFrame {
             "Base Fare: ₹%.2f\n" +
             "Tax (18%%): ₹%.2f\n" +
             "Total Fare: ₹%.2f\n\n" +
+            "Seats held for you until %s.\n" +
             "Proceed with payment?",
-            ticket.getPassengerName(),
-            ticket.getTrain().getTrainName(),
-            ticket.getTrain().getTrainNumber(),
-            ticket.getSeatType(),
-            ticket.getNumberOfSeats(),
-            ticket.getBaseFare(),
-            ticket.getTax(),
-            ticket.getTotalFare()
+            passengerName,
+            train.getTrainName(),
+            train.getTrainNumber(),
+            quote.getSeatType(),
+            quote.getNumberOfSeats(),
+            quote.getBaseFare(),
+            quote.getTax(),
+            quote.getTotalFare(),
+            Instant.ofEpochMilli(hold.getExpiresAtMillis()).atZone(ZoneId.systemDefault())
+                .format(DateTimeFormatter.ofPattern("hh:mm:ss a"))
         ));
 
         panel.add(new JScrollPane(detailsArea), BorderLayout.CENTER);
@@ -384,6 +437,17 @@ public class UserMenu extends JFrame {
         return field;
     }
 
+    // The change went through but could not be written to disk yet
+    private void warnIfUnsaved(Ticket ticket) {
+        if (!ticket.isSaved()) {
+            JOptionPane.showMessageDialog(this,
+                "Ticket " + ticket.getPnr() + " has been updated, but the change could not be saved to disk yet.\n" +
+                "Please do not repeat it. Contact support if the ticket is missing after a restart.",
+                "Not Yet Saved",
+                JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
     private void showErrorMessage(String message) {
         JOptionPane.showMessageDialog(this,
             message,
@@ -402,20 +466,12 @@ public class UserMenu extends JFrame {
         }
         pnr = pnr.trim();
     
-        Ticket ticket = DatabaseManager.getInstance().getTicket(pnr);
-        if (ticket == null) {
-            JOptionPane.showMessageDialog(this,
-                "Ticket with PNR " + pnr + " not found",
-                "Not Found",
-                JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-    
-        if (!ticket.getUserId().equals(currentUserId)) {
-            JOptionPane.showMessageDialog(this,
-                "You can only cancel your own tickets",
-                "Unauthorized",
-                JOptionPane.ERROR_MESSAGE);
+        BookingService service = BookingService.getInstance();
+        Ticket ticket;
+        try {
+            ticket = service.getTicket(currentUserId, pnr);
+        } catch (BookingException e) {
+            showErrorMessage(e.getMessage());
             return;
         }
     
@@ -432,39 +488,33 @@ public class UserMenu extends JFrame {
             JOptionPane.WARNING_MESSAGE);
     
         if (confirm == JOptionPane.YES_OPTION) {
-            boolean success = DatabaseManager.getInstance().cancelTicket(pnr);
-            
-            if (success) {
-                JOptionPane.showMessageDialog(this,
-                    "Ticket cancelled successfully",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-                
-                // Refresh the display
-                // refreshMyBookings(); // Call your existing refresh method
-            } else {
-                JOptionPane.showMessageDialog(this,
-                    "Failed to cancel ticket",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            String cancelPnr = pnr;
+            BackgroundTask.run(this, "Cancelling ticket...", false,
+                progress -> service.cancel(currentUserId, cancelPnr),
+                cancelled -> {
+                    JOptionPane.showMessageDialog(this,
+                        "Ticket " + cancelled.getPnr() + " has been cancelled successfully.\n" +
+                        "Seats have been returned to availability.",
+                        "Cancellation Successful",
+                        JOptionPane.INFORMATION_MESSAGE);
+                    warnIfUnsaved(cancelled);
+                },
+                ex -> JOptionPane.showMessageDialog(this,
+                    ex.getMessage(),
+                    "Cancellation Failed",
+                    JOptionPane.ERROR_MESSAGE));
         }
     }
     private void showViewBookingDialog() {
         String pnr = JOptionPane.showInputDialog(this, "Enter PNR number:");
         if (pnr != null) {
-            Ticket ticket = DatabaseManager.getInstance().getTicket(pnr);
-            if (ticket != null && ticket.getUserId().equals(currentUserId)) {
+            withOwnTicket(pnr, ticket -> {
+                String waitlist = BookingService.getInstance().getWaitlistStatus(ticket);
                 JOptionPane.showMessageDialog(this,
-                    ticket.generateTicketPrintout(),
+                    ticket.generateTicketPrintout() + (waitlist != null ? "\nStatus: " + waitlist : ""),
                     "Ticket Details",
                     JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(this,
-                    "Invalid PNR or unauthorized access",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 
@@ -477,7 +527,7 @@ public class UserMenu extends JFrame {
         textArea.setEditable(false);
         JScrollPane scrollPane = new JScrollPane(textArea);
 
-        for (Train train : DatabaseManager.getInstance().getAllTrains()) {
+        for (Train train : BookingService.getInstance().getAllTrains()) {
             textArea.append(String.format("Train: %s (%s)\n", train.getTrainName(), train.getTrainNumber()));
             textArea.append(String.format("Route: %s to %s\n", train.getSource(), train.getDestination()));
             textArea.append(String.format("Departure: %s\n", train.getDepartureTime().format(DATE_TIME_FORMATTER)));
@@ -491,8 +541,96 @@ public class UserMenu extends JFrame {
         dialog.setVisible(true);
     }
 
+    // Finds journeys between two stations, with changes where no one train
+    // goes all the way. Each leg is booked on its own train.
+    private void showPlanJourneyDialog() {
+        JDialog dialog = new JDialog(this, "Plan Journey", true);
+        dialog.setSize(700, 550);
+        dialog.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(new EmptyBorder(15, 15, 15, 15));
+
+        JPanel formPanel = new JPanel(new GridLayout(0, 2, 10, 10));
+        JTextField fromField = createStyledTextField();
+        JTextField toField = createStyledTextField();
+        JComboBox<LocalDate> journeyDateComboBox = createJourneyDateComboBox();
+        JTextField timeField = createStyledTextField();
+        timeField.setText("00:00");
+        addFormRow(formPanel, "From Station:", fromField);
+        addFormRow(formPanel, "To Station:", toField);
+        addFormRow(formPanel, "Journey Date:", journeyDateComboBox);
+        addFormRow(formPanel, "Leaving After (HH:mm):", timeField);
+
+        JTextArea resultArea = new JTextArea();
+        resultArea.setEditable(false);
+        resultArea.setFont(new Font("Monospaced", Font.PLAIN, 13));
+
+        JButton searchButton = createActionButton("Search", new Color(0, 102, 204));
+        searchButton.addActionListener(e -> {
+            try {
+                LocalTime time = LocalTime.parse(timeField.getText().trim());
+                BookingService service = BookingService.getInstance();
+                JourneyPlanner.Plan plan = service.planJourney(fromField.getText(), toField.getText(),
+                    (LocalDate) journeyDateComboBox.getSelectedItem(), time);
+                StringBuilder text = new StringBuilder();
+                if (plan.isEmpty()) {
+                    text.append("No journeys found for this date.\n");
+                } else {
+                    appendJourney(text, "Fastest", plan.earliestArrival, service);
+                    if (plan.fewestTransfers.getTransfers() < plan.earliestArrival.getTransfers()) {
+                        text.append("\n");
+                        appendJourney(text, "Fewest changes", plan.fewestTransfers, service);
+                    }
+                    text.append("\nBook each leg from Book Ticket on its train and date.\n");
+                }
+                resultArea.setText(text.toString());
+                resultArea.setCaretPosition(0);
+            } catch (DateTimeParseException ex) {
+                showErrorMessage("Please enter the time as HH:mm");
+            } catch (BookingException ex) {
+                showErrorMessage(ex.getMessage());
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(searchButton);
+        buttonPanel.add(new JButton("Close") {{ addActionListener(e -> dialog.dispose()); }});
+
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(formPanel, BorderLayout.CENTER);
+        top.add(buttonPanel, BorderLayout.SOUTH);
+        panel.add(top, BorderLayout.NORTH);
+        panel.add(new JScrollPane(resultArea), BorderLayout.CENTER);
+
+        dialog.add(panel);
+        dialog.setVisible(true);
+    }
+
+    private static void appendJourney(StringBuilder text, String title, JourneyPlanner.Journey journey,
+                                      BookingService service) {
+        DateTimeFormatter when = DateTimeFormatter.ofPattern("EEE dd MMM HH:mm");
+        int changes = journey.getTransfers();
+        text.append(String.format("%s: arrives %s, %s%n", title, journey.getArrival().format(when),
+            changes == 0 ? "direct" : changes + (changes == 1 ? " change" : " changes")));
+        for (JourneyPlanner.Leg leg : journey.getLegs()) {
+            Train train = leg.getTrain();
+            text.append(String.format("  %s %s%n    %s %s  ->  %s %s%n", train.getTrainNumber(), train.getTrainName(),
+                leg.getFromStation(), leg.getDeparture().format(when),
+                leg.getToStation(), leg.getArrival().format(when)));
+            try {
+                BookingService.Availability seats = service.getAvailability(train.getTrainNumber(),
+                    leg.getJourneyDate(), leg.getFromStation(), leg.getToStation());
+                text.append(String.format("    Seats free: AC %d, Non-AC %d (journey date %s)%n",
+                    seats.acSeats, seats.nonAcSeats, leg.getJourneyDate()));
+            } catch (BookingException ex) {
+                text.append("    ").append(ex.getMessage()).append('\n');
+            }
+        }
+    }
+
     private void checkSeatAvailability() {
-        List<Train> trains = DatabaseManager.getInstance().getAllTrains();
+        List<Train> trains = BookingService.getInstance().getAllTrains();
         if (trains.isEmpty()) {
             JOptionPane.showMessageDialog(this,
                 "No trains available",
@@ -507,14 +645,30 @@ public class UserMenu extends JFrame {
 
         JPanel panel = new JPanel(new BorderLayout());
         JComboBox<Train> trainComboBox = new JComboBox<>(trains.toArray(new Train[0]));
+        JComboBox<LocalDate> journeyDateComboBox = createJourneyDateComboBox();
         JLabel availabilityLabel = new JLabel();
 
-        trainComboBox.addActionListener(e -> {
+        java.awt.event.ActionListener updateAvailability = e -> {
             Train selectedTrain = (Train) trainComboBox.getSelectedItem();
-            availabilityLabel.setText(String.format("Available Seats: %d", selectedTrain.getAvailableSeats()));
-        });
-
-        panel.add(trainComboBox, BorderLayout.NORTH);
+            LocalDate travelDate = (LocalDate) journeyDateComboBox.getSelectedItem();
+            if (selectedTrain == null || travelDate == null) return;
+            try {
+                BookingService.Availability availability =
+                    BookingService.getInstance().getAvailability(selectedTrain.getTrainNumber(), travelDate);
+                availabilityLabel.setText(String.format("Available Seats: %d (AC: %d, Non-AC: %d)",
+                    availability.getTotal(), availability.acSeats, availability.nonAcSeats));
+            } catch (BookingException ex) {
+                availabilityLabel.setText(ex.getMessage());
+            }
+        };
+        trainComboBox.addActionListener(updateAvailability);
+        journeyDateComboBox.addActionListener(updateAvailability);
+        updateAvailability.actionPerformed(null);
+
+        JPanel selectionPanel = new JPanel(new GridLayout(2, 1, 5, 5));
+        selectionPanel.add(trainComboBox);
+        selectionPanel.add(journeyDateComboBox);
+        panel.add(selectionPanel, BorderLayout.NORTH);
         panel.add(availabilityLabel, BorderLayout.CENTER);
         panel.add(new JButton("Close") {{ addActionListener(e -> dialog.dispose()); }}, 
             BorderLayout.SOUTH);
@@ -523,11 +677,48 @@ public class UserMenu extends JFrame {
         dialog.setVisible(true);
     }
 
+    // Offers every date in the booking horizon, starting today
+    private JComboBox<LocalDate> createJourneyDateComboBox() {
+        JComboBox<LocalDate> comboBox = new JComboBox<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < SeatInventory.HORIZON_DAYS; i++) {
+            comboBox.addItem(today.plusDays(i));
+        }
+        comboBox.setSelectedIndex(1);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy");
+        comboBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof LocalDate) {
+                    setText(((LocalDate) value).format(formatter));
+                }
+                return this;
+            }
+        });
+        return comboBox;
+    }
+
+    // Looks up the user's own ticket for a PNR in the background and hands it
+    // to action, or reports an unknown or someone else's PNR
+    private void withOwnTicket(String pnr, Consumer<Ticket> action) {
+        BackgroundTask.run(this, "Looking up ticket...", true,
+            progress -> BookingService.getInstance().getTicket(currentUserId, pnr),
+            action,
+            ex -> {
+                if (!(ex instanceof CancellationException)) {
+                    JOptionPane.showMessageDialog(this,
+                        "Invalid PNR or unauthorized access",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            });
+    }
+
     private void printTicket() {
         String pnr = JOptionPane.showInputDialog(this, "Enter PNR number to print ticket:");
         if (pnr != null) {
-            Ticket ticket = DatabaseManager.getInstance().getTicket(pnr);
-            if (ticket != null && ticket.getUserId().equals(currentUserId)) {
+            withOwnTicket(pnr, ticket -> {
                 JDialog dialog = new JDialog(this, "Print Ticket", true);
                 dialog.setSize(500, 600);
                 dialog.setLocationRelativeTo(this);
@@ -549,12 +740,7 @@ public class UserMenu extends JFrame {
                 dialog.add(scrollPane, BorderLayout.CENTER);
                 dialog.add(printButton, BorderLayout.SOUTH);
                 dialog.setVisible(true);
-            } else {
-                JOptionPane.showMessageDialog(this,
-                    "Invalid PNR or unauthorized access",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Waitlist queues, one per train, journey date and seat class. A queue
+// exists only while someone is waiting on it. The queues themselves are
+// guarded by their train's booking lock in DatabaseManager; this map only
+// finds them.
+//
+// The first RAC_PER_CLASS passengers in a queue are shown as RAC, the rest
+// as WL, both numbered from 1. RAC passengers are first to be confirmed, but
+// there are no shared side berths: the seat map has none to give.
+//
+// Tuning: -Drailway.waitlist.racPerClass (default 10) and
+// -Drailway.waitlist.maxPerClass (default 10000).
+public class Waitlist {
+    public static final int RAC_PER_CLASS = Integer.getInteger("railway.waitlist.racPerClass", 10);
+    public static final int MAX_PER_CLASS = Integer.getInteger("railway.waitlist.maxPerClass", 10_000);
+
+    private final Map<String, WaitlistQueue> queues = new ConcurrentHashMap<>();
+
+    // The queue, or null if nobody is waiting
+    WaitlistQueue get(String trainNumber, LocalDate journeyDate, String seatType) {
+        return queues.get(key(trainNumber, journeyDate, seatType));
+    }
+
+    WaitlistQueue getOrCreate(String trainNumber, LocalDate journeyDate, String seatType) {
+        return queues.computeIfAbsent(key(trainNumber, journeyDate, seatType), k -> new WaitlistQueue());
+    }
+
+    // Forgets a queue nobody is waiting on and no seats are kept for
+    void removeIfIdle(String trainNumber, LocalDate journeyDate, String seatType) {
+        queues.computeIfPresent(key(trainNumber, journeyDate, seatType),
+            (k, queue) -> queue.isEmpty() && queue.getReservedSeats() == 0 ? null : queue);
+    }
+
+    // "RAC 3" or "WL 12" for a 1-based queue position
+    public static String label(int position) {
+        return position <= RAC_PER_CLASS ? "RAC " + position : "WL " + (position - RAC_PER_CLASS);
+    }
+
+    private static String key(String trainNumber, LocalDate journeyDate, String seatType) {
+        return trainNumber + "|" + journeyDate + "|" + seatType;
+    }
+}
@@ -0,0 +1,152 @@
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// FIFO queue of waitlisted PNRs for one train, date and class. Entries sit
+// in an array in arrival order; leaving the queue blanks an entry rather
+// than shifting the rest. A Fenwick tree over the array counts the live
+// entries, so a passenger's position is the number of live entries up to
+// theirs: O(log n) for joins, withdrawals and position queries, a handful
+// of steps even with tens of thousands waiting. Blanked entries are
+// compacted away when the array fills.
+//
+// Seats that were freed for this queue but are too few for the passenger
+// at its head are counted in reservedSeats; DatabaseManager keeps them out
+// of sale as kept seats (see SeatInventory) until the head can use them.
+//
+// Not thread-safe; callers hold the train's booking lock.
+final class WaitlistQueue {
+    private String[] pnrs = new String[16];
+    // tree[i] counts live entries in (i - lowbit(i), i], 1-based
+    private int[] tree = new int[17];
+    // Sequence number of pnrs[0]; sequences never change once assigned
+    private int base;
+    // First live entry, or tail when empty
+    private int head;
+    private int tail;
+    private int size;
+    private final Map<String, Integer> sequenceByPnr = new HashMap<>();
+    private int reservedSeats;
+    private LocalDateTime lastJoinTime;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Appends a PNR and returns its position, counting from 1
+    int add(String pnr) {
+        if (sequenceByPnr.containsKey(pnr)) {
+            throw new IllegalStateException(pnr + " is already waitlisted");
+        }
+        if (tail == pnrs.length) {
+            makeRoom();
+        }
+        pnrs[tail] = pnr;
+        update(tail, 1);
+        sequenceByPnr.put(pnr, base + tail);
+        tail++;
+        size++;
+        return size;
+    }
+
+    // Re-queues a PNR when the queues are rebuilt at startup, in join order
+    void restore(String pnr, LocalDateTime joinedAt) {
+        add(pnr);
+        if (lastJoinTime == null || joinedAt.isAfter(lastJoinTime)) {
+            lastJoinTime = joinedAt;
+        }
+    }
+
+    // Join times decide the order the queue is rebuilt in after a restart,
+    // so they strictly increase even if the clock stalls or steps back
+    LocalDateTime nextJoinTime() {
+        LocalDateTime now = LocalDateTime.now();
+        lastJoinTime = lastJoinTime != null && !now.isAfter(lastJoinTime) ? lastJoinTime.plusNanos(1) : now;
+        return lastJoinTime;
+    }
+
+    // Takes a PNR out wherever it is; false if it was not queued
+    boolean remove(String pnr) {
+        Integer sequence = sequenceByPnr.remove(pnr);
+        if (sequence == null) {
+            return false;
+        }
+        int index = sequence - base;
+        pnrs[index] = null;
+        update(index, -1);
+        size--;
+        while (head < tail && pnrs[head] == null) {
+            head++;
+        }
+        return true;
+    }
+
+    // The longest-waiting PNR, or null
+    String peek() {
+        return head < tail ? pnrs[head] : null;
+    }
+
+    // 1-based position, or 0 if the PNR is not queued. Everything ahead of
+    // head has left, so the live count up to the entry is its position.
+    int positionOf(String pnr) {
+        Integer sequence = sequenceByPnr.get(pnr);
+        return sequence == null ? 0 : prefixCount(sequence - base);
+    }
+
+    int getReservedSeats() {
+        return reservedSeats;
+    }
+
+    void setReservedSeats(int reservedSeats) {
+        this.reservedSeats = reservedSeats;
+    }
+
+    // Live entries in pnrs[0..index]
+    private int prefixCount(int index) {
+        int count = 0;
+        for (int i = index + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    private void update(int index, int delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Drops the blanks, growing the array if it is still more than half full,
+    // and rebuilds the tree in O(n)
+    private void makeRoom() {
+        int capacity = size * 2 > pnrs.length ? pnrs.length * 2 : pnrs.length;
+        String[] compacted = new String[capacity];
+        int count = 0;
+        for (int i = head; i < tail; i++) {
+            if (pnrs[i] != null) {
+                compacted[count] = pnrs[i];
+                sequenceByPnr.put(pnrs[i], base + tail + count);
+                count++;
+            }
+        }
+        // New sequences start past every old one, so none is reused
+        base += tail;
+        pnrs = compacted;
+        head = 0;
+        tail = count;
+        tree = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= count) {
+                tree[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}